@@ -0,0 +1,231 @@
+package com.buaisociety.pacman;
+
+import com.buaisociety.pacman.replay.Replay;
+import com.cjcrafter.neat.Neat;
+import com.cjcrafter.neat.NeatImpl;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The state of every game of a generation, saved while the generation is
+ * still running, so training can resume after a crash or restart.
+ *
+ * <p>Each game is stored as its {@link Replay} so far, plus the state of its
+ * behavior. To resume, the {@link Trainer} plays the replays back (which is
+ * much faster than asking the neural networks again), then hands each game
+ * back to its behavior. The population of the generation is saved once,
+ * when the generation starts, in <code>population-&lt;episode&gt;</code>.
+ *
+ * <p>The games are written to <code>games.bin</code> in the checkpoint
+ * folder. The file is replaced in 1 step, so a crash while saving leaves the
+ * previous checkpoint in place.
+ */
+public final class Checkpoint {
+
+    private static final int MAGIC = 0x5041434B;  // "PACK"
+    private static final int VERSION = 1;
+    private static final String GAMES_FILE = "games.bin";
+
+    private final int episode;
+    private final @NotNull List<Game> games;
+
+    public Checkpoint(int episode, @NotNull List<Game> games) {
+        this.episode = episode;
+        this.games = games;
+    }
+
+    /**
+     * Returns the episode (generation) of the games.
+     *
+     * @return the episode of the games
+     */
+    public int getEpisode() {
+        return episode;
+    }
+
+    /**
+     * Returns every game of the generation, ordered by game id.
+     *
+     * @return every game
+     */
+    public @NotNull List<Game> getGames() {
+        return Collections.unmodifiableList(games);
+    }
+
+    /**
+     * Returns true if the given folder has a checkpoint to resume from.
+     *
+     * @param folder the checkpoint folder
+     * @return true if there is a checkpoint
+     */
+    public static boolean exists(@NotNull File folder) {
+        return new File(folder, GAMES_FILE).isFile();
+    }
+
+    /**
+     * Returns the folder that holds the population of the given episode.
+     *
+     * @param folder the checkpoint folder
+     * @param episode the episode (generation)
+     * @return the folder of the population
+     */
+    public static @NotNull File getPopulationFolder(@NotNull File folder, int episode) {
+        return new File(folder, "population-" + episode);
+    }
+
+    /**
+     * Loads the population that played the games of this checkpoint.
+     *
+     * @param folder the checkpoint folder
+     * @return the population
+     * @throws IOException if the population was not saved, or cannot be read
+     */
+    public @NotNull Neat readPopulation(@NotNull File folder) throws IOException {
+        File[] files = getPopulationFolder(folder, episode).listFiles((dir, name) -> name.endsWith(".json"));
+        if (files == null || files.length == 0)
+            throw new IOException("No population saved for episode " + episode + " in " + folder);
+
+        // The saver names files by generation, so there should only be 1
+        File newest = files[0];
+        for (File file : files) {
+            if (file.lastModified() > newest.lastModified())
+                newest = file;
+        }
+        return NeatImpl.fromJson(Files.readString(newest.toPath()));
+    }
+
+    /**
+     * Writes the games to the checkpoint folder, replacing the previous
+     * checkpoint, then deletes the populations of older episodes.
+     *
+     * @param folder the checkpoint folder
+     * @throws IOException if the checkpoint cannot be written
+     */
+    public void write(@NotNull File folder) throws IOException {
+        folder.mkdirs();
+        Path temp = new File(folder, GAMES_FILE + ".tmp").toPath();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(episode);
+            out.writeInt(games.size());
+            for (Game game : games) {
+                out.writeBoolean(game.finished);
+                out.writeInt(game.level);
+                out.writeInt(game.replay.length);
+                out.write(game.replay);
+                out.writeInt(game.behavior.length);
+                out.write(game.behavior);
+            }
+        }
+        Files.move(temp, new File(folder, GAMES_FILE).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        File[] populations = folder.listFiles((dir, name) -> name.startsWith("population-"));
+        if (populations == null)
+            return;
+        for (File population : populations) {
+            if (population.equals(getPopulationFolder(folder, episode)))
+                continue;
+
+            File[] files = population.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            population.delete();
+        }
+    }
+
+    /**
+     * Reads the games from the checkpoint folder.
+     *
+     * @param folder the checkpoint folder
+     * @return the checkpoint
+     * @throws IOException if there is no checkpoint, or it cannot be read
+     */
+    public static @NotNull Checkpoint read(@NotNull File folder) throws IOException {
+        Path path = new File(folder, GAMES_FILE).toPath();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC)
+                throw new IOException("Not a checkpoint: " + path);
+            int version = in.readInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported checkpoint version " + version);
+
+            int episode = in.readInt();
+            int count = in.readInt();
+            List<Game> games = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                boolean finished = in.readBoolean();
+                int level = in.readInt();
+                byte[] replay = new byte[in.readInt()];
+                in.readFully(replay);
+                byte[] behavior = new byte[in.readInt()];
+                in.readFully(behavior);
+                games.add(new Game(finished, level, replay, behavior));
+            }
+            return new Checkpoint(episode, games);
+        }
+    }
+
+    /**
+     * The saved state of 1 game. The replay and behavior are stored as
+     * bytes, so they can be captured quickly between ticks and written to
+     * disk later on another thread.
+     */
+    public static final class Game {
+
+        private final boolean finished;
+        private final int level;
+        private final byte[] replay;
+        private final byte[] behavior;
+
+        public Game(boolean finished, int level, byte[] replay, byte[] behavior) {
+            this.finished = finished;
+            this.level = level;
+            this.replay = replay;
+            this.behavior = behavior;
+        }
+
+        public boolean isFinished() {
+            return finished;
+        }
+
+        /**
+         * Returns the level the game was on, so the behavior state can be
+         * given to the pacman of that level.
+         *
+         * @return the level of the game
+         */
+        public int getLevel() {
+            return level;
+        }
+
+        public @NotNull Replay readReplay() throws IOException {
+            return Replay.read(new ByteArrayInputStream(replay));
+        }
+
+        /**
+         * Returns a stream over the saved state of the behavior.
+         *
+         * @return the state of the behavior
+         */
+        public @NotNull DataInputStream readBehavior() {
+            return new DataInputStream(new ByteArrayInputStream(behavior));
+        }
+    }
+}
@@ -6,18 +6,10 @@ import com.badlogic.gdx.Input;
 import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.utils.ScreenUtils;
+import com.buaisociety.pacman.render.GameRenderer;
 import com.cjcrafter.neat.Neat;
 import com.cjcrafter.neat.NeatImpl;
-import com.cjcrafter.neat.NeatPrinter;
-import com.cjcrafter.neat.NeatSaver;
 import com.cjcrafter.neat.Parameters;
-import com.buaisociety.pacman.entity.EntityType;
-import com.buaisociety.pacman.entity.PacmanEntity;
-import com.buaisociety.pacman.entity.behavior.NeatPacmanBehavior;
-import com.buaisociety.pacman.event.CreateMazeEvent;
-import com.buaisociety.pacman.event.EntityPreSpawnEvent;
-import com.buaisociety.pacman.event.GameEndEvent;
-import com.buaisociety.pacman.util.EventSystem;
 import org.jetbrains.annotations.NotNull;
 import org.joml.Vector2i;
 
@@ -27,31 +19,29 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 
 /**
  * Welcome welcome! This is the main class for the training of pacman. This
- * class is responsible for creating the NEAT algorithm, creating the pacman
- * clients, and updating the game. The game is updated in a separate thread
- * pool to allow for multiple games to be updated at once. The NEAT algorithm
- * is evolved when all games are complete. The NEAT algorithm is saved to a
- * file after each evolution.
+ * class is responsible for creating the NEAT algorithm, and drawing the best
+ * games while the {@link Trainer} updates them. The games are updated on
+ * separate worker threads, which run as fast as they can while this class
+ * draws whatever state the games are in. The NEAT algorithm is evolved when
+ * all games are complete. The NEAT algorithm is saved to a file after each
+ * evolution.
  */
 public class Main extends ApplicationAdapter {
 
+    public static final int TOTAL_GAMES = 250;
+    public static final File CHECKPOINT_FOLDER = new File("saves", "checkpoint");
+    public static final long CHECKPOINT_INTERVAL_MILLIS = 5 * 60 * 1000;  // 5 minutes
+    public static final boolean USE_WORKERS = true;  // false updates every game once per frame instead
+
     private SpriteBatch batch;
     private OrthographicCamera camera;
+    private GameRenderer renderer;
 
-    private final @NotNull EventSystem events = new EventSystem();
     private final @NotNull Vector2i visibleGames = new Vector2i(4, 2);
-    private final @NotNull List<PacmanNeatClient> managers = new ArrayList<>();
-    private final int totalGames = 250;
     private GameLoop secondLoop;  // 1 update per second
     private boolean paused;
     private boolean showNetworks;
@@ -59,49 +49,44 @@ public class Main extends ApplicationAdapter {
     private int fps;
 
     // deep learning
-    private Neat neat;
-    private NeatPrinter neatPrinter;
-    private NeatSaver neatSaver;
-    private ExecutorService threadPool;
+    private Trainer trainer;
 
     @Override
     public void create() {
         camera = new OrthographicCamera();
         batch = new SpriteBatch();
+        renderer = new GameRenderer();
         camera.setToOrtho(false, 8 * 28 * visibleGames.x, 8 * 36 * visibleGames.y);
-        neat = createNeat();
-        neatPrinter = new NeatPrinter(neat);
-        neatSaver = new NeatSaver(neat, getSaveFolder());
+        trainer = createTrainer();
+        if (USE_WORKERS)
+            trainer.startWorkers(Runtime.getRuntime().availableProcessors());
         secondLoop = new GameLoop(1);
+        //Gdx.graphics.setWindowedMode(8 * 28 * 8, 8 * 36 * 8);
+    }
 
-        int processors = Runtime.getRuntime().availableProcessors();
-        threadPool = Executors.newFixedThreadPool(processors);
-        System.out.println("Using " + processors + " threads");
-
-        // When all games have ended, reset
-        events.registerListener(GameEndEvent.class, event -> {
-            int id = event.getGameManager().getConfig().id;
-            managers.get(id).getGameCompleteFuture().complete(null);
-        });
-
-        // When a new pacman is created, set the behavior
-        events.registerListener(EntityPreSpawnEvent.class, event -> {
-            if (event.getEntityType() != EntityType.PACMAN)
-                return;
-
-            PacmanEntity.Config config = (PacmanEntity.Config) event.getConfig();
-            int id = event.getMaze().getLevelManager().getConfig().id;
-            config.behavior = new NeatPacmanBehavior(neat.getClients().get(id));
-        });
-
-        events.registerListener(CreateMazeEvent.class, SpecialTrainingConditions.onCreateMaze());
-        events.registerListener(EntityPreSpawnEvent.class, SpecialTrainingConditions.onEntityPreSpawn());
+    /**
+     * Creates the trainer, continuing the generation in the checkpoint folder
+     * if there is one (e.g. after a crash), and saves checkpoints from then on.
+     *
+     * @return the trainer
+     */
+    public static @NotNull Trainer createTrainer() {
+        Trainer trainer = null;
+        if (Checkpoint.exists(CHECKPOINT_FOLDER)) {
+            try {
+                trainer = Trainer.resume(CHECKPOINT_FOLDER, getSaveFolder());
+            } catch (IOException e) {
+                System.err.println("Could not resume from checkpoint, starting over: " + e.getMessage());
+            }
+        }
+        if (trainer == null)
+            trainer = new Trainer(createNeat(), getSaveFolder(), TOTAL_GAMES);
 
-        reset();
-        //Gdx.graphics.setWindowedMode(8 * 28 * 8, 8 * 36 * 8);
+        trainer.setCheckpointFolder(CHECKPOINT_FOLDER, CHECKPOINT_INTERVAL_MILLIS);
+        return trainer;
     }
 
-    public @NotNull Neat createNeat() {
+    public static @NotNull Neat createNeat() {
         // Change this to true/false as needed, if you want to load from file
         if (true) {
             // TODO: Change this to the exact file you want to load
@@ -125,11 +110,11 @@ public class Main extends ApplicationAdapter {
             neatParameters.setTargetClientsPerSpecies(12);  // targeting ~12 clients per species
             neatParameters.setStagnationLimit(10);  // lower stagnation limit
             neatParameters.setUseBiasNode(true);  // use bias node
-            return new NeatImpl(4, 4, totalGames, neatParameters);
+            return new NeatImpl(4, 4, TOTAL_GAMES, neatParameters);
         }
     }
 
-    public @NotNull File getSaveFolder() {
+    public static @NotNull File getSaveFolder() {
         // Create the "saves" directory if it doesn't exist
         File saveFolder = new File("saves");
         saveFolder.mkdirs();
@@ -171,25 +156,6 @@ public class Main extends ApplicationAdapter {
         return newFolder;
     }
 
-    public void reset() {
-        for (PacmanNeatClient manager : managers) {
-            manager.getGameManager().dispose();
-        }
-        managers.clear();
-
-        for (int i = 0; i < totalGames; i++) {
-            GameManager.Config config = new GameManager.Config();
-            config.id = i;
-            GameManager gameManager = new GameManager(events, config);
-            gameManager.nextLevel();
-            gameManager.setExtraLives(0);
-
-            PacmanNeatClient neatClient = new PacmanNeatClient(neat, neat.getClients().get(i));
-            neatClient.setGameManager(gameManager);
-            this.managers.add(neatClient);
-        }
-    }
-
     @Override
     public void render() {
 
@@ -204,73 +170,44 @@ public class Main extends ApplicationAdapter {
             fps = 0;
         }
 
-        // If all games are complete, reset
-        if (managers.stream().map(PacmanNeatClient::getGameCompleteFuture).allMatch(CompletableFuture::isDone)) {
-            reset();
-            System.out.println(neatPrinter.render());
-            neatSaver.save();
-            neat.evolve();
-        }
-
-        // Update games
-        List<Future<?>> futures = new ArrayList<>();
-        List<PacmanNeatClient> updatedManagers = new ArrayList<>();
-        for (PacmanNeatClient manager : managers) {
-            manager.setRenderNetwork(showNetworks);
-            if (manager.getGameCompleteFuture().isDone())
-                continue;
-
-            if (!paused) {
-                // Submit the update task and add to updatedManagers
-                Future<?> future = threadPool.submit(() -> {
-                    manager.getGameManager().update();
-                });
-                futures.add(future);
-                updatedManagers.add(manager);
-            }
-        }
-
-        // Wait for all games to be updated
-        for (Future<?> future : futures) {
-            try {
-                future.get();
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
-
-        // Call postUpdate() on the main thread for games that were updated
-        for (PacmanNeatClient manager : updatedManagers) {
-            manager.getGameManager().postUpdate();
+        // Update games, unless the workers are already updating them
+        if (USE_WORKERS) {
+            trainer.setPaused(paused);
+        } else if (!paused) {
+            trainer.update();
         }
 
         // Render everything
         ScreenUtils.clear(0, 0, 0, 1);
         batch.begin();
 
-        // Get a copy of the managers list and sort by score so the best are rendered first
-        List<PacmanNeatClient> sortedManagers = new ArrayList<>(managers);
-        sortedManagers.sort(Comparator.comparingInt(manager -> -manager.getGameManager().getScore()));
-
+        List<PacmanNeatClient> managers = trainer.getClients();
         int renderCount = 0;
         for (PacmanNeatClient manager : managers) {
+            manager.setRenderNetwork(showNetworks);
             if (manager.getGameCompleteFuture().isDone())
                 continue;
             if (renderCount >= visibleGames.x * visibleGames.y)
-                break;
+                continue;
 
             int gameX = renderCount % visibleGames.x;
             int gameY = renderCount / visibleGames.x;
             renderCount++;
 
             batch.setProjectionMatrix(camera.combined.cpy().translate(gameX * 8 * 28, gameY * 8 * 36, 0));
-            manager.render(batch);
+
+            // Workers update the game while holding its lock, see Trainer#getClients()
+            synchronized (manager.getGameManager()) {
+                manager.render(batch, renderer);
+            }
         }
         batch.end();
     }
 
     @Override
     public void dispose() {
+        trainer.shutdown();
+        renderer.dispose();
         batch.dispose();
     }
 }
@@ -9,7 +9,7 @@ import com.cjcrafter.neat.Client;
 import com.cjcrafter.neat.Neat;
 import com.cjcrafter.neat.genome.ConnectionGene;
 import com.cjcrafter.neat.genome.NodeGene;
-import com.buaisociety.pacman.util.Disposable;
+import com.buaisociety.pacman.render.GameRenderer;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -17,10 +17,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
-public class PacmanNeatClient implements Disposable {
-
-    private static final @NotNull Texture NODE_TEXTURE = createNodeTexture();
-    private static final @NotNull TextureRegion CONNECTION_TEXTURE = createConnectionTexture();
+public class PacmanNeatClient {
 
     private final @NotNull Neat neat;
     private final @NotNull Client client;
@@ -66,11 +63,11 @@ public class PacmanNeatClient implements Disposable {
         this.renderNetwork = renderNetwork;
     }
 
-    public void render(@NotNull SpriteBatch batch) {
+    public void render(@NotNull SpriteBatch batch, @NotNull GameRenderer renderer) {
         if (renderNetwork)
             renderNeuralNetwork(batch);
         else if (gameManager != null)
-            gameManager.render(batch);
+            renderer.render(batch, gameManager);
     }
 
     /**
@@ -102,7 +99,7 @@ public class PacmanNeatClient implements Disposable {
 
         float activation = getClient().getCalculator().getActivation(node.getId());
         batch.setColor(activation, activation, activation, 1f);
-        batch.draw(NODE_TEXTURE, x, y, nodeSize, nodeSize);
+        batch.draw(Textures.NODE, x, y, nodeSize, nodeSize);
         batch.setColor(Color.WHITE);  // reset tint
     }
 
@@ -122,7 +119,7 @@ public class PacmanNeatClient implements Disposable {
 
         float scale = Math.min(Math.abs(connection.getWeight()), 1f);
         batch.setColor(tint);
-        batch.draw(CONNECTION_TEXTURE, x1, y1, 0, 0.5f, distance, 1f, 1f, scale, angle);
+        batch.draw(Textures.CONNECTION, x1, y1, 0, 0.5f, distance, 1f, 1f, scale, angle);
         batch.setColor(Color.WHITE);  // reset tint
     }
 
@@ -146,11 +143,11 @@ public class PacmanNeatClient implements Disposable {
     }
 
     /**
-     * Disposes of the resources. Should be called when the object is deleted.
+     * Holds the textures, so they are only created once something is rendered.
+     * This lets clients be created without a graphics context (headless).
      */
-    @Override
-    public void dispose() {
-        if (gameManager != null)
-            gameManager.dispose();
+    private static final class Textures {
+        private static final @NotNull Texture NODE = createNodeTexture();
+        private static final @NotNull TextureRegion CONNECTION = createConnectionTexture();
     }
 }
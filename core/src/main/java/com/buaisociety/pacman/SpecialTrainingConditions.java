@@ -6,10 +6,10 @@ import com.buaisociety.pacman.event.EntityPreSpawnEvent;
 import com.buaisociety.pacman.maze.Maze;
 import com.buaisociety.pacman.maze.TileState;
 import com.buaisociety.pacman.util.EventListener;
+import com.buaisociety.pacman.util.GameRandom;
 import org.jetbrains.annotations.NotNull;
 import org.joml.Vector2ic;
 
-import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Just a quick utility class to help with your special training conditions.
@@ -39,19 +39,22 @@ public final class SpecialTrainingConditions {
         return event -> {
             Maze maze = event.getMaze();
 
+            // Use the game's own random source, so training is reproducible
+            GameRandom random = maze.getLevelManager().getRandom();
+
             // Go through each cell in the maze and try to remove pellets
             // During training, this is useful since the randomness will help
             // prevent overfitting
-            double pelletDensity = ThreadLocalRandom.current().nextDouble();
+            double pelletDensity = random.nextDouble();
             Vector2ic dimensions = maze.getDimensions();
             for (int x = 0; x < dimensions.x(); x++) {
                 for (int y = 0; y < dimensions.y(); y++) {
-                    TileState tileState = maze.getTile(x, y).getState();
+                    TileState tileState = maze.getTileState(x, y);
                     if (tileState != TileState.PELLET && tileState != TileState.POWER_PELLET)
                         continue;
 
-                    if (ThreadLocalRandom.current().nextDouble() < pelletDensity) {
-                        maze.getTile(x, y).setState(TileState.SPACE);
+                    if (random.nextDouble() < pelletDensity) {
+                        maze.setTileState(x, y, TileState.SPACE);
                     }
                 }
             }
@@ -60,7 +63,7 @@ public final class SpecialTrainingConditions {
             maze.initTiles();
 
             // spawn in a fruit by default to help Pacman learn to eat them
-            if (ThreadLocalRandom.current().nextDouble() < 0.75) {
+            if (random.nextDouble() < 0.75) {
                 maze.spawnFruit();
             }
         };
@@ -3,6 +3,7 @@ package com.buaisociety.pacman;
 import com.badlogic.gdx.ApplicationAdapter;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Graphics;
+import com.badlogic.gdx.Input;
 import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.utils.ScreenUtils;
@@ -10,10 +11,13 @@ import com.badlogic.gdx.utils.viewport.FitViewport;
 import com.buaisociety.pacman.entity.EntityType;
 import com.buaisociety.pacman.entity.PacmanEntity;
 import com.buaisociety.pacman.entity.behavior.Behavior;
+import com.buaisociety.pacman.entity.behavior.JoystickInputBehavior;
 import com.buaisociety.pacman.entity.behavior.TournamentBehavior;
 import com.buaisociety.pacman.event.EntityPreSpawnEvent;
+import com.buaisociety.pacman.render.GameRenderer;
 import com.buaisociety.pacman.util.EventListener;
 import com.buaisociety.pacman.util.EventSystem;
+import com.buaisociety.pacman.util.Joystick;
 import com.cjcrafter.neat.compute.SimpleCalculator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.jetbrains.annotations.NotNull;
@@ -31,6 +35,7 @@ public class Tournament extends ApplicationAdapter {
     private SpriteBatch batch;
     private OrthographicCamera camera;
     private FitViewport viewport;
+    private GameRenderer renderer;
 
     private final EventSystem events = new EventSystem();
     private GameManager gameManager;
@@ -66,21 +71,27 @@ public class Tournament extends ApplicationAdapter {
 
     @Override
     public void create() {
+        // Without a neural network, pacman is controlled by the keyboard
+        Joystick joystick = new Joystick();
+        Gdx.input.setInputProcessor(joystick);
+
         // Whenever a new pacman is created, make sure it uses the neural network
         events.registerListener(EntityPreSpawnEvent.class, new EventListener<>() {
             Behavior neuralNetworkBehavior = setupBehavior();
 
             @Override
             public void onEvent(@NotNull EntityPreSpawnEvent event) {
+                if (event.getEntityType() != EntityType.PACMAN)
+                    return;
+
+                PacmanEntity.Config config = (PacmanEntity.Config) event.getConfig();
                 if (neuralNetworkBehavior == null) {
                     System.err.println("Could not find any behavior");
+                    config.behavior = new JoystickInputBehavior(joystick);
                     return;
                 }
 
-                if (event.getEntityType() == EntityType.PACMAN) {
-                    PacmanEntity.Config config = (PacmanEntity.Config) event.getConfig();
-                    config.behavior = neuralNetworkBehavior;
-                }
+                config.behavior = neuralNetworkBehavior;
             }
         });
 
@@ -91,6 +102,7 @@ public class Tournament extends ApplicationAdapter {
         viewport.apply(true);  // Center the camera
 
         batch = new SpriteBatch();
+        renderer = new GameRenderer();
 
         GameManager.Config config = new GameManager.Config();
         config.handicap = 8;
@@ -119,6 +131,11 @@ public class Tournament extends ApplicationAdapter {
             fps = 0;
         }
 
+        // Let people press any button to restart the game
+        if (gameManager.isGameOver() && Gdx.input.isKeyJustPressed(Input.Keys.ANY_KEY)) {
+            gameManager.restart();
+        }
+
         gameManager.update();
         gameManager.postUpdate();
         ScreenUtils.clear(0, 0, 0, 1);
@@ -130,7 +147,7 @@ public class Tournament extends ApplicationAdapter {
         batch.setProjectionMatrix(camera.combined);
 
         batch.begin();
-        gameManager.render(batch);
+        renderer.render(batch, gameManager);
         batch.end();
     }
 
@@ -141,6 +158,7 @@ public class Tournament extends ApplicationAdapter {
 
     @Override
     public void dispose() {
+        renderer.dispose();
         batch.dispose();
     }
 }
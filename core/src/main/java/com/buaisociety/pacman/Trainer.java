@@ -0,0 +1,602 @@
+package com.buaisociety.pacman;
+
+import com.buaisociety.pacman.entity.EntityType;
+import com.buaisociety.pacman.entity.PacmanEntity;
+import com.buaisociety.pacman.entity.behavior.NeatPacmanBehavior;
+import com.buaisociety.pacman.event.CreateMazeEvent;
+import com.buaisociety.pacman.event.EntityPreSpawnEvent;
+import com.buaisociety.pacman.event.GameEndEvent;
+import com.buaisociety.pacman.replay.Replay;
+import com.buaisociety.pacman.replay.ReplayArchive;
+import com.buaisociety.pacman.util.EventSystem;
+import com.cjcrafter.neat.Neat;
+import com.cjcrafter.neat.NeatPrinter;
+import com.cjcrafter.neat.NeatSaver;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs the training loop for the NEAT algorithm. Every client plays its own
+ * game of pacman, and the games are updated in a thread pool to allow for
+ * multiple games to be updated at once. The NEAT algorithm is evolved when all
+ * games are complete, and saved to a file after each evolution.
+ *
+ * <p>Games can be updated in 2 ways. {@link #update()} updates every game by
+ * 1 tick and waits for all of them, which ties training to the caller's loop
+ * (e.g. 1 tick per frame). {@link #startWorkers(int)} instead gives each
+ * worker thread a shard of the games, which it updates tick after tick until
+ * they end. The workers only wait for each other at the end of a generation.
+ *
+ * <p>The trainer never renders anything, so it can run without a graphics
+ * context. {@link Main} draws some of the games on top of a trainer.
+ */
+public class Trainer {
+
+    private final @NotNull EventSystem events = new EventSystem();
+    private final @NotNull List<PacmanNeatClient> managers = new ArrayList<>();
+    private volatile @NotNull List<PacmanNeatClient> clients = List.of();  // copy of managers, see #getClients()
+    private final @NotNull List<Replay> replays = new ArrayList<>();
+    private final @NotNull Neat neat;
+    private final @NotNull NeatPrinter neatPrinter;
+    private final @NotNull NeatSaver neatSaver;
+    private @Nullable ExecutorService threadPool;  // only used by update(), created on the first call
+    private final int totalGames;
+    private final @NotNull NeatPacmanBehavior[] behaviors;  // the behavior of the current level of each game
+    private final @NotNull Checkpoint.Game[] resumed;  // behavior states to restore, by game id
+    private boolean skipIdleTicks;
+    private @Nullable ReplayArchive replayArchive;
+    private @Nullable Thread[] workers;
+    private @Nullable CyclicBarrier generationEnd;
+    private volatile boolean paused;
+    private volatile boolean stopping;
+    private int episode;  // the number of times reset() was called, to vary the games
+
+    private @Nullable File checkpointFolder;
+    private long checkpointInterval;
+    private volatile long lastCheckpoint;
+    private @Nullable ExecutorService checkpointWriter;
+    private volatile @NotNull CompletableFuture<Void> checkpointTask = CompletableFuture.completedFuture(null);
+    private final @NotNull AtomicReference<PendingCheckpoint> pendingCheckpoint = new AtomicReference<>();  // see #checkpointIfDue
+
+    public Trainer(@NotNull Neat neat, @NotNull File saveFolder, int totalGames) {
+        this(neat, saveFolder, totalGames, null);
+    }
+
+    private Trainer(@NotNull Neat neat, @NotNull File saveFolder, int totalGames, @Nullable Checkpoint checkpoint) {
+        this.neat = neat;
+        this.neatPrinter = new NeatPrinter(neat);
+        this.neatSaver = new NeatSaver(neat, saveFolder);
+        this.totalGames = totalGames;
+        this.behaviors = new NeatPacmanBehavior[totalGames];
+        this.resumed = new Checkpoint.Game[totalGames];
+
+        // When all games have ended, reset
+        events.registerListener(GameEndEvent.class, event -> {
+            int id = event.getGameManager().getConfig().id;
+            if (replayArchive != null)
+                saveReplay(event.getGameManager());
+            managers.get(id).getGameCompleteFuture().complete(null);
+        });
+
+        // When a new pacman is created, set the behavior
+        events.registerListener(EntityPreSpawnEvent.class, event -> {
+            if (event.getEntityType() != EntityType.PACMAN)
+                return;
+
+            PacmanEntity.Config config = (PacmanEntity.Config) event.getConfig();
+            GameManager gameManager = event.getMaze().getLevelManager();
+            int id = gameManager.getConfig().id;
+            NeatPacmanBehavior behavior = new NeatPacmanBehavior(neat.getClients().get(id));
+
+            // When resuming, the pacman of the checkpointed level continues where it stopped
+            Checkpoint.Game game = resumed[id];
+            if (game != null && game.getLevel() == gameManager.getLevel()) {
+                try {
+                    behavior.readState(game.readBehavior());
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+                resumed[id] = null;
+            }
+
+            // Games are always recorded, for checkpoints and the replay archive
+            behaviors[id] = behavior;
+            config.behavior = replays.get(id).record(behavior);
+        });
+
+        events.registerListener(CreateMazeEvent.class, SpecialTrainingConditions.onCreateMaze());
+        events.registerListener(EntityPreSpawnEvent.class, SpecialTrainingConditions.onEntityPreSpawn());
+
+        if (checkpoint == null)
+            reset();
+        else
+            resume(checkpoint);
+    }
+
+    /**
+     * Creates a trainer that continues the generation saved in the given
+     * checkpoint folder, see {@link #setCheckpointFolder(File, long)}. The
+     * running games are caught up by playing back their replays, so they
+     * continue exactly where they stopped.
+     *
+     * @param checkpointFolder the folder with the checkpoint
+     * @param saveFolder the folder to save the population to after each generation
+     * @return the resumed trainer
+     * @throws IOException if the checkpoint cannot be read
+     */
+    public static @NotNull Trainer resume(@NotNull File checkpointFolder, @NotNull File saveFolder) throws IOException {
+        Checkpoint checkpoint = Checkpoint.read(checkpointFolder);
+        Neat neat = checkpoint.readPopulation(checkpointFolder);
+        return new Trainer(neat, saveFolder, checkpoint.getGames().size(), checkpoint);
+    }
+
+    public @NotNull Neat getNeat() {
+        return neat;
+    }
+
+    /**
+     * Returns the clients of the current generation, ordered by game id.
+     *
+     * <p>While {@link #startWorkers(int) workers} are running, each game is
+     * updated while its {@link GameManager} is locked. Synchronize on the
+     * game manager to read a consistent state of the game (e.g. to draw it).
+     *
+     * @return the clients of the current generation
+     */
+    public @NotNull List<PacmanNeatClient> getClients() {
+        return clients;
+    }
+
+    /**
+     * Sets whether {@link #update()} should skip the ticks where games are
+     * frozen (e.g. "READY!" at the start of each level). This makes training
+     * faster, but the games will jump ahead when they are drawn.
+     *
+     * @param skipIdleTicks true to skip idle ticks
+     */
+    public void setSkipIdleTicks(boolean skipIdleTicks) {
+        this.skipIdleTicks = skipIdleTicks;
+    }
+
+    /**
+     * Sets the archive to save a {@link Replay} of every game to, or
+     * <code>null</code> to stop saving. Replays are indexed by episode
+     * (generation) and game id, and are written in the background when each
+     * game ends.
+     *
+     * @param replayArchive the archive to save replays to, or <code>null</code>
+     */
+    public void setReplayArchive(@Nullable ReplayArchive replayArchive) {
+        this.replayArchive = replayArchive;
+    }
+
+    private void saveReplay(@NotNull GameManager gameManager) {
+        Replay replay = replays.get(gameManager.getConfig().id);
+        replay.finish(gameManager);
+        replayArchive.append(replay).exceptionally(e -> {
+            System.err.println("Could not save replay for game " + gameManager.getConfig().id + ": " + e.getMessage());
+            return null;
+        });
+    }
+
+    /**
+     * Saves the state of every game to the given folder every
+     * <code>intervalMillis</code>, so that the generation can be continued
+     * with {@link #resume(File, File)} after a crash. The games are copied
+     * between ticks, and written to disk on a background thread. The
+     * population is saved at the start of each generation.
+     *
+     * @param checkpointFolder the folder to save checkpoints to, or <code>null</code> to stop
+     * @param intervalMillis the time between checkpoints, in milliseconds
+     */
+    public void setCheckpointFolder(@Nullable File checkpointFolder, long intervalMillis) {
+        this.checkpointFolder = checkpointFolder;
+        this.checkpointInterval = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        if (checkpointFolder == null)
+            return;
+
+        if (checkpointWriter == null) {
+            checkpointWriter = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Checkpoint Writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        savePopulation();
+        checkpoint();
+    }
+
+    private int getCurrentEpisode() {
+        return managers.get(0).getGameManager().getConfig().episode;
+    }
+
+    private void savePopulation() {
+        File folder = Checkpoint.getPopulationFolder(checkpointFolder, getCurrentEpisode());
+        folder.mkdirs();
+        new NeatSaver(neat, folder).save();
+    }
+
+    /**
+     * Copies the state of every game, and writes it on the checkpoint thread.
+     */
+    private void checkpoint() {
+        lastCheckpoint = System.nanoTime();
+        PendingCheckpoint checkpoint = new PendingCheckpoint(getCurrentEpisode(), managers.size(), 1);
+        copyShard(checkpoint, 0, 1);
+    }
+
+    /**
+     * Saves a checkpoint if the interval has passed since the last one. A
+     * checkpoint is skipped while the previous one is still being written.
+     *
+     * <p>The games are split into shards like the {@link #startWorkers(int)
+     * workers} split them. The first shard to find a checkpoint due starts
+     * it, and every shard copies its own games the next time it gets here,
+     * between its own ticks. So no shard waits for another, and the last one
+     * to copy its games hands the checkpoint to the writer.
+     *
+     * @param shard the index of the shard of the caller
+     * @param shardCount the number of shards
+     */
+    private void checkpointIfDue(int shard, int shardCount) {
+        if (checkpointFolder == null)
+            return;
+
+        PendingCheckpoint checkpoint = pendingCheckpoint.get();
+        if (checkpoint == null) {
+            if (System.nanoTime() - lastCheckpoint < checkpointInterval || !checkpointTask.isDone())
+                return;
+
+            checkpoint = new PendingCheckpoint(getCurrentEpisode(), managers.size(), shardCount);
+            if (!pendingCheckpoint.compareAndSet(null, checkpoint))
+                return;  // another shard started one first, join it next time
+            lastCheckpoint = System.nanoTime();
+        }
+
+        if (checkpoint.copied[shard])
+            return;
+        checkpoint.copied[shard] = true;
+        copyShard(checkpoint, shard, shardCount);
+    }
+
+    /**
+     * Copies the games of 1 shard into the checkpoint, and writes the
+     * checkpoint on the checkpoint thread once every shard has been copied.
+     */
+    private void copyShard(@NotNull PendingCheckpoint checkpoint, int shard, int shardCount) {
+        try {
+            for (int i = shard; i < managers.size(); i += shardCount) {
+                PacmanNeatClient manager = managers.get(i);
+
+                // The game may be drawn meanwhile, see getClients()
+                synchronized (manager.getGameManager()) {
+                    ByteArrayOutputStream replay = new ByteArrayOutputStream();
+                    replays.get(i).write(replay);
+                    ByteArrayOutputStream behavior = new ByteArrayOutputStream();
+                    behaviors[i].writeState(new DataOutputStream(behavior));
+
+                    boolean finished = manager.getGameCompleteFuture().isDone();
+                    int level = manager.getGameManager().getLevel();
+                    checkpoint.games[i] = new Checkpoint.Game(finished, level, replay.toByteArray(), behavior.toByteArray());
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);  // cannot happen, writes to memory
+        }
+
+        if (checkpoint.shardsLeft.decrementAndGet() > 0)
+            return;
+        pendingCheckpoint.compareAndSet(checkpoint, null);
+
+        Checkpoint complete = new Checkpoint(checkpoint.episode, Arrays.asList(checkpoint.games));
+        File folder = checkpointFolder;
+        checkpointTask = CompletableFuture.runAsync(() -> {
+            try {
+                complete.write(folder);
+            } catch (IOException e) {
+                System.err.println("Could not save checkpoint: " + e.getMessage());
+            }
+        }, checkpointWriter);
+    }
+
+    /**
+     * Recreates the games of a checkpoint, and plays back their replays until
+     * they are where they were when the checkpoint was saved.
+     */
+    private void resume(@NotNull Checkpoint checkpoint) {
+        managers.clear();
+        replays.clear();
+
+        try {
+            for (int i = 0; i < totalGames; i++) {
+                Checkpoint.Game game = checkpoint.getGames().get(i);
+                Replay replay = game.readReplay();
+                replays.add(replay);
+                GameManager gameManager = new GameManager(events, replay.getConfig());
+
+                PacmanNeatClient neatClient = new PacmanNeatClient(neat, neat.getClients().get(i));
+                neatClient.setGameManager(gameManager);
+                this.managers.add(neatClient);
+
+                // Finished games only need the score of their client
+                if (game.isFinished()) {
+                    behaviors[i] = new NeatPacmanBehavior(neat.getClients().get(i));
+                    behaviors[i].readState(game.readBehavior());
+                    neatClient.getGameCompleteFuture().complete(null);
+                    continue;
+                }
+
+                resumed[i] = game;
+                gameManager.nextLevel();
+                while (replay.isPlayingBack() && !neatClient.getGameCompleteFuture().isDone()) {
+                    gameManager.advanceUntilNextEvent();
+                    gameManager.update();
+                    gameManager.postUpdate();
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not resume from checkpoint", e);
+        }
+        episode = checkpoint.getEpisode() + 1;
+        clients = List.copyOf(managers);
+        System.out.println("Resumed episode " + checkpoint.getEpisode() + " from checkpoint");
+    }
+
+    /**
+     * Creates a new game for every client.
+     */
+    public void reset() {
+        managers.clear();
+        replays.clear();
+
+        for (int i = 0; i < totalGames; i++) {
+            GameManager.Config config = new GameManager.Config();
+            config.id = i;
+            config.episode = episode;
+            config.startLives = 0;  // each client only gets 1 life
+            replays.add(new Replay(config));
+            GameManager gameManager = new GameManager(events, config);
+            gameManager.nextLevel();
+
+            PacmanNeatClient neatClient = new PacmanNeatClient(neat, neat.getClients().get(i));
+            neatClient.setGameManager(gameManager);
+            this.managers.add(neatClient);
+        }
+        episode++;
+        clients = List.copyOf(managers);
+    }
+
+    /**
+     * Evolves the NEAT algorithm after all games are complete, and starts new
+     * games for the next generation.
+     */
+    private void nextGeneration() {
+        // A checkpoint that not every shard copied yet would mix 2 generations
+        pendingCheckpoint.set(null);
+        reset();
+        System.out.println(neatPrinter.render());
+        neatSaver.save();
+        neat.evolve();
+        if (checkpointFolder != null) {
+            savePopulation();
+            checkpoint();
+        }
+    }
+
+    /**
+     * Updates every game that is still running by 1 tick. If all games are
+     * complete, the NEAT algorithm is evolved and new games are started.
+     *
+     * @throws IllegalStateException if {@link #startWorkers(int) workers} are updating the games
+     */
+    public void update() {
+        if (workers != null)
+            throw new IllegalStateException("Games are updated by the workers, see startWorkers(int)");
+
+        ExecutorService threadPool = this.threadPool;
+        if (threadPool == null) {
+            int processors = Runtime.getRuntime().availableProcessors();
+            threadPool = Executors.newFixedThreadPool(processors);
+            this.threadPool = threadPool;
+            System.out.println("Using " + processors + " threads");
+        }
+
+        // If all games are complete, reset
+        if (managers.stream().map(PacmanNeatClient::getGameCompleteFuture).allMatch(CompletableFuture::isDone)) {
+            nextGeneration();
+        }
+
+        // Update games
+        List<Future<?>> futures = new ArrayList<>();
+        List<PacmanNeatClient> updatedManagers = new ArrayList<>();
+        for (PacmanNeatClient manager : managers) {
+            if (manager.getGameCompleteFuture().isDone())
+                continue;
+
+            // Submit the update task and add to updatedManagers
+            Future<?> future = threadPool.submit(() -> {
+                GameManager gameManager = manager.getGameManager();
+                if (skipIdleTicks)
+                    gameManager.advanceUntilNextEvent();
+                gameManager.update();
+            });
+            futures.add(future);
+            updatedManagers.add(manager);
+        }
+
+        // Wait for all games to be updated
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+
+        // Call postUpdate() on this thread for games that were updated
+        for (PacmanNeatClient manager : updatedManagers) {
+            manager.getGameManager().postUpdate();
+        }
+
+        checkpointIfDue(0, 1);
+    }
+
+    /**
+     * Starts updating the games on long-lived worker threads, instead of
+     * {@link #update()}. Game <code>i</code> belongs to worker
+     * <code>i % workerCount</code>, which updates its games 1 tick at a time
+     * (including {@link GameManager#postUpdate()}) until they have all ended.
+     * Once every game has ended, the last worker to finish evolves the NEAT
+     * algorithm and all workers continue with the next generation.
+     *
+     * @param workerCount the number of worker threads, usually 1 per processor
+     * @throws IllegalArgumentException if <code>workerCount</code> is less than 1
+     * @throws IllegalStateException if the workers were already started
+     */
+    public void startWorkers(int workerCount) {
+        if (workerCount < 1)
+            throw new IllegalArgumentException("Need at least 1 worker, got " + workerCount);
+        if (workers != null)
+            throw new IllegalStateException("Workers were already started");
+
+        generationEnd = new CyclicBarrier(workerCount, this::nextGeneration);
+        workers = new Thread[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            int index = i;
+            Thread worker = new Thread(() -> runWorker(index, workerCount), "Simulation Worker " + i);
+            worker.setDaemon(true);
+            workers[i] = worker;
+        }
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        System.out.println("Using " + workerCount + " workers");
+    }
+
+    /**
+     * Pauses or resumes the {@link #startWorkers(int) workers}. Paused workers
+     * finish the tick they are on, then wait.
+     *
+     * @param paused true to pause the workers
+     */
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+    }
+
+    /**
+     * Waits until the {@link #startWorkers(int) workers} stop, which is after
+     * {@link #shutdown()} is called. Returns immediately if no workers were
+     * started.
+     *
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public void awaitWorkers() throws InterruptedException {
+        if (workers == null)
+            return;
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    private void runWorker(int index, int workerCount) {
+        try {
+            while (!stopping) {
+                // The game list only changes while every worker waits on generationEnd
+                boolean running = false;
+                for (int i = index; i < managers.size(); i += workerCount) {
+                    PacmanNeatClient manager = managers.get(i);
+                    if (manager.getGameCompleteFuture().isDone())
+                        continue;
+
+                    running = true;
+                    tick(manager);
+                }
+
+                // Copy this shard for a pending checkpoint, even once its games have ended
+                checkpointIfDue(index, workerCount);
+                if (!running)
+                    generationEnd.await();
+
+                while (paused && !stopping) {
+                    Thread.sleep(10);
+                }
+            }
+        } catch (InterruptedException | BrokenBarrierException e) {
+            // shutdown() interrupts the workers
+        }
+    }
+
+    private void tick(@NotNull PacmanNeatClient manager) {
+        GameManager gameManager = manager.getGameManager();
+        synchronized (gameManager) {
+            try {
+                if (skipIdleTicks)
+                    gameManager.advanceUntilNextEvent();
+                gameManager.update();
+                gameManager.postUpdate();
+            } catch (Exception e) {
+                // End the game, or the generation would never finish
+                e.printStackTrace();
+                manager.getGameCompleteFuture().completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * A checkpoint that the shards of the games are still being copied into,
+     * see {@link #checkpointIfDue(int, int)}.
+     */
+    private static final class PendingCheckpoint {
+
+        private final int episode;
+        private final @NotNull Checkpoint.Game[] games;
+        private final boolean[] copied;  // per shard, only written by the thread of that shard
+        private final @NotNull AtomicInteger shardsLeft;
+
+        private PendingCheckpoint(int episode, int gameCount, int shardCount) {
+            this.episode = episode;
+            this.games = new Checkpoint.Game[gameCount];
+            this.copied = new boolean[shardCount];
+            this.shardsLeft = new AtomicInteger(shardCount);
+        }
+    }
+
+    /**
+     * Stops the threads used to update the games. Workers finish the tick (or
+     * the end of the generation) they are on first.
+     */
+    public void shutdown() {
+        stopping = true;
+        if (workers != null) {
+            for (Thread worker : workers) {
+                worker.interrupt();
+            }
+            try {
+                awaitWorkers();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (threadPool != null)
+            threadPool.shutdown();
+        if (checkpointWriter != null)
+            checkpointWriter.shutdown();
+    }
+}
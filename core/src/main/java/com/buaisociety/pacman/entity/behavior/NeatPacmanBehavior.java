@@ -9,6 +9,9 @@ import com.buaisociety.pacman.entity.Direction;
 import com.buaisociety.pacman.entity.Entity;
 import com.buaisociety.pacman.entity.PacmanEntity;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.LinkedList;
@@ -18,9 +21,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.joml.Vector2d;
 
-import com.buaisociety.pacman.maze.Tile;
-
-public class NeatPacmanBehavior implements Behavior {
+public class NeatPacmanBehavior implements RenderableBehavior {
 
     private final @NotNull Client client;
     private @Nullable PacmanEntity pacman;
@@ -36,6 +37,7 @@ public class NeatPacmanBehavior implements Behavior {
     private int pelletCount = 0;
     private int samePelletCountTimes = 0;
     private double lastPelletDistance = 0.00;
+    private double fitness = 0.00;  // the last score given to the client
 
     public NeatPacmanBehavior(@NotNull Client client) {
         this.client = client;
@@ -54,7 +56,7 @@ public class NeatPacmanBehavior implements Behavior {
             pacman = (PacmanEntity) entity;
         }
 
-        int totalScore = pacman.getMaze().getLevelManager().getScore();
+        int totalScore = pacman.getMaze().getLevelManager().getScore(pacman.getPlayer());
 
         // SPECIAL TRAINING CONDITIONS
         // TODO: Make changes here to help with your training...
@@ -100,7 +102,7 @@ public class NeatPacmanBehavior implements Behavior {
         //     }
         // }
         // scoreModifier *= (1 - closestPelletDistance * 0.001);
-        int newScore = pacman.getMaze().getLevelManager().getScore();
+        int newScore = pacman.getMaze().getLevelManager().getScore(pacman.getPlayer());
         if (newScore != lastScore) {
             lastScore = newScore;
             numberUpdatesSinceLastScore = 0;
@@ -145,18 +147,8 @@ public class NeatPacmanBehavior implements Behavior {
             pacman.kill();
             return Direction.UP;
         }
-        Tile[][] tiles = maze.getTiles();
-        double closestPelletDistance = Double.MAX_VALUE;
-        // Get closest pellet distance
-        for (Tile[] row : tiles) {
-            for (Tile tile : row) {
-                double dx = tile.getPosition().x() - pacmanposition.x;
-                double dy = tile.getPosition().y() - pacmanposition.y;
-                if (closestPelletDistance > Math.sqrt(dx * dx + dy * dy)) {
-                    closestPelletDistance = Math.sqrt(dx * dx + dy * dy);
-                }
-            }
-        }
+        // Get closest pellet distance, in tiles along the corridors (not through walls)
+        double closestPelletDistance = Math.max(0, maze.getClosestPelletDistance(pacman.getTileX(), pacman.getTileY()));
         // if (lastPelletDistance >= closestPelletDistance) {
         //     pacman.kill();
         //     return Direction.UP;
@@ -206,10 +198,59 @@ public class NeatPacmanBehavior implements Behavior {
         };
 
         // client.setScore(pacman.getMaze().getLevelManager().getScore() + scoreModifier);
-        client.setScore(totalScore);
+        fitness = totalScore;
+        client.setScore(fitness);
         return newDirection;
     }
 
+    /**
+     * Writes the training state of this behavior (counters, recent positions
+     * and the client's score), so a checkpointed game can continue exactly
+     * where it stopped. Add new fields here when adding new conditions.
+     *
+     * @param out the stream to write to
+     * @throws IOException if the stream cannot be written
+     */
+    public void writeState(@NotNull DataOutputStream out) throws IOException {
+        out.writeInt(scoreModifier);
+        out.writeInt(numberUpdatesSinceLastScore);
+        out.writeInt(lastScore);
+        out.writeInt(lastPositions.size());
+        for (Vector2d position : lastPositions) {
+            out.writeDouble(position.x);
+            out.writeDouble(position.y);
+        }
+        out.writeInt(countOverlapPosition);
+        out.writeInt(pelletCount);
+        out.writeInt(samePelletCountTimes);
+        out.writeDouble(lastPelletDistance);
+        out.writeDouble(fitness);
+    }
+
+    /**
+     * Reads the state written by {@link #writeState(DataOutputStream)}, and
+     * gives the client its score back.
+     *
+     * @param in the stream to read from
+     * @throws IOException if the stream cannot be read
+     */
+    public void readState(@NotNull DataInputStream in) throws IOException {
+        scoreModifier = in.readInt();
+        numberUpdatesSinceLastScore = in.readInt();
+        lastScore = in.readInt();
+        lastPositions.clear();
+        int positions = in.readInt();
+        for (int i = 0; i < positions; i++) {
+            lastPositions.add(new Vector2d(in.readDouble(), in.readDouble()));
+        }
+        countOverlapPosition = in.readInt();
+        pelletCount = in.readInt();
+        samePelletCountTimes = in.readInt();
+        lastPelletDistance = in.readDouble();
+        fitness = in.readDouble();
+        client.setScore(fitness);
+    }
+
     @Override
     public void render(@NotNull SpriteBatch batch) {
         // TODO: You can render debug information here
@@ -0,0 +1,25 @@
+package com.buaisociety.pacman.entity.behavior;
+
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A {@link Behavior} that can draw debug information on top of the maze.
+ *
+ * <p>Behaviors themselves live in the headless simulation, so only behaviors
+ * that need to draw something should implement this interface.
+ */
+public interface RenderableBehavior extends Behavior {
+
+    /**
+     * Renders the behavior, if applicable.
+     *
+     * <p>This is typically only used to debug the behavior. An entity's
+     * behavior is rendered BEFORE the entity is rendered (so the entity
+     * may be rendered on top of the behavior).
+     *
+     * @param batch the sprite batch to render with
+     */
+    default void render(@NotNull SpriteBatch batch) {
+    }
+}
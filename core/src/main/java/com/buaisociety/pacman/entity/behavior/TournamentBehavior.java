@@ -4,7 +4,6 @@ import com.buaisociety.pacman.entity.Direction;
 import com.buaisociety.pacman.entity.Entity;
 import com.buaisociety.pacman.entity.PacmanEntity;
 import com.buaisociety.pacman.maze.Maze;
-import com.buaisociety.pacman.maze.Tile;
 import com.cjcrafter.neat.compute.Calculator;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -35,7 +34,7 @@ public class TournamentBehavior implements Behavior {
             pacman = (PacmanEntity) entity;
         }
 
-        int newScore = pacman.getMaze().getLevelManager().getScore();
+        int newScore = pacman.getMaze().getLevelManager().getScore(pacman.getPlayer());
         if (previousScore != newScore) {
             previousScore = newScore;
             framesSinceScoreUpdate = 0;
@@ -64,18 +63,8 @@ public class TournamentBehavior implements Behavior {
         boolean canMoveBehind = pacman.canMove(behind);
 
         Maze maze = pacman.getMaze();
-        Tile[][] tiles = maze.getTiles();
-        double closestPelletDistance = Double.MAX_VALUE;
-        // Get closest pellet distance
-        for (Tile[] row : tiles) {
-            for (Tile tile : row) {
-                double dx = tile.getPosition().x() - pacman.getPosition().x;
-                double dy = tile.getPosition().y() - pacman.getPosition().y;
-                if (closestPelletDistance > Math.sqrt(dx * dx + dy * dy)) {
-                    closestPelletDistance = Math.sqrt(dx * dx + dy * dy);
-                }
-            }
-        }
+        // Get closest pellet distance, in tiles along the corridors (not through walls)
+        double closestPelletDistance = Math.max(0, maze.getClosestPelletDistance(pacman.getTileX(), pacman.getTileY()));
 
         float[] inputs = new float[] {
             // TODO: Add your inputs here
@@ -0,0 +1,72 @@
+package com.buaisociety.pacman.render;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.buaisociety.pacman.GameManager;
+import com.buaisociety.pacman.maze.Maze;
+import com.buaisociety.pacman.sprite.GrayscaleSpriteSheet;
+import com.buaisociety.pacman.sprite.TextSpriteSheet;
+import com.buaisociety.pacman.util.Disposable;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Draws the state of a {@link GameManager}; the current maze, the high score,
+ * and the number of lives remaining.
+ *
+ * <p>A single renderer can draw any number of games, so the textures are only
+ * loaded once no matter how many games are being simulated.
+ */
+public class GameRenderer implements Disposable {
+
+    private final @NotNull TextSpriteSheet textSprite;
+    private final @NotNull MazeRenderer mazeRenderer;
+
+    public GameRenderer() {
+        this.textSprite = new TextSpriteSheet(new GrayscaleSpriteSheet(new Texture("sprites/text-sprite.png"), 8));
+        this.textSprite.getSpriteSheet().setColors(Color.CLEAR, Color.WHITE);
+        this.mazeRenderer = new MazeRenderer(textSprite);
+    }
+
+    /**
+     * Renders the current maze, and the high score.
+     *
+     * @param batch the sprite batch to render to
+     * @param gameManager the game to render
+     */
+    public void render(@NotNull SpriteBatch batch, @NotNull GameManager gameManager) {
+        Maze maze = gameManager.getCurrentMaze();
+        if (maze == null)
+            return;
+
+        mazeRenderer.render(batch, maze);
+        textSprite.render(batch, Maze.TILE_SIZE * 9, Maze.TILE_SIZE * 35, "HIGH SCORE");
+
+        // Arcade Pacman only shows scores once Pacman has collected a dot
+        int score = gameManager.getScore();
+        if (score > 0) {
+            textSprite.renderRightAligned(batch, Maze.TILE_SIZE * 17, Maze.TILE_SIZE * 34, String.valueOf(score));
+        }
+
+        // Show the number of lives remaining
+        int extraLives = gameManager.getExtraLives();
+        for (int i = 0; i < extraLives; i++) {
+            mazeRenderer.renderLifeIcon(batch, Maze.TILE_SIZE * 2 + i * Maze.TILE_SIZE * 2, -1);
+        }
+
+        if (extraLives < 0) {
+            textSprite.getSpriteSheet().setColors(Color.CLEAR, Color.RED);
+            textSprite.render(batch, 76, 120, "GAME OVER");
+            textSprite.getSpriteSheet().setColors(Color.CLEAR, Color.WHITE);
+        }
+    }
+
+    /**
+     * Disposes of the resources. Should be called when the object is deleted.
+     */
+    @Override
+    public void dispose() {
+        mazeRenderer.dispose();
+        textSprite.dispose();
+    }
+}
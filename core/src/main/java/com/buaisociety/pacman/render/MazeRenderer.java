@@ -0,0 +1,246 @@
+package com.buaisociety.pacman.render;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.buaisociety.pacman.entity.Entity;
+import com.buaisociety.pacman.entity.EntityType;
+import com.buaisociety.pacman.entity.FruitEntity;
+import com.buaisociety.pacman.entity.GhostEntity;
+import com.buaisociety.pacman.entity.GhostState;
+import com.buaisociety.pacman.entity.PacmanEntity;
+import com.buaisociety.pacman.entity.behavior.RenderableBehavior;
+import com.buaisociety.pacman.maze.BonusPoints;
+import com.buaisociety.pacman.maze.Maze;
+import com.buaisociety.pacman.maze.TileState;
+import com.buaisociety.pacman.sprite.CutoutSpriteSheet;
+import com.buaisociety.pacman.sprite.GrayscaleSpriteSheet;
+import com.buaisociety.pacman.sprite.TextSpriteSheet;
+import com.buaisociety.pacman.util.Disposable;
+import org.jetbrains.annotations.NotNull;
+import org.joml.Vector2d;
+import org.joml.Vector2i;
+import org.joml.Vector2ic;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Draws a {@link Maze} and all of its entities.
+ *
+ * <p>The maze itself holds no graphics resources. All textures and shaders are
+ * owned by the renderer, and shared between every maze that it draws.
+ */
+public class MazeRenderer implements Disposable {
+
+    private static final @NotNull Color PELLET_COLOR = new Color(0xffb897ff);
+    private static final @NotNull Color FRUIT_BONUS_COLOR = new Color(0xffb7ffff);
+
+    private final @NotNull TextSpriteSheet textSprite;
+    private final @NotNull GrayscaleSpriteSheet pelletSprite;
+    private final @NotNull GrayscaleSpriteSheet powerPelletSprite;
+    private final @NotNull GrayscaleSpriteSheet pacmanSprite;
+    private final @NotNull GrayscaleSpriteSheet ghostSprite;
+    private final @NotNull CutoutSpriteSheet fruitSprite;
+    private final @NotNull GrayscaleSpriteSheet bonusPointsSprite;
+    private final @NotNull Map<String, Sprite> levelSprites;
+    private final @NotNull Map<int[], Color[]> colorCache;
+
+    public MazeRenderer(@NotNull TextSpriteSheet textSprite) {
+        this.textSprite = textSprite;
+        this.pelletSprite = new GrayscaleSpriteSheet(new Texture("sprites/pellet.png"), 8);
+        this.pelletSprite.setColors(Color.CLEAR, PELLET_COLOR);
+        this.powerPelletSprite = new GrayscaleSpriteSheet(new Texture("sprites/power-pellet.png"), 8);
+        this.powerPelletSprite.setColors(Color.CLEAR, PELLET_COLOR);
+
+        // This sprite sheet is 3x4 tiled sprite sheet, each tile is 20x20 pixels
+        this.pacmanSprite = new GrayscaleSpriteSheet(new Texture("sprites/pacman-sprite.png"), 20);
+        this.pacmanSprite.setColors(Color.CLEAR, Color.YELLOW);
+        this.ghostSprite = new GrayscaleSpriteSheet(new Texture("sprites/ghost-sprite.png"), 20);
+        this.fruitSprite = new CutoutSpriteSheet(new Texture("sprites/fruit-sprite.png"), 16);
+        this.bonusPointsSprite = new GrayscaleSpriteSheet(new Texture("sprites/bonus-points-sprite.png"), new Vector2i(8 * 4, 8 * 2));
+
+        this.levelSprites = new HashMap<>();
+        this.colorCache = new WeakHashMap<>();  // arrays use identity, so this is an identity cache
+    }
+
+    public void render(@NotNull SpriteBatch batch, @NotNull Maze maze) {
+        Sprite levelSprite = levelSprites.computeIfAbsent(maze.getName(),
+            name -> new Sprite(new Texture("mazes/" + name + "/render.png")));
+        batch.draw(levelSprite, 0, 0);
+
+        // Power pellets should flicker on and off
+        boolean flicker = maze.getTicks() % 20 < 10;
+
+        Vector2ic dimensions = maze.getDimensions();
+        for (int y = 0; y < dimensions.y(); y++) {
+            for (int x = 0; x < dimensions.x(); x++) {
+                TileState state = maze.getTileState(x, y);
+                if (state == TileState.PELLET) {
+                    pelletSprite.render(batch, x * Maze.TILE_SIZE, y * Maze.TILE_SIZE);
+                } else if (state == TileState.POWER_PELLET && flicker) {
+                    powerPelletSprite.render(batch, x * Maze.TILE_SIZE, y * Maze.TILE_SIZE);
+                }
+            }
+        }
+
+        // Render bonus points (from eating ghosts and fruits)
+        for (BonusPoints bonus : maze.getBonusPoints()) {
+            renderBonusPoints(batch, bonus);
+        }
+
+        if (maze.getGameStartTicks() > 0) {
+            textSprite.getSpriteSheet().setColors(Color.CLEAR, Color.YELLOW);
+            textSprite.render(batch, 88, 120, "READY!");
+            textSprite.getSpriteSheet().setColors(Color.CLEAR, Color.WHITE);
+        }
+
+        for (Entity entity : maze.getEntities()) {
+            switch (entity.getType()) {
+                case PACMAN -> renderPacman(batch, (PacmanEntity) entity);
+                case GHOST -> renderGhost(batch, (GhostEntity) entity);
+                case FRUIT -> renderFruit(batch, (FruitEntity) entity);
+            }
+        }
+    }
+
+    /**
+     * Renders the icon used to show the number of lives remaining.
+     *
+     * @param batch the sprite batch to render to
+     * @param x the x-coordinate, in pixels
+     * @param y the y-coordinate, in pixels
+     */
+    public void renderLifeIcon(@NotNull SpriteBatch batch, int x, int y) {
+        pacmanSprite.setCurrentTile(0, 2);
+        pacmanSprite.render(batch, x, y);
+    }
+
+    private void renderPacman(@NotNull SpriteBatch batch, @NotNull PacmanEntity pacman) {
+        // Debug information is rendered below pacman
+        if (pacman.getBehavior() instanceof RenderableBehavior renderable)
+            renderable.render(batch);
+
+        // Render the current tile of the sprite sheet
+        int row = pacman.getDirection().ordinal();
+        switch (pacman.getAnimationFrame() % 4) {
+            case 0 -> pacmanSprite.setCurrentTile(0, row);
+            case 1, 3 -> pacmanSprite.setCurrentTile(1, row);
+            case 2 -> pacmanSprite.setCurrentTile(2, row);
+        }
+        renderCentered(batch, pacmanSprite, pacman.getPosition());
+    }
+
+    private void renderGhost(@NotNull SpriteBatch batch, @NotNull GhostEntity ghost) {
+        GhostState state = ghost.getState();
+        Maze maze = ghost.getMaze();
+
+        // The colors change based on the state of the ghost
+        boolean flash = maze.getFrightenedTimer() < 100 && maze.getFrightenedTimer() % 20 < 10;
+        ghostSprite.setColors(toColors(ghost.getColors(state, flash)));
+
+        // ghost-sprite.png
+        int spriteX;
+        int spriteY;
+        int frame = ghost.getAnimationFrame();
+        if (state == GhostState.CHASE || state == GhostState.SCATTER) {
+            spriteX = ghost.getDirection().ordinal() * 2 + frame % 2;
+            spriteY = 0;
+        } else if (state == GhostState.FRIGHTENED) {
+            spriteX = frame % 2;
+            spriteY = 1;
+        } else {
+            spriteX = 2 + ghost.getDirection().ordinal();
+            spriteY = 1;
+        }
+
+        ghostSprite.setCurrentTile(spriteX, spriteY);
+        renderCentered(batch, ghostSprite, ghost.getPosition());
+    }
+
+    private void renderFruit(@NotNull SpriteBatch batch, @NotNull FruitEntity fruit) {
+        int fruitTileX = switch (fruit.getMaze().getLevelManager().getLevel()) {
+            case 1 -> 0;
+            case 2 -> 1;
+            case 3, 4 -> 2;
+            case 5, 6 -> 3;
+            case 7, 8 -> 4;
+            case 9, 10 -> 5;
+            case 11, 12 -> 6;
+            default -> 7;
+        };
+
+        Vector2d position = fruit.getPosition();
+        int pixelX = (int) position.x() - fruitSprite.getTileSize().x() / 2 + 1;
+        int pixelY = (int) position.y() - fruitSprite.getTileSize().y() / 2 + 1;
+        fruitSprite.setCurrentTile(fruitTileX, 0);
+        fruitSprite.render(batch, pixelX, pixelY);
+    }
+
+    private void renderBonusPoints(@NotNull SpriteBatch batch, @NotNull BonusPoints bonus) {
+        int spriteX;
+        double offsetY;
+        if (bonus.getSource() == EntityType.GHOST) {
+            // We only have sprites for 200, 400, 800, and 1600 points
+            spriteX = switch (bonus.getPoints()) {
+                case 200 -> 1;
+                case 400 -> 3;
+                case 800 -> 6;
+                default -> 8;
+            };
+            bonusPointsSprite.setColors(Color.CLEAR, Color.CYAN);
+
+            // Ghost points float upwards for the first few frames
+            offsetY = 3.0 * Math.min(bonus.getTicksAlive() + 1, 5);
+        } else {
+            spriteX = switch (bonus.getPoints()) {
+                case 100 -> 0;
+                case 300 -> 2;
+                case 500 -> 4;
+                case 700 -> 5;
+                case 1000 -> 7;
+                case 2000 -> 9;
+                case 3000 -> 10;
+                default -> 11;
+            };
+            bonusPointsSprite.setColors(Color.CLEAR, FRUIT_BONUS_COLOR);
+            offsetY = 0.0;
+        }
+
+        bonusPointsSprite.setCurrentTile(spriteX, 0);
+        Vector2d position = new Vector2d(bonus.getPosition()).add(0, offsetY);
+        renderCentered(batch, bonusPointsSprite, position);
+    }
+
+    private void renderCentered(@NotNull SpriteBatch batch, @NotNull GrayscaleSpriteSheet spriteSheet, @NotNull Vector2d position) {
+        int pixelX = (int) position.x() - spriteSheet.getTileSize().x() / 2 + 1;
+        int pixelY = (int) position.y() - spriteSheet.getTileSize().y() / 2 + 1;
+        spriteSheet.render(batch, pixelX, pixelY);
+    }
+
+    private @NotNull Color[] toColors(int[] rgba8888) {
+        return colorCache.computeIfAbsent(rgba8888, colors -> {
+            Color[] converted = new Color[colors.length];
+            for (int i = 0; i < colors.length; i++) {
+                converted[i] = new Color(colors[i]);
+            }
+            return converted;
+        });
+    }
+
+    @Override
+    public void dispose() {
+        for (Sprite levelSprite : levelSprites.values()) {
+            levelSprite.getTexture().dispose();
+        }
+        levelSprites.clear();
+        pelletSprite.dispose();
+        powerPelletSprite.dispose();
+        pacmanSprite.dispose();
+        ghostSprite.dispose();
+        fruitSprite.dispose();
+        bonusPointsSprite.dispose();
+    }
+}
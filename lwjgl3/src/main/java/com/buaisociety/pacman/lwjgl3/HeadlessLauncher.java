@@ -0,0 +1,14 @@
+package com.buaisociety.pacman.lwjgl3;
+
+import com.buaisociety.pacman.Main;
+import com.buaisociety.pacman.Trainer;
+
+/** Trains pacman without opening a window (e.g. on a server without a GPU). */
+public class HeadlessLauncher {
+    public static void main(String[] args) throws InterruptedException {
+        Trainer trainer = Main.createTrainer();
+        trainer.setSkipIdleTicks(true);
+        trainer.startWorkers(Runtime.getRuntime().availableProcessors());
+        trainer.awaitWorkers();
+    }
+}
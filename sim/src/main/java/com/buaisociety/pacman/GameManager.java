@@ -0,0 +1,519 @@
+package com.buaisociety.pacman;
+
+import com.buaisociety.pacman.entity.EntityType;
+import com.buaisociety.pacman.entity.GhostEntity;
+import com.buaisociety.pacman.entity.PacmanEntity;
+import com.buaisociety.pacman.event.CreateMazeEvent;
+import com.buaisociety.pacman.event.EntityPreSpawnEvent;
+import com.buaisociety.pacman.event.EntitySpawnEvent;
+import com.buaisociety.pacman.event.GameEndEvent;
+import com.buaisociety.pacman.event.LoseLifeEvent;
+import com.buaisociety.pacman.event.NextLevelEvent;
+import com.buaisociety.pacman.maze.Maze;
+import com.buaisociety.pacman.maze.MazeTemplate;
+import com.buaisociety.pacman.maze.TerminalReason;
+import com.buaisociety.pacman.util.EventSystem;
+import com.buaisociety.pacman.util.GameRandom;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.joml.Vector2i;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Handles moving between levels, and setting up the maze for each level.
+ *
+ * <p>The game manager never touches graphics resources, so games can be
+ * simulated headless (e.g. while training on a server).
+ *
+ * <p>A game may have several pacmen sharing 1 maze (see {@link Config#pacmen}),
+ * e.g. to evaluate several behaviors against the same ghosts at once. Each
+ * pacman is a player with its own score and lives, identified by
+ * {@link PacmanEntity#getPlayer()}. A player that dies respawns on its own,
+ * and is left out of the maze once it runs out of lives. If every pacman
+ * dies at the same time, the whole maze starts over, like in the original
+ * game. The game ends once every player is out of lives.
+ */
+public class GameManager {
+
+    private final @NotNull EventSystem events;
+    private final @NotNull Config config;
+
+    private int level;
+    private final int[] extraLives;  // per player
+    private final int[] scores;  // per player
+    private @Nullable Maze currentMaze;
+    private int episode;
+    private final @NotNull GameRandom random;
+
+    public GameManager(@NotNull EventSystem events, @NotNull Config config) {
+        if (config.pacmen < 1 || config.pacmen > Integer.SIZE)
+            throw new IllegalArgumentException("A maze must have between 1 and " + Integer.SIZE + " pacmen, got " + config.pacmen);
+
+        this.events = events;
+        this.config = config;
+        this.episode = config.episode;
+        this.random = createRandom(config.seed, config.id, episode);
+
+        this.level = config.startLevel;
+        this.extraLives = new int[config.pacmen];
+        this.scores = new int[config.pacmen];
+        Arrays.fill(extraLives, config.startLives);
+        Arrays.fill(scores, config.startScore);
+        this.currentMaze = null;
+    }
+
+    /**
+     * Returns the event system, in charge of firing and listening to events.
+     *
+     * @return the event system
+     */
+    public @NotNull EventSystem getEvents() {
+        return events;
+    }
+
+    /**
+     * Returns the configuration for the game manager. Each game has its own
+     * configuration.
+     *
+     * @return the configuration for the game manager
+     */
+    public @NotNull Config getConfig() {
+        return config;
+    }
+
+    /**
+     * Returns the source of randomness for this game. Everything random in a
+     * game (frightened ghosts, fruit timers, training conditions) should use
+     * this, so that a game plays out the same way no matter which thread
+     * updates it. Only use it from the thread that updates the game.
+     *
+     * @return the source of randomness
+     */
+    public @NotNull GameRandom getRandom() {
+        return random;
+    }
+
+    /**
+     * Creates the source of randomness for a game, see {@link #getRandom()}.
+     *
+     * @param seed the seed of the whole run
+     * @param id the id of the game
+     * @param episode the number of times the game was restarted
+     * @return a new source of randomness
+     */
+    public static @NotNull GameRandom createRandom(long seed, int id, int episode) {
+        return new GameRandom(randomSeed(seed, id, episode));
+    }
+
+    private static long randomSeed(long seed, int id, int episode) {
+        // Each part is mixed, so that neighbouring ids and episodes start far
+        // apart in the sequence, instead of a few values after each other
+        return GameRandom.mix64(GameRandom.mix64(seed ^ GameRandom.mix64(id)) ^ episode);
+    }
+
+    /**
+     * Returns the current level. 1 is the first level. 0 implies that no game
+     * has been started yet.
+     *
+     * @return the current level
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Returns the number of players (pacmen sharing the maze) in this game.
+     *
+     * @return the number of players
+     */
+    public int getPlayerCount() {
+        return scores.length;
+    }
+
+    /**
+     * Returns the current score of the first player, which is the only player
+     * unless {@link Config#pacmen} is set.
+     *
+     * @return the current score
+     */
+    public int getScore() {
+        return scores[0];
+    }
+
+    /**
+     * Returns the current score of the given player.
+     *
+     * @param player the player, see {@link PacmanEntity#getPlayer()}
+     * @return the current score of the player
+     */
+    public int getScore(int player) {
+        return scores[player];
+    }
+
+    /**
+     * Increments the score of the first player by the given amount.
+     *
+     * @param score the amount to increment the score by
+     */
+    public void incrementScore(int score) {
+        incrementScore(0, score);
+    }
+
+    /**
+     * Increments the score of the given player by the given amount.
+     *
+     * @param player the player, see {@link PacmanEntity#getPlayer()}
+     * @param score the amount to increment the score by
+     */
+    public void incrementScore(int player, int score) {
+        int oldScore = scores[player];
+        scores[player] += score;
+
+        // Every time we pass a multiple of 10,000 points, add a new life
+        if (oldScore / 10000 != scores[player] / 10000) {
+            extraLives[player]++;
+        }
+    }
+
+    /**
+     * Returns the number of extra lives remaining for the first player.
+     *
+     * <p>This method will return 0 if there are no extra lives remaining, e.g.
+     * the game will end when pacman dies next.
+     *
+     * @return the number of extra lives remaining
+     */
+    public int getExtraLives() {
+        return extraLives[0];
+    }
+
+    /**
+     * Returns the number of extra lives remaining for the given player. A
+     * negative number means the player is out of the game.
+     *
+     * @param player the player, see {@link PacmanEntity#getPlayer()}
+     * @return the number of extra lives remaining
+     */
+    public int getExtraLives(int player) {
+        return extraLives[player];
+    }
+
+    /**
+     * Sets the number of extra lives remaining for the first player.
+     *
+     * @param extraLives the number of extra lives remaining
+     */
+    public void setExtraLives(int extraLives) {
+        this.extraLives[0] = extraLives;
+    }
+
+    /**
+     * Returns true once every player is out of lives.
+     *
+     * @return true if the game is over
+     */
+    public boolean isGameOver() {
+        for (int lives : extraLives) {
+            if (lives >= 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the current maze, or <code>null</code> if no game has been started yet.
+     *
+     * @return the current maze
+     */
+    public @Nullable Maze getCurrentMaze() {
+        return currentMaze;
+    }
+
+    /**
+     * Updates the current maze, and checks if the game has been won or lost.
+     */
+    public void update() {
+        if (currentMaze == null)
+            return;
+        if (isGameOver())
+            return;
+
+        currentMaze.update();
+    }
+
+    /**
+     * Skips the ticks where the current maze is frozen, see
+     * {@link Maze#advanceUntilNextEvent()}. Useful when nobody is watching
+     * the game, since nothing happens during those ticks.
+     *
+     * @return the number of ticks that were skipped
+     */
+    public int advanceUntilNextEvent() {
+        if (currentMaze == null)
+            return 0;
+        if (isGameOver())
+            return 0;
+
+        return currentMaze.advanceUntilNextEvent();
+    }
+
+    /**
+     * Copies the state of this game into the given snapshot, replacing what
+     * was in it. See {@link GameSnapshot}.
+     *
+     * @param snapshot the snapshot to write to
+     */
+    public void snapshot(@NotNull GameSnapshot snapshot) {
+        snapshot.begin(this);
+        snapshot.writeInt(level);
+        snapshot.writeInt(episode);
+        for (int i = 0; i < scores.length; i++) {
+            snapshot.writeInt(extraLives[i]);
+            snapshot.writeInt(scores[i]);
+        }
+        snapshot.writeInt((int) (random.getState() >>> 32));
+        snapshot.writeInt((int) random.getState());
+        snapshot.writeRef(currentMaze);
+        if (currentMaze != null)
+            currentMaze.writeState(snapshot);
+    }
+
+    /**
+     * Puts this game back into the state it was in when the given snapshot
+     * was taken. The snapshot is not changed, so it can be restored again.
+     *
+     * @param snapshot the snapshot to restore
+     * @throws IllegalArgumentException if the snapshot was taken from a different game
+     */
+    public void restore(@NotNull GameSnapshot snapshot) {
+        if (snapshot.getOwner() != this)
+            throw new IllegalArgumentException("Snapshot was not taken from this game");
+
+        snapshot.rewind();
+        level = snapshot.readInt();
+        episode = snapshot.readInt();
+        for (int i = 0; i < scores.length; i++) {
+            extraLives[i] = snapshot.readInt();
+            scores[i] = snapshot.readInt();
+        }
+        random.setState((long) snapshot.readInt() << 32 | (snapshot.readInt() & 0xFFFFFFFFL));
+        currentMaze = (Maze) snapshot.readRef();
+        if (currentMaze != null)
+            currentMaze.readState(snapshot);
+    }
+
+    /**
+     * Starts a new game from the first level, after the previous game has ended.
+     */
+    public void restart() {
+        random.setState(randomSeed(config.seed, config.id, ++episode));
+        level = 0;
+        Arrays.fill(extraLives, config.startLives);
+        Arrays.fill(scores, config.startScore);
+        nextLevel();
+    }
+
+    public void postUpdate() {
+        TerminalReason complete = currentMaze.getTerminalReason();
+
+        if (complete == TerminalReason.WIN) {
+            nextLevel();
+        } else if (complete == TerminalReason.LOSE) {
+            // Every pacman died, so the whole maze starts over
+            currentMaze.reset();
+
+            boolean lostLife = false;
+            for (int i = 0; i < currentMaze.getPacmanCount(); i++) {
+                lostLife |= loseLife(currentMaze.getPacman(i));
+            }
+            if (!lostLife)
+                return;
+            removeOutOfLives();
+        } else if (currentMaze.getPacmanCount() > 1) {
+            // Only some pacmen died, so they respawn while the others keep playing
+            boolean lostLife = false;
+            for (int i = 0; i < currentMaze.getPacmanCount(); i++) {
+                PacmanEntity pacman = currentMaze.getPacman(i);
+                if (pacman.isAlive())
+                    continue;
+
+                pacman.reset();
+                lostLife |= loseLife(pacman);
+            }
+            if (lostLife)
+                removeOutOfLives();
+        }
+
+        if (isGameOver()) {
+            GameEndEvent event = new GameEndEvent(this);
+            events.fireEvent(event);
+        }
+    }
+
+    /**
+     * Takes a life from the player of the given pacman.
+     *
+     * @return false if the {@link LoseLifeEvent} was cancelled
+     */
+    private boolean loseLife(@NotNull PacmanEntity pacman) {
+        int player = pacman.getPlayer();
+
+        // Fire an event to allow modification of the number of lives remaining
+        LoseLifeEvent event = new LoseLifeEvent(pacman, extraLives[player] - 1);
+        events.fireEvent(event);
+        if (event.isCancelled())
+            return false;
+
+        extraLives[player] = event.getNumLives();
+        return true;
+    }
+
+    /**
+     * Takes the pacmen of players that are out of lives out of the maze, so
+     * the other players can keep playing. Once the game is over, the pacmen
+     * are left in place.
+     */
+    private void removeOutOfLives() {
+        if (isGameOver())
+            return;
+
+        for (int i = currentMaze.getPacmanCount() - 1; i >= 0; i--) {
+            PacmanEntity pacman = currentMaze.getPacman(i);
+            if (extraLives[pacman.getPlayer()] < 0)
+                currentMaze.removeEntity(pacman);
+        }
+    }
+
+    /**
+     * Moves to the next level, and sets up the maze for that level.
+     */
+    public void nextLevel() {
+        level++;
+        createMaze(false);
+    }
+
+    /**
+     * Sets up the maze of the given level, the same way (and with the same
+     * events) as {@link #nextLevel()}, and makes it the current maze. Scores
+     * and lives are left alone, and every player gets a pacman, even players
+     * that are out of lives.
+     *
+     * <p>This rebuilds the mazes and entities of snapshots that were stored
+     * by value (e.g. replay keyframes read from a file), which are restored
+     * over the new maze afterward.
+     *
+     * @param level the level to start, at least 1
+     * @throws IllegalArgumentException if the level is less than 1
+     * @throws IllegalStateException if no pacman was spawned
+     */
+    public void startLevel(int level) {
+        if (level < 1)
+            throw new IllegalArgumentException("Level must be at least 1, got " + level);
+
+        this.level = level;
+        if (!createMaze(true))
+            throw new IllegalStateException("No pacman was spawned on level " + level);
+    }
+
+    private boolean createMaze(boolean everyPlayer) {
+        // Determine the name of the next level from the (cached) levels preset
+        List<String> allLevels = MazeTemplate.getLevels(config.levelsPreset);
+        String nextLevelName = allLevels.get(Math.min(level, allLevels.size()) - 1);
+
+        // Fire an event to allow modification of the next level name
+        NextLevelEvent event = new NextLevelEvent(nextLevelName);
+        events.fireEvent(event);
+        nextLevelName = event.getNextLevel();
+
+        // Now that we have the next level name, we should get the maze for it.
+        // Templates are parsed once, and shared between every game.
+        MazeTemplate template = MazeTemplate.get(nextLevelName);
+        Maze maze = new Maze(this, template);
+
+        for (MazeTemplate.GhostTemplate ghostTemplate : template.getGhosts()) {
+            GhostEntity.Config ghostConfig = new GhostEntity.Config();
+            ghostConfig.isElroy = ghostTemplate.isElroy();
+            ghostConfig.chase = ghostTemplate.newChaseBehavior();
+            ghostConfig.scatterTile = new Vector2i(ghostTemplate.getScatterTile());
+            ghostConfig.spawnPixel = new Vector2i(ghostTemplate.getSpawnPixel());
+            ghostConfig.spawnDirection = ghostTemplate.getSpawnDirection();
+            ghostConfig.spawnReleased = ghostTemplate.isReleased();
+            ghostConfig.reviveTile = new Vector2i(template.getGhostRevivePixel());
+            ghostConfig.colorsAlive = ghostTemplate.getColorsAlive();
+            ghostConfig.colorsFrightened = ghostTemplate.getColorsFrightened();
+            ghostConfig.colorsFlash = ghostTemplate.getColorsFlash();
+            ghostConfig.colorsEaten = ghostTemplate.getColorsEaten();
+
+            // Fire an event to allow modification of the ghost config
+            EntityPreSpawnEvent preSpawnEvent = new EntityPreSpawnEvent(maze, EntityType.GHOST, ghostConfig);
+            events.fireEvent(preSpawnEvent);
+            ghostConfig = (GhostEntity.Config) preSpawnEvent.getConfig();
+            if (preSpawnEvent.isCancelled())
+                continue;
+
+            GhostEntity ghost = new GhostEntity(maze, ghostConfig);
+
+            // Fire an event to alert that the ghost has been spawned
+            EntitySpawnEvent spawnEvent = new EntitySpawnEvent(ghost);
+            events.fireEvent(spawnEvent);
+            if (spawnEvent.isCancelled())
+                continue;
+
+            maze.addEntity(spawnEvent.getEntity());
+        }
+
+        // Every player that still has lives gets a pacman, in order of player
+        // (or every player at all, when rebuilding a level for a snapshot)
+        int spawned = 0;
+        for (int player = 0; player < scores.length; player++) {
+            if (extraLives[player] < 0 && !everyPlayer)
+                continue;
+
+            PacmanEntity.Config pacmanConfig = new PacmanEntity.Config();
+            pacmanConfig.spawnPixel = new Vector2i(template.getPacmanSpawnPixel());
+            pacmanConfig.player = player;
+
+            // Fire an event to allow modification of the pacman config
+            EntityPreSpawnEvent preSpawnEvent = new EntityPreSpawnEvent(maze, EntityType.PACMAN, pacmanConfig);
+            events.fireEvent(preSpawnEvent);
+            pacmanConfig = (PacmanEntity.Config) preSpawnEvent.getConfig();
+            if (preSpawnEvent.isCancelled())
+                continue;
+
+            PacmanEntity pacman = new PacmanEntity(maze, pacmanConfig);
+
+            // Fire an event to alert that the pacman has been spawned
+            EntitySpawnEvent spawnEvent = new EntitySpawnEvent(pacman);
+            events.fireEvent(spawnEvent);
+            if (spawnEvent.isCancelled())
+                continue;
+
+            maze.addEntity(spawnEvent.getEntity());
+            spawned++;
+        }
+
+        // A maze without any pacman cannot be played
+        if (spawned == 0)
+            return false;
+
+        CreateMazeEvent createMazeEvent = new CreateMazeEvent(maze);
+        events.fireEvent(createMazeEvent);
+        this.currentMaze = maze;
+        return true;
+    }
+
+
+    public static class Config {
+        public int id = 0;
+        public String levelsPreset = "levels.json";
+        public int startLevel = 0;  // when nextLevel() is called for the first time, this gets incremented to 1
+        public int startLives = 2;
+        public int startScore = 0;
+        public int handicap = 0;  // Delays the level speed changes by this many levels
+        public long seed = 0;  // Seed of the whole run, see #getRandom()
+        public int episode = 0;  // Changes the random stream of each episode (e.g. generation) of a game
+        public int pacmen = 1;  // Number of players sharing the maze, each with their own score and lives (at most 32)
+    }
+}
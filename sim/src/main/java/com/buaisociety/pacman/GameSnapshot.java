@@ -0,0 +1,205 @@
+package com.buaisociety.pacman;
+
+import com.buaisociety.pacman.entity.Entity;
+import com.buaisociety.pacman.maze.Maze;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A copy of the dynamic state of a game, used to branch a game (e.g. for a
+ * search based agent) and come back to the same point later.
+ *
+ * <p>The state is stored in flat, reusable arrays. The first snapshot of a
+ * game grows the arrays to fit; after that, {@link GameManager#snapshot} and
+ * {@link GameManager#restore} do not allocate. Entities and mazes are stored
+ * by reference, since their identity (and their configuration) never changes
+ * while a game is running.
+ *
+ * <p>Snapshots include the game's {@link GameManager#getRandom() random
+ * source}, but not the state of behaviors (e.g. a neural network's memory),
+ * and restoring a snapshot does not fire any events.
+ *
+ * <p>{@link Maze} and {@link Entity} subclasses write their state with the
+ * <code>write</code> methods, and read it back in the same order with the
+ * <code>read</code> methods.
+ *
+ * <p>To keep a snapshot after its game is gone (e.g. in a file), use
+ * {@link #write(DataOutputStream, RefWriter)}. References are not values, so
+ * the caller decides how to store each one, and how to turn it back into an
+ * object of the game that reads the snapshot.
+ */
+public final class GameSnapshot {
+
+    private @Nullable GameManager owner;
+    private int[] ints = new int[128];
+    private byte[] bytes = new byte[0];
+    private Object[] refs = new Object[16];
+    private int intCount;
+    private int byteCount;
+    private int refCount;
+    private int intIndex;
+    private int byteIndex;
+    private int refIndex;
+
+    /**
+     * Returns the game this snapshot was taken from, or <code>null</code> if
+     * it is empty.
+     *
+     * @return the game this snapshot was taken from
+     */
+    public @Nullable GameManager getOwner() {
+        return owner;
+    }
+
+    /**
+     * Returns the number of ints, bytes and references used by this snapshot.
+     *
+     * @return the size of this snapshot
+     */
+    public int size() {
+        return intCount + byteCount + refCount;
+    }
+
+    void begin(@NotNull GameManager owner) {
+        this.owner = owner;
+        intCount = 0;
+        byteCount = 0;
+        refCount = 0;
+    }
+
+    void rewind() {
+        intIndex = 0;
+        byteIndex = 0;
+        refIndex = 0;
+    }
+
+    public void writeInt(int value) {
+        if (intCount == ints.length)
+            ints = Arrays.copyOf(ints, ints.length * 2);
+        ints[intCount++] = value;
+    }
+
+    public void writeBoolean(boolean value) {
+        writeInt(value ? 1 : 0);
+    }
+
+    public void writeBytes(byte[] values) {
+        if (byteCount + values.length > bytes.length)
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, byteCount + values.length));
+        System.arraycopy(values, 0, bytes, byteCount, values.length);
+        byteCount += values.length;
+    }
+
+    public void writeRef(@Nullable Object value) {
+        if (refCount == refs.length)
+            refs = Arrays.copyOf(refs, refs.length * 2);
+        refs[refCount++] = value;
+    }
+
+    public int readInt() {
+        if (intIndex == intCount)
+            throw new IllegalStateException("Read past the end of the snapshot");
+        return ints[intIndex++];
+    }
+
+    public boolean readBoolean() {
+        return readInt() != 0;
+    }
+
+    /**
+     * Reads bytes into the given array, filling it.
+     *
+     * @param values the array to fill
+     */
+    public void readBytes(byte[] values) {
+        if (byteIndex + values.length > byteCount)
+            throw new IllegalStateException("Read past the end of the snapshot");
+        System.arraycopy(bytes, byteIndex, values, 0, values.length);
+        byteIndex += values.length;
+    }
+
+    public @Nullable Object readRef() {
+        if (refIndex == refCount)
+            throw new IllegalStateException("Read past the end of the snapshot");
+        return refs[refIndex++];
+    }
+
+    /**
+     * Writes the contents of this snapshot to a stream. The ints and bytes
+     * are written as they are, and every reference is passed to the
+     * writer, in the order they were written to the snapshot.
+     *
+     * @param out the stream to write to
+     * @param writer writes each reference as a value
+     * @throws IOException if the stream cannot be written
+     */
+    public void write(@NotNull DataOutputStream out, @NotNull RefWriter writer) throws IOException {
+        out.writeInt(intCount);
+        for (int i = 0; i < intCount; i++) {
+            out.writeInt(ints[i]);
+        }
+        out.writeInt(byteCount);
+        out.write(bytes, 0, byteCount);
+        out.writeInt(refCount);
+        for (int i = 0; i < refCount; i++) {
+            writer.write(out, refs[i]);
+        }
+    }
+
+    /**
+     * Replaces the contents of this snapshot with a snapshot written by
+     * {@link #write(DataOutputStream, RefWriter)}, so it can be restored into
+     * the given game.
+     *
+     * @param in the stream to read from
+     * @param owner the game the snapshot will be restored into
+     * @param reader reads each reference, and returns the matching object of the owner's game
+     * @throws IOException if the stream cannot be read, or is not a snapshot
+     */
+    public void read(@NotNull DataInputStream in, @NotNull GameManager owner, @NotNull RefReader reader) throws IOException {
+        begin(owner);
+        int count = readCount(in);
+        for (int i = 0; i < count; i++) {
+            writeInt(in.readInt());
+        }
+        count = readCount(in);
+        if (count > bytes.length)
+            bytes = new byte[count];
+        in.readFully(bytes, 0, count);
+        byteCount = count;
+        count = readCount(in);
+        for (int i = 0; i < count; i++) {
+            writeRef(reader.read(in));
+        }
+    }
+
+    private static int readCount(@NotNull DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0)
+            throw new IOException("Corrupt snapshot, negative size " + count);
+        return count;
+    }
+
+    /**
+     * Writes a reference of a snapshot as a value, see
+     * {@link GameSnapshot#write(DataOutputStream, RefWriter)}.
+     */
+    @FunctionalInterface
+    public interface RefWriter {
+        void write(@NotNull DataOutputStream out, @Nullable Object ref) throws IOException;
+    }
+
+    /**
+     * Reads a reference written by a {@link RefWriter}, see
+     * {@link GameSnapshot#read(DataInputStream, GameManager, RefReader)}.
+     */
+    @FunctionalInterface
+    public interface RefReader {
+        @Nullable Object read(@NotNull DataInputStream in) throws IOException;
+    }
+}
@@ -0,0 +1,33 @@
+package com.buaisociety.pacman.batch;
+
+import com.buaisociety.pacman.entity.Direction;
+import com.buaisociety.pacman.entity.behavior.Behavior;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Determines how pacman should move in many games at once.
+ *
+ * <p>This is the batch version of {@link Behavior}. Instead of being asked
+ * once per entity, it is asked once per tick for every game in a
+ * {@link BatchSimulator} where pacman needs a direction. This lets an
+ * implementation handle all the games in 1 pass (e.g. 1 batched forward pass
+ * through a neural network).
+ */
+@FunctionalInterface
+public interface BatchBehavior {
+
+    /**
+     * Chooses the next direction for pacman in each of the given games.
+     *
+     * <p>Directions are stored as the {@link Direction#ordinal()}, indexed by
+     * game. Before this is called, <code>directions[game]</code> holds
+     * pacman's current direction; implementations overwrite it with the new
+     * direction for each game in <code>games</code>.
+     *
+     * @param simulator the simulator, to read the state of each game
+     * @param games the games where pacman needs a direction, in increasing order
+     * @param count the number of games in <code>games</code>
+     * @param directions the direction of pacman in every game
+     */
+    void getDirections(@NotNull BatchSimulator simulator, int[] games, int count, byte[] directions);
+}
@@ -0,0 +1,1333 @@
+package com.buaisociety.pacman.batch;
+
+import com.buaisociety.pacman.GameManager;
+import com.buaisociety.pacman.entity.Direction;
+import com.buaisociety.pacman.entity.FruitEntity;
+import com.buaisociety.pacman.entity.GhostEntity;
+import com.buaisociety.pacman.entity.GhostState;
+import com.buaisociety.pacman.entity.PacmanEntity;
+import com.buaisociety.pacman.entity.behavior.AggressiveChaseBehavior;
+import com.buaisociety.pacman.entity.behavior.AmbushChaseBehavior;
+import com.buaisociety.pacman.entity.behavior.Behavior;
+import com.buaisociety.pacman.entity.behavior.FeignChaseBehavior;
+import com.buaisociety.pacman.entity.behavior.PatrolChaseBehavior;
+import com.buaisociety.pacman.maze.DistanceTable;
+import com.buaisociety.pacman.maze.LevelProfile;
+import com.buaisociety.pacman.maze.Maze;
+import com.buaisociety.pacman.maze.MazeTemplate;
+import com.buaisociety.pacman.maze.TileState;
+import com.buaisociety.pacman.util.FixedPoint;
+import com.buaisociety.pacman.util.GameRandom;
+import com.buaisociety.pacman.util.NumberUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Simulates many games of Pacman in lockstep.
+ *
+ * <p>A {@link GameManager} keeps each game as a graph of objects (a maze, its
+ * entities and their behaviors), so updating thousands of games means chasing
+ * pointers all over the heap. This simulator instead keeps the dynamic state
+ * of every game in parallel primitive arrays: 1 array per field, indexed by
+ * game (or by <code>ghost * games + game</code> for the ghosts, so that each
+ * ghost is contiguous across games). Eaten
+ * pellets are tracked in a bitset on top of the shared {@link MazeTemplate}
+ * layout. {@link #step(BatchBehavior)} advances every game by 1 tick in a
+ * single pass, and asks the {@link BatchBehavior} for all of pacman's
+ * directions at once. Once every decision is made, entities are moved by a
+ * {@link MovementKernel}, which uses SIMD instructions when the
+ * <code>jdk.incubator.vector</code> module is enabled.
+ *
+ * <p>The rules are the same as {@link Maze#update()} followed by
+ * {@link GameManager#postUpdate()}, for games that use the default rules:
+ * <ul>
+ *     <li>No events are fired, so listeners cannot customize the game.</li>
+ *     <li>Ghosts must use one of the built-in chase behaviors.</li>
+ *     <li>Every level in the preset must have the same number of ghosts.</li>
+ *     <li>Purely visual state (animations, bonus points) is not tracked.</li>
+ * </ul>
+ *
+ * <p>A simulator is not thread-safe. To use more cores, give each thread its
+ * own simulator.
+ */
+public final class BatchSimulator {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final GhostState[] GHOST_STATES = GhostState.values();
+    private static final int[] DX = new int[DIRECTIONS.length];
+    private static final int[] DY = new int[DIRECTIONS.length];
+    private static final byte[] BEHIND = new byte[DIRECTIONS.length];
+    private static final byte[] TURN_LEFT = new byte[DIRECTIONS.length];
+    private static final byte[] TURN_RIGHT = new byte[DIRECTIONS.length];
+
+    static {
+        for (Direction direction : DIRECTIONS) {
+            int i = direction.ordinal();
+            DX[i] = direction.getDx();
+            DY[i] = direction.getDy();
+            BEHIND[i] = (byte) direction.behind().ordinal();
+            TURN_LEFT[i] = (byte) direction.left().ordinal();
+            TURN_RIGHT[i] = (byte) direction.right().ordinal();
+        }
+    }
+
+    private static final byte UP = (byte) Direction.UP.ordinal();
+    private static final byte DOWN = (byte) Direction.DOWN.ordinal();
+    private static final byte LEFT = (byte) Direction.LEFT.ordinal();
+    private static final byte RIGHT = (byte) Direction.RIGHT.ordinal();
+    private static final byte NO_DIRECTION = -1;
+
+    private static final byte SPACE = (byte) TileState.SPACE.ordinal();
+    private static final byte PELLET = (byte) TileState.PELLET.ordinal();
+    private static final byte POWER_PELLET = (byte) TileState.POWER_PELLET.ordinal();
+    private static final byte WALL = (byte) TileState.WALL.ordinal();
+    private static final byte TUNNEL = (byte) TileState.TUNNEL.ordinal();
+    private static final byte GHOST_PEN = (byte) TileState.GHOST_PEN.ordinal();
+
+    private static final byte CHASE = (byte) GhostState.CHASE.ordinal();
+    private static final byte SCATTER = (byte) GhostState.SCATTER.ordinal();
+    private static final byte FRIGHTENED = (byte) GhostState.FRIGHTENED.ordinal();
+    private static final byte EATEN = (byte) GhostState.EATEN.ordinal();
+
+    private final @NotNull GameManager.Config config;
+    private final int games;
+    private final int ghostSlots;  // the most ghosts in any level
+    private final int pelletWords;
+    private final @NotNull Map<MazeTemplate, Layout> layouts = new IdentityHashMap<>();
+
+    // Per game
+    private final Layout[] layout;
+    private final boolean[] active;
+    private final int[] level;
+    private final LevelProfile[] profile;
+    private final int[] score;
+    private final int[] extraLives;
+    private final int[] ticks;
+    private final int[] freezeTicks;
+    private final int[] gameStartTicks;
+    private final int[] pelletsRemaining;
+    private final long[] pellets;  // pelletWords per game, a set bit means the pellet is not eaten
+    private final int[] frightenedTimer;
+    private final int[] chaseCounter;
+    private final int[] chaseIndex;
+    private final boolean[] ghostChase;
+    private final int[] ghostsEaten;
+    private final int[] fruitTicksLeft;  // 0 when there is no fruit
+    private final boolean[] midTick;  // loaded while pacman decided, see #load
+    private final GameRandom[] random;
+    private final int[] episode;
+
+    // Pacman, per game
+    private final int[] pacmanX;
+    private final int[] pacmanY;
+    private final int[] pacmanLastX;
+    private final int[] pacmanLastY;
+    private final byte[] pacmanDirection;
+    private final int[] pacmanFreezeTicks;
+    private final boolean[] pacmanAlive;
+
+    // Ghosts, at ghost * games + game. Levels with fewer ghosts leave slots unused
+    private final int[] ghostX;
+    private final int[] ghostY;
+    private final int[] ghostLastX;
+    private final int[] ghostLastY;
+    private final byte[] ghostDirection;
+    private final byte[] ghostNextDirection;
+    private final byte[] ghostState;
+    private final boolean[] ghostReleased;
+    private final int[] ghostDotCounter;
+
+    // Scratch space for step()
+    private final @NotNull MovementKernel kernel;
+    private final boolean[] updated;
+    private final boolean[] pacmanMoves;
+    private final boolean[] collisions;
+    private final int[] deciding;
+    private final byte[] decided;  // pacman's next direction, applied when it moves
+    private final int[] ghostStartX;  // where the ghosts were at the start of the tick
+    private final int[] ghostStartY;
+    private final boolean[] positionQueued;  // per ghost, see GhostEntity#applyMove()
+    private final int[] queuedX;
+    private final int[] queuedY;
+    private final int[] moveDirection;  // per ghost, then per game for pacman
+    private final int[] moveSpeed;
+    private final int[] moveFlags;
+
+    /**
+     * Creates a simulator for the given number of games, and starts every
+     * game on its first level.
+     *
+     * @param games the number of games
+     * @param config the configuration shared by every game
+     * @throws IllegalArgumentException if the levels have different sizes, or a
+     *         ghost uses a custom chase behavior
+     */
+    public BatchSimulator(int games, @NotNull GameManager.Config config) {
+        this.config = config;
+        this.games = games;
+
+        List<String> levels = MazeTemplate.getLevels(config.levelsPreset);
+        MazeTemplate first = MazeTemplate.get(levels.get(0));
+        int ghostSlots = 0;
+        for (String name : levels) {
+            MazeTemplate template = MazeTemplate.get(name);
+            if (template.getWidth() != first.getWidth() || template.getHeight() != first.getHeight())
+                throw new IllegalArgumentException("Maze " + name + " has a different size than maze " + first.getName());
+            ghostSlots = Math.max(ghostSlots, template.getGhosts().size());
+        }
+        this.ghostSlots = ghostSlots;
+        this.pelletWords = (first.getWidth() * first.getHeight() + 63) >>> 6;
+
+        this.layout = new Layout[games];
+        this.active = new boolean[games];
+        this.level = new int[games];
+        this.profile = new LevelProfile[games];
+        this.score = new int[games];
+        this.extraLives = new int[games];
+        this.ticks = new int[games];
+        this.freezeTicks = new int[games];
+        this.gameStartTicks = new int[games];
+        this.pelletsRemaining = new int[games];
+        this.pellets = new long[games * pelletWords];
+        this.frightenedTimer = new int[games];
+        this.chaseCounter = new int[games];
+        this.chaseIndex = new int[games];
+        this.ghostChase = new boolean[games];
+        this.ghostsEaten = new int[games];
+        this.fruitTicksLeft = new int[games];
+        this.midTick = new boolean[games];
+        this.random = new GameRandom[games];
+        this.episode = new int[games];
+
+        this.pacmanX = new int[games];
+        this.pacmanY = new int[games];
+        this.pacmanLastX = new int[games];
+        this.pacmanLastY = new int[games];
+        this.pacmanDirection = new byte[games];
+        this.pacmanFreezeTicks = new int[games];
+        this.pacmanAlive = new boolean[games];
+
+        int ghosts = games * ghostSlots;
+        this.ghostX = new int[ghosts];
+        this.ghostY = new int[ghosts];
+        this.ghostLastX = new int[ghosts];
+        this.ghostLastY = new int[ghosts];
+        this.ghostDirection = new byte[ghosts];
+        this.ghostNextDirection = new byte[ghosts];
+        this.ghostState = new byte[ghosts];
+        this.ghostReleased = new boolean[ghosts];
+        this.ghostDotCounter = new int[ghosts];
+
+        this.kernel = MovementKernel.create(
+            FixedPoint.fromPixels(first.getWidth() * Maze.TILE_SIZE),
+            FixedPoint.fromPixels(first.getHeight() * Maze.TILE_SIZE)
+        );
+        this.updated = new boolean[games];
+        this.pacmanMoves = new boolean[games];
+        this.collisions = new boolean[ghosts];
+        this.deciding = new int[games];
+        this.decided = new byte[games];
+        this.ghostStartX = new int[ghosts];
+        this.ghostStartY = new int[ghosts];
+        this.positionQueued = new boolean[ghosts];
+        this.queuedX = new int[ghosts];
+        this.queuedY = new int[ghosts];
+        this.moveDirection = new int[Math.max(games, ghosts)];
+        this.moveSpeed = new int[Math.max(games, ghosts)];
+        this.moveFlags = new int[Math.max(games, ghosts)];
+
+        for (int game = 0; game < games; game++) {
+            episode[game] = config.episode;
+            reset(game);
+        }
+    }
+
+    /**
+     * Starts a new game in the given slot, from the configured start level,
+     * lives and score. This is the same as creating a new {@link GameManager}
+     * and calling {@link GameManager#nextLevel()}.
+     *
+     * <p>Each game gets its own random source, like a {@link GameManager}
+     * with id <code>config.id + game</code>. The episode counts up every time
+     * the game is reset, like {@link GameManager#restart()}.
+     *
+     * @param game the game to reset
+     */
+    public void reset(int game) {
+        random[game] = GameManager.createRandom(config.seed, config.id + game, episode[game]++);
+        level[game] = config.startLevel;
+        extraLives[game] = config.startLives;
+        score[game] = config.startScore;
+        active[game] = true;
+        midTick[game] = false;
+        nextLevel(game);
+    }
+
+    /**
+     * Copies the current state of a running {@link GameManager} into the
+     * given slot, so the game can be continued (e.g. to look ahead) in this
+     * simulator. Purely visual state is ignored, and the slot keeps its own
+     * random source.
+     *
+     * <p>When called from a pacman behavior (see {@link Maze#isDeciding()}),
+     * the game is partway through a tick: its timers have already counted
+     * down. The next {@link #step(BatchBehavior)} then finishes that tick,
+     * starting where pacman decides, instead of starting a new one.
+     *
+     * @param game the slot to load the game into
+     * @param manager the game to copy
+     * @throws IllegalArgumentException if the game has not started, has more
+     *         than 1 pacman, or its maze does not match its template (e.g. a
+     *         ghost spawn was cancelled, or its walls were changed)
+     */
+    public void load(int game, @NotNull GameManager manager) {
+        Maze maze = manager.getCurrentMaze();
+        if (maze == null)
+            throw new IllegalArgumentException("Game " + manager.getConfig().id + " has not started");
+        if (maze.getPacmanCount() != 1)
+            throw new IllegalArgumentException("Game " + manager.getConfig().id + " has " + maze.getPacmanCount() + " pacmen, expected 1");
+
+        Layout layout = layouts.computeIfAbsent(maze.getTemplate(), this::createLayout);
+        if (maze.getGhostCount() != layout.ghostCount)
+            throw new IllegalArgumentException("Maze " + layout.template.getName() + " has " + maze.getGhostCount() + " ghosts, expected " + layout.ghostCount);
+        if (maze.hasWallsChanged())
+            throw new IllegalArgumentException("Maze " + layout.template.getName() + " has different walls than its template");
+
+        this.layout[game] = layout;
+        level[game] = manager.getLevel();
+        profile[game] = LevelProfile.get(level[game], config.handicap);
+        score[game] = manager.getScore();
+        extraLives[game] = manager.getExtraLives();
+        active[game] = extraLives[game] >= 0;
+
+        ticks[game] = maze.getTicks();
+        freezeTicks[game] = maze.getFreezeTicks();
+        gameStartTicks[game] = maze.getGameStartTicks();
+        pelletsRemaining[game] = maze.getPelletsRemaining();
+        frightenedTimer[game] = maze.getFrightenedTimer();
+        chaseCounter[game] = maze.getChaseTicksLeft();
+        chaseIndex[game] = maze.getChaseIndex();
+        ghostChase[game] = maze.isGhostChase();
+        ghostsEaten[game] = maze.getGhostsEaten();
+        midTick[game] = maze.isDeciding();
+
+        // Start from every pellet in the layout, then clear the eaten ones
+        int first = game * pelletWords;
+        for (int word = 0; word < pelletWords; word++) {
+            long bits = layout.pellets[word];
+            long remaining = bits;
+            while (bits != 0) {
+                int tile = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+
+                TileState state = maze.getTileState(tile % layout.width, tile / layout.width);
+                if (state != TileState.PELLET && state != TileState.POWER_PELLET)
+                    remaining &= ~(1L << tile);
+            }
+            pellets[first + word] = remaining;
+        }
+
+        FruitEntity fruit = maze.getFruit();
+        fruitTicksLeft[game] = fruit == null || fruit.isRemove() ? 0 : fruit.getTicksLeft();
+
+        PacmanEntity pacman = maze.getPacman();
+        pacmanX[game] = pacman.getFixedX();
+        pacmanY[game] = pacman.getFixedY();
+        pacmanLastX[game] = pacman.getLastFixedX();
+        pacmanLastY[game] = pacman.getLastFixedY();
+        pacmanDirection[game] = (byte) pacman.getDirection().ordinal();
+        pacmanFreezeTicks[game] = pacman.getFreezeTicks();
+        pacmanAlive[game] = pacman.isAlive();
+
+        for (int ghost = 0; ghost < layout.ghostCount; ghost++) {
+            GhostEntity entity = maze.getGhost(ghost);
+            int k = ghost * games + game;
+            ghostX[k] = entity.getFixedX();
+            ghostY[k] = entity.getFixedY();
+            ghostLastX[k] = entity.getLastFixedX();
+            ghostLastY[k] = entity.getLastFixedY();
+            ghostDirection[k] = (byte) entity.getDirection().ordinal();
+            ghostNextDirection[k] = entity.getNextDirection() == null ? NO_DIRECTION : (byte) entity.getNextDirection().ordinal();
+            ghostState[k] = (byte) entity.getState().ordinal();
+            ghostReleased[k] = entity.isReleased();
+            ghostDotCounter[k] = entity.getLocalDotCounter();
+        }
+    }
+
+    /**
+     * Copies a game from another simulator (or this one) into the given slot.
+     * Both simulators must have been created with the same levels preset.
+     * The slot keeps its own random source.
+     *
+     * @param source the simulator to copy from
+     * @param from the game to copy, in the source simulator
+     * @param to the slot to copy the game into
+     * @throws IllegalArgumentException if the simulators use different levels
+     */
+    public void copyGame(@NotNull BatchSimulator source, int from, int to) {
+        if (source.ghostSlots != ghostSlots || source.pelletWords != pelletWords)
+            throw new IllegalArgumentException("Cannot copy games between simulators with different levels");
+
+        layout[to] = source.layout[from];
+        active[to] = source.active[from];
+        level[to] = source.level[from];
+        profile[to] = source.profile[from];
+        score[to] = source.score[from];
+        extraLives[to] = source.extraLives[from];
+        ticks[to] = source.ticks[from];
+        freezeTicks[to] = source.freezeTicks[from];
+        gameStartTicks[to] = source.gameStartTicks[from];
+        pelletsRemaining[to] = source.pelletsRemaining[from];
+        System.arraycopy(source.pellets, from * pelletWords, pellets, to * pelletWords, pelletWords);
+        frightenedTimer[to] = source.frightenedTimer[from];
+        chaseCounter[to] = source.chaseCounter[from];
+        chaseIndex[to] = source.chaseIndex[from];
+        ghostChase[to] = source.ghostChase[from];
+        ghostsEaten[to] = source.ghostsEaten[from];
+        fruitTicksLeft[to] = source.fruitTicksLeft[from];
+        midTick[to] = source.midTick[from];
+
+        pacmanX[to] = source.pacmanX[from];
+        pacmanY[to] = source.pacmanY[from];
+        pacmanLastX[to] = source.pacmanLastX[from];
+        pacmanLastY[to] = source.pacmanLastY[from];
+        pacmanDirection[to] = source.pacmanDirection[from];
+        pacmanFreezeTicks[to] = source.pacmanFreezeTicks[from];
+        pacmanAlive[to] = source.pacmanAlive[from];
+
+        for (int ghost = 0; ghost < ghostSlots; ghost++) {
+            int k = ghost * games + to;
+            int j = ghost * source.games + from;
+            ghostX[k] = source.ghostX[j];
+            ghostY[k] = source.ghostY[j];
+            ghostLastX[k] = source.ghostLastX[j];
+            ghostLastY[k] = source.ghostLastY[j];
+            ghostDirection[k] = source.ghostDirection[j];
+            ghostNextDirection[k] = source.ghostNextDirection[j];
+            ghostState[k] = source.ghostState[j];
+            ghostReleased[k] = source.ghostReleased[j];
+            ghostDotCounter[k] = source.ghostDotCounter[j];
+        }
+    }
+
+    /**
+     * Advances every active game by 1 tick.
+     *
+     * @param behavior decides pacman's direction in every game
+     */
+    public void step(@NotNull BatchBehavior behavior) {
+        for (int game = 0; game < games; game++) {
+            updated[game] = active[game] && updateMaze(game);
+            midTick[game] = false;
+        }
+
+        // Pacman decides first, then the ghosts, and nothing moves until
+        // everyone has decided. So pacman's behavior sees the ghosts as they
+        // were at the start of the tick, and ghosts target each other (e.g.
+        // patrol targets blinky) from where they were at the start of the tick.
+        int count = 0;
+        for (int game = 0; game < games; game++) {
+            pacmanMoves[game] = false;
+            if (!updated[game])
+                continue;
+
+            // Pacman will freeze for a few ticks when eating pellets and power pellets
+            if (pacmanFreezeTicks[game] > 0) {
+                pacmanFreezeTicks[game]--;
+            } else {
+                pacmanMoves[game] = true;
+                deciding[count++] = game;
+            }
+        }
+
+        // Ghosts read pacman's direction, so it only changes when pacman moves
+        System.arraycopy(pacmanDirection, 0, decided, 0, games);
+        if (count > 0)
+            behavior.getDirections(this, deciding, count, decided);
+
+        int ghosts = ghostSlots * games;
+        System.arraycopy(ghostX, 0, ghostStartX, 0, ghosts);
+        System.arraycopy(ghostY, 0, ghostStartY, 0, ghosts);
+        Arrays.fill(positionQueued, false);
+        Arrays.fill(moveSpeed, 0);
+        for (int ghost = 0; ghost < ghostSlots; ghost++) {
+            for (int game = 0; game < games; game++) {
+                if (updated[game] && ghost < layout[game].ghostCount)
+                    updateGhost(game, layout[game], ghost);
+            }
+        }
+
+        // Move every ghost, then every pacman
+        for (int k = 0; k < ghosts; k++) {
+            if (positionQueued[k])
+                setGhostPosition(k, queuedX[k], queuedY[k]);
+        }
+        kernel.move(ghostX, ghostY, ghostLastX, ghostLastY, 0, 0, ghosts, moveDirection, moveSpeed, moveFlags);
+
+        for (int game = 0; game < games; game++) {
+            moveSpeed[game] = 0;
+            if (pacmanMoves[game]) {
+                pacmanDirection[game] = decided[game];
+                queuePacmanMove(game, layout[game]);
+            }
+        }
+        kernel.move(pacmanX, pacmanY, pacmanLastX, pacmanLastY, 0, 0, games, moveDirection, moveSpeed, moveFlags);
+
+        // Resolve, against where everything moved to: pellets, then
+        // collisions, then fruit
+        for (int ghost = 0; ghost < ghostSlots; ghost++) {
+            kernel.collide(ghostX, ghostY, ghost * games, pacmanX, pacmanY, games, collisions);
+        }
+        for (int game = 0; game < games; game++) {
+            if (updated[game]) {
+                Layout layout = this.layout[game];
+                if (pacmanMoves[game])
+                    eatPellet(game, layout);
+                for (int ghost = 0; ghost < layout.ghostCount; ghost++) {
+                    int k = ghost * games + game;
+                    if (collisions[k])
+                        eatGhost(game, layout, k);
+                }
+                updateFruit(game, layout);
+            }
+
+            if (active[game])
+                postUpdate(game);
+        }
+    }
+
+    /**
+     * The part of {@link Maze#update()} before the entities are updated.
+     * Returns false if the entities should not be updated this tick.
+     */
+    private boolean updateMaze(int game) {
+        // The rest of a tick that was loaded partway through, see #load
+        if (midTick[game])
+            return true;
+
+        ticks[game]++;
+
+        if (freezeTicks[game] > 0) {
+            freezeTicks[game]--;
+            return false;
+        }
+        if (gameStartTicks[game] > 0) {
+            gameStartTicks[game]--;
+            return false;
+        }
+
+        if (pelletsRemaining[game] == 0 || !pacmanAlive[game])
+            return false;
+
+        if (frightenedTimer[game] > 0) {
+            frightenedTimer[game]--;
+        }
+
+        // Negative values prevent flip-flops, see LevelProfile#getScatterChaseTicks(int)
+        if (chaseCounter[game]-- == 0) {
+            ghostChase[game] = !ghostChase[game];
+            chaseCounter[game] = profile[game].getScatterChaseTicks(chaseIndex[game]++);
+        }
+        return true;
+    }
+
+    private void postUpdate(int game) {
+        if (pelletsRemaining[game] == 0) {
+            nextLevel(game);
+        } else if (!pacmanAlive[game]) {
+            resetEntities(game);
+            extraLives[game]--;
+        }
+
+        if (extraLives[game] < 0)
+            active[game] = false;
+    }
+
+    private void nextLevel(int game) {
+        level[game]++;
+        profile[game] = LevelProfile.get(level[game], config.handicap);
+
+        List<String> levels = MazeTemplate.getLevels(config.levelsPreset);
+        MazeTemplate template = MazeTemplate.get(levels.get(Math.min(level[game], levels.size()) - 1));
+        Layout layout = layouts.computeIfAbsent(template, this::createLayout);
+        this.layout[game] = layout;
+
+        // Everything in the maze starts over, see the Maze constructor
+        ticks[game] = 0;
+        freezeTicks[game] = 0;
+        gameStartTicks[game] = 60 * 4;
+        pelletsRemaining[game] = layout.totalPellets;
+        System.arraycopy(layout.pellets, 0, pellets, game * pelletWords, pelletWords);
+        frightenedTimer[game] = 0;
+        chaseCounter[game] = 0;
+        chaseIndex[game] = 0;
+        ghostChase[game] = true;
+        ghostsEaten[game] = 0;
+        fruitTicksLeft[game] = 0;
+
+        for (int ghost = 0; ghost < ghostSlots; ghost++) {
+            ghostDotCounter[ghost * games + game] = 0;
+        }
+
+        // A new pacman moves from (0, 0) to its spawn, which sets its last position
+        pacmanX[game] = 0;
+        pacmanY[game] = 0;
+        resetEntities(game);
+    }
+
+    /**
+     * Same as {@link Maze#reset()}, after pacman loses a life.
+     */
+    private void resetEntities(int game) {
+        Layout layout = this.layout[game];
+        frightenedTimer[game] = 0;
+
+        for (int ghost = 0; ghost < layout.ghostCount; ghost++) {
+            int k = ghost * games + game;
+            ghostX[k] = ghostLastX[k] = layout.ghostSpawnX[ghost];
+            ghostY[k] = ghostLastY[k] = layout.ghostSpawnY[ghost];
+            ghostDirection[k] = layout.ghostSpawnDirection[ghost];
+            ghostReleased[k] = layout.ghostSpawnReleased[ghost];
+            ghostState[k] = ghostChase[game] ? CHASE : SCATTER;
+            ghostNextDirection[k] = NO_DIRECTION;
+        }
+
+        pacmanFreezeTicks[game] = 0;
+        pacmanAlive[game] = true;
+        pacmanLastX[game] = pacmanX[game];
+        pacmanLastY[game] = pacmanY[game];
+        pacmanX[game] = layout.pacmanSpawnX;
+        pacmanY[game] = layout.pacmanSpawnY;
+        pacmanDirection[game] = UP;
+    }
+
+    /**
+     * Same as {@link GhostEntity#decide()}. The move is queued, and happens
+     * once every ghost has decided.
+     */
+    private void updateGhost(int game, @NotNull Layout layout, int ghost) {
+        int k = ghost * games + game;
+        int x = ghostX[k];
+        int y = ghostY[k];
+        int tileX = toTile(x);
+        int tileY = toTile(y);
+        int tile = layout.index(tileX, tileY);
+        byte current = layout.tiles[tile];
+        int speed = profile[game].getGhostSpeed(GHOST_STATES[ghostState[k]],
+            current == TUNNEL, layout.ghostElroy[ghost], pelletsRemaining[game]);
+
+        if (ghostState[k] == FRIGHTENED && frightenedTimer[game] == 0)
+            setGhostState(game, layout, k, ghostChase[game] ? CHASE : SCATTER);
+
+        // When the ghost is still in the ghost pen, it should just bounce
+        if (!ghostReleased[k]) {
+            byte direction = ghostDirection[k];
+            int nextTileX = toTile(x + DX[direction] * GhostEntity.PEN_SPEED);
+            int nextTileY = toTile(y + DY[direction] * GhostEntity.PEN_SPEED);
+            if (layout.index(nextTileX, nextTileY) != tile) {
+                direction = BEHIND[direction];
+                ghostDirection[k] = direction;
+            }
+
+            queueMove(k, direction, GhostEntity.PEN_SPEED, 0);
+            return;
+        }
+
+        // Move to the center of the pen, then straight up to get out
+        if (current == GHOST_PEN && ghostState[k] != EATEN) {
+            int dx = x - layout.penCenterX;
+            if (dx == 0) {
+                ghostDirection[k] = UP;
+                queueMove(k, UP, GhostEntity.PEN_SPEED, 0);
+                return;
+            }
+
+            ghostDirection[k] = dx > 0 ? LEFT : RIGHT;
+            queuePosition(k, NumberUtil.moveTowards(x, layout.penCenterX, GhostEntity.PEN_SPEED), y);
+            return;
+        }
+
+        if (ghostState[k] == EATEN) {
+            // Look down for an opening to enter the ghost pen
+            byte down = layout.tiles[layout.index(tileX, tileY - 1)];
+            if (down == GHOST_PEN) {
+                int newX = NumberUtil.moveTowards(x, layout.penCenterX, speed);
+                queuePosition(k, newX, y);
+                if (newX == layout.penCenterX) {
+                    ghostDirection[k] = DOWN;
+                    queueMove(k, DOWN, speed, 0);
+                }
+                return;
+            }
+
+            // If we hit a wall, revive
+            if (current == GHOST_PEN && down == WALL) {
+                setGhostState(game, layout, k, ghostChase[game] ? CHASE : SCATTER);
+                return;
+            }
+        }
+
+        // When the maze changes between scatter and chase mode, the ghost should too
+        if (ghostState[k] == CHASE && !ghostChase[game])
+            setGhostState(game, layout, k, SCATTER);
+        else if (ghostState[k] == SCATTER && ghostChase[game])
+            setGhostState(game, layout, k, CHASE);
+
+        // Ghosts only choose a new direction when they enter a new tile
+        int lastTile = layout.index(toTile(ghostLastX[k]), toTile(ghostLastY[k]));
+        if (lastTile != tile || ghostNextDirection[k] == NO_DIRECTION)
+            ghostNextDirection[k] = getGhostDirection(game, layout, ghost, tileX, tileY);
+
+        // Move to the center of the tile before turning
+        byte direction = ghostDirection[k];
+        if (ghostNextDirection[k] != direction) {
+            int centerX = toCenter(tileX);
+            int centerY = toCenter(tileY);
+            if (x != centerX || y != centerY) {
+                queuePosition(k, NumberUtil.moveTowards(x, centerX, speed), NumberUtil.moveTowards(y, centerY, speed));
+                return;
+            }
+
+            direction = ghostNextDirection[k];
+            ghostDirection[k] = direction;
+        }
+
+        if (!canMove(layout, x, y, direction))
+            return;
+
+        queueMove(k, direction, speed, MovementKernel.FIX_CENTER);
+    }
+
+    /**
+     * Same as the behaviors of {@link GhostEntity#getBehavior(GhostState)}.
+     */
+    private byte getGhostDirection(int game, @NotNull Layout layout, int ghost, int tileX, int tileY) {
+        int k = ghost * games + game;
+        byte direction = ghostDirection[k];
+        byte behind = BEHIND[direction];
+
+        // Frightened ghosts choose a random direction, rotating clockwise until it is valid
+        if (ghostState[k] == FRIGHTENED) {
+            byte choice = (byte) random[game].nextInt(DIRECTIONS.length);
+            while (choice == behind || !layout.canEnter(tileX, tileY, choice)) {
+                choice = TURN_RIGHT[choice];
+            }
+            return choice;
+        }
+
+        // In the middle of a corridor, there is only 1 way to go
+        byte corridor = layout.getCorridorDirection(tileX, tileY, direction);
+        if (corridor != NO_DIRECTION)
+            return corridor;
+
+        int targetX;
+        int targetY;
+        if (ghostState[k] == SCATTER) {
+            targetX = layout.ghostScatterX[ghost];
+            targetY = layout.ghostScatterY[ghost];
+        } else if (ghostState[k] == EATEN) {
+            targetX = layout.reviveTileX;
+            targetY = layout.reviveTileY;
+        } else {
+            int pacmanTileX = toTile(pacmanX[game]);
+            int pacmanTileY = toTile(pacmanY[game]);
+            byte pacmanDirection = this.pacmanDirection[game];
+            switch (layout.ghostChase[ghost]) {
+                case Layout.AMBUSH -> {
+                    targetX = pacmanTileX + DX[pacmanDirection] * 4;
+                    targetY = pacmanTileY + DY[pacmanDirection] * 4;
+                }
+                case Layout.PATROL -> {
+                    int blinky = layout.blinky * games + game;
+                    targetX = 2 * (pacmanTileX + DX[pacmanDirection] * 2) - toTile(ghostStartX[blinky]);
+                    targetY = 2 * (pacmanTileY + DY[pacmanDirection] * 2) - toTile(ghostStartY[blinky]);
+                }
+                case Layout.FEIGN -> {
+                    long dx = pacmanTileX - tileX;
+                    long dy = pacmanTileY - tileY;
+                    if (dx * dx + dy * dy > 64) {
+                        targetX = pacmanTileX;
+                        targetY = pacmanTileY;
+                    } else {
+                        targetX = layout.ghostScatterX[ghost];
+                        targetY = layout.ghostScatterY[ghost];
+                    }
+                }
+                default -> {
+                    targetX = pacmanTileX;
+                    targetY = pacmanTileY;
+                }
+            }
+        }
+
+        // Same as TargetableBehavior, ties go to the later direction
+        byte best = NO_DIRECTION;
+        int smallest = Integer.MAX_VALUE;
+        for (byte next = 0; next < DIRECTIONS.length; next++) {
+            if (next == behind)
+                continue;
+
+            if (!layout.canEnter(tileX, tileY, next))
+                continue;
+
+            int nextX = tileX + DX[next];
+            int nextY = tileY + DY[next];
+
+            int dx = nextX - targetX;
+            int dy = nextY - targetY;
+            int distance = dx * dx + dy * dy;
+            if (distance <= smallest) {
+                smallest = distance;
+                best = next;
+            }
+        }
+
+        return best == NO_DIRECTION ? direction : best;
+    }
+
+    /**
+     * Same as {@link GhostEntity#setState(GhostState)}.
+     */
+    private void setGhostState(int game, @NotNull Layout layout, int k, byte state) {
+        // Don't try to override the power pellet
+        if (state == FRIGHTENED && (ghostState[k] == FRIGHTENED || ghostState[k] == EATEN))
+            return;
+
+        ghostNextDirection[k] = NO_DIRECTION;
+
+        // Ghosts reverse when they change state, unless that backs them into a wall
+        byte direction = ghostDirection[k];
+        if (!canMove(layout, ghostX[k], ghostY[k], BEHIND[direction])) {
+            if (canMove(layout, ghostX[k], ghostY[k], TURN_RIGHT[direction])) {
+                direction = TURN_RIGHT[direction];
+            } else if (canMove(layout, ghostX[k], ghostY[k], TURN_LEFT[direction])) {
+                direction = TURN_LEFT[direction];
+            }
+        } else {
+            direction = BEHIND[direction];
+        }
+
+        ghostDirection[k] = direction;
+        ghostState[k] = state;
+    }
+
+    /**
+     * Same as {@link Maze#eatGhost(PacmanEntity, GhostEntity)}.
+     */
+    private void eatGhost(int game, @NotNull Layout layout, int k) {
+        // Ghosts can only be eaten when they are frightened
+        if (ghostState[k] == CHASE || ghostState[k] == SCATTER) {
+            pacmanAlive[game] = false;
+            return;
+        }
+        if (ghostState[k] == EATEN)
+            return;
+
+        setGhostState(game, layout, k, EATEN);
+        incrementScore(game, 200 * (int) Math.pow(2, ghostsEaten[game]));
+        freezeTicks[game] += 40;
+        ghostsEaten[game]++;
+    }
+
+    /**
+     * Same as {@link PacmanEntity#update()} after the behavior chose a
+     * direction, up until pacman moves.
+     */
+    private void queuePacmanMove(int game, @NotNull Layout layout) {
+        byte direction = pacmanDirection[game];
+        int x = pacmanX[game];
+        int y = pacmanY[game];
+        if (!canMove(layout, x, y, direction))
+            return;
+
+        // Pacman stops in the center of the tile instead of overshooting into a wall
+        int flags = MovementKernel.FIX_CENTER;
+        if (!layout.canEnter(toTile(x), toTile(y), direction))
+            flags |= MovementKernel.STOP;
+
+        queueMove(game, direction, profile[game].getPacmanSpeed(frightenedTimer[game] > 0), flags);
+    }
+
+    /**
+     * The rest of {@link PacmanEntity#update()}, after pacman moved.
+     */
+    private void eatPellet(int game, @NotNull Layout layout) {
+        byte eaten = eatPellet(game, layout, toTile(pacmanX[game]), toTile(pacmanY[game]));
+        if (eaten == PELLET) {
+            pacmanFreezeTicks[game] += 1;
+        } else if (eaten == POWER_PELLET) {
+            pacmanFreezeTicks[game] += 3;
+        }
+    }
+
+    /**
+     * Same as {@link Maze#eatPellet(PacmanEntity, int, int)}.
+     */
+    private byte eatPellet(int game, @NotNull Layout layout, int x, int y) {
+        int tile = layout.index(x, y);
+        byte state = layout.tiles[tile];
+        if (state != PELLET && state != POWER_PELLET)
+            return state;
+
+        int word = game * pelletWords + (tile >>> 6);
+        long bit = 1L << tile;
+        if ((pellets[word] & bit) == 0)
+            return SPACE;
+
+        pellets[word] &= ~bit;
+        pelletsRemaining[game]--;
+        if (state == PELLET) {
+            incrementScore(game, 10);
+
+            // Release the next ghost, once enough pellets are eaten
+            for (int ghost = 0; ghost < layout.ghostCount; ghost++) {
+                int k = ghost * games + game;
+                if (ghostReleased[k])
+                    continue;
+
+                if (ghostDotCounter[k] >= profile[game].getReleasePellets(ghost)) {
+                    ghostReleased[k] = true;
+                } else {
+                    ghostDotCounter[k]++;
+                }
+            }
+        } else {
+            ghostsEaten[game] = 0;
+            incrementScore(game, 50);
+
+            frightenedTimer[game] = profile[game].getFrightTicks();
+            for (int ghost = 0; ghost < layout.ghostCount; ghost++) {
+                setGhostState(game, layout, ghost * games + game, FRIGHTENED);
+            }
+        }
+
+        // Fruit spawns after 70 and 170 pellets, replacing any old fruit
+        int pelletsEaten = layout.totalPellets - pelletsRemaining[game];
+        if (pelletsEaten == 70 || pelletsEaten == 170) {
+            fruitTicksLeft[game] = FruitEntity.randomTicksLeft(random[game]);
+        }
+
+        return state;
+    }
+
+    /**
+     * Same as {@link FruitEntity#update()}, including the removal at the end
+     * of {@link Maze#update()}.
+     */
+    private void updateFruit(int game, @NotNull Layout layout) {
+        if (fruitTicksLeft[game] <= 0)
+            return;
+
+        fruitTicksLeft[game]--;
+        if (toTile(pacmanX[game]) == layout.fruitTileX && toTile(pacmanY[game]) == layout.fruitTileY) {
+            fruitTicksLeft[game] = 0;
+            incrementScore(game, profile[game].getFruitPoints());
+        }
+    }
+
+    /**
+     * Same as {@link GameManager#incrementScore(int)}.
+     */
+    private void incrementScore(int game, int points) {
+        int oldScore = score[game];
+        score[game] += points;
+
+        // Every time we pass a multiple of 10,000 points, add a new life
+        if (oldScore / 10000 != score[game] / 10000) {
+            extraLives[game]++;
+        }
+    }
+
+    private void setGhostPosition(int k, int x, int y) {
+        ghostLastX[k] = ghostX[k];
+        ghostLastY[k] = ghostY[k];
+        ghostX[k] = x;
+        ghostY[k] = y;
+    }
+
+    private void queuePosition(int k, int x, int y) {
+        positionQueued[k] = true;
+        queuedX[k] = x;
+        queuedY[k] = y;
+    }
+
+    /**
+     * Queues a move for the {@link MovementKernel}, for ghost <code>k</code>
+     * or for the pacman of game <code>k</code>.
+     */
+    private void queueMove(int k, byte direction, int speed, int flags) {
+        moveDirection[k] = direction;
+        moveSpeed[k] = speed;
+        moveFlags[k] = flags;
+    }
+
+    /**
+     * Same as {@link com.buaisociety.pacman.entity.Entity#canMove(Direction)}.
+     */
+    private static boolean canMove(@NotNull Layout layout, int x, int y, byte direction) {
+        int tileX = toTile(x);
+        int tileY = toTile(y);
+        if (!layout.canEnter(tileX, tileY, direction)) {
+            int toCenterX = Maze.toCenterPixel(tileX) - FixedPoint.toPixel(x);
+            int toCenterY = Maze.toCenterPixel(tileY) - FixedPoint.toPixel(y);
+            return toCenterX * DX[direction] + toCenterY * DY[direction] != 0;
+        }
+
+        return true;
+    }
+
+    private static int toTile(int fixed) {
+        return FixedPoint.toPixel(fixed) / Maze.TILE_SIZE;
+    }
+
+    private static int toCenter(int tile) {
+        return FixedPoint.fromPixels(Maze.toCenterPixel(tile));
+    }
+
+    private @NotNull Layout createLayout(@NotNull MazeTemplate template) {
+        // Only the levels in the preset were checked by the constructor
+        Layout layout = new Layout(template);
+        if (layout.ghostCount > ghostSlots || layout.pellets.length != pelletWords)
+            throw new IllegalStateException("Maze " + template.getName() + " does not fit in this batch");
+        return layout;
+    }
+
+    /**
+     * Returns the number of games in this simulator.
+     *
+     * @return the number of games
+     */
+    public int getGameCount() {
+        return games;
+    }
+
+    /**
+     * Returns true if the game is still running. A game stops when pacman runs
+     * out of lives, until it is {@link #reset(int) reset}.
+     *
+     * @param game the game
+     * @return true if the game is still running
+     */
+    public boolean isActive(int game) {
+        return active[game];
+    }
+
+    public @NotNull MazeTemplate getTemplate(int game) {
+        return layout[game].template;
+    }
+
+    public int getLevel(int game) {
+        return level[game];
+    }
+
+    public int getScore(int game) {
+        return score[game];
+    }
+
+    public int getExtraLives(int game) {
+        return extraLives[game];
+    }
+
+    /**
+     * Returns the number of ticks the current maze has been updated for, see
+     * {@link Maze#getTicks()}.
+     *
+     * @param game the game
+     * @return the number of ticks
+     */
+    public int getTicks(int game) {
+        return ticks[game];
+    }
+
+    public int getPelletsRemaining(int game) {
+        return pelletsRemaining[game];
+    }
+
+    public int getFrightenedTimer(int game) {
+        return frightenedTimer[game];
+    }
+
+    public boolean isGhostChase(int game) {
+        return ghostChase[game];
+    }
+
+    /**
+     * Returns the state of the tile at the given position. Coordinates wrap
+     * around the maze.
+     *
+     * @param game the game
+     * @param x The x-coordinate of the tile.
+     * @param y The y-coordinate of the tile.
+     * @return The state of the tile at the given position.
+     */
+    public @NotNull TileState getTileState(int game, int x, int y) {
+        Layout layout = this.layout[game];
+        int tile = layout.index(x, y);
+        byte state = layout.tiles[tile];
+        if ((state == PELLET || state == POWER_PELLET) && (pellets[game * pelletWords + (tile >>> 6)] & (1L << tile)) == 0)
+            return TileState.SPACE;
+        return TileState.byId(state);
+    }
+
+    /**
+     * Returns the number of tiles pacman would have to move from the given
+     * tile to reach the closest pellet, see {@link Maze#getClosestPelletDistance(int, int)}.
+     *
+     * @param game the game
+     * @param x The x-coordinate of the tile.
+     * @param y The y-coordinate of the tile.
+     * @return the distance in tiles, or {@link DistanceTable#UNREACHABLE} if no pellet can be reached
+     */
+    public int getClosestPelletDistance(int game, int x, int y) {
+        Layout layout = this.layout[game];
+        DistanceTable distances = layout.template.getDistances();
+        int from = layout.index(x, y);
+        int closest = DistanceTable.UNREACHABLE;
+
+        // Only visit the pellets that are left
+        int first = game * pelletWords;
+        for (int word = 0; word < pelletWords; word++) {
+            long bits = pellets[first + word];
+            while (bits != 0) {
+                int tile = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+
+                int distance = distances.getDistance(from, tile);
+                if (distance != DistanceTable.UNREACHABLE && (closest == DistanceTable.UNREACHABLE || distance < closest)) {
+                    closest = distance;
+                    if (closest == 0)
+                        return closest;
+                }
+            }
+        }
+        return closest;
+    }
+
+    public int getPacmanTileX(int game) {
+        return toTile(pacmanX[game]);
+    }
+
+    public int getPacmanTileY(int game) {
+        return toTile(pacmanY[game]);
+    }
+
+    /**
+     * Returns the x coordinate of pacman, in sub-pixels.
+     *
+     * @param game the game
+     * @return the x coordinate, in sub-pixels
+     * @see FixedPoint
+     */
+    public int getPacmanFixedX(int game) {
+        return pacmanX[game];
+    }
+
+    /**
+     * Returns the y coordinate of pacman, in sub-pixels.
+     *
+     * @param game the game
+     * @return the y coordinate, in sub-pixels
+     * @see FixedPoint
+     */
+    public int getPacmanFixedY(int game) {
+        return pacmanY[game];
+    }
+
+    public @NotNull Direction getPacmanDirection(int game) {
+        return DIRECTIONS[pacmanDirection[game]];
+    }
+
+    public boolean isPacmanAlive(int game) {
+        return pacmanAlive[game];
+    }
+
+    /**
+     * Returns true if pacman could move forward in the given direction, see
+     * {@link com.buaisociety.pacman.entity.Entity#canMove(Direction)}.
+     *
+     * @param game the game
+     * @param direction the direction to check
+     * @return true if pacman can move in the given direction
+     */
+    public boolean canPacmanMove(int game, @NotNull Direction direction) {
+        return canMove(layout[game], pacmanX[game], pacmanY[game], (byte) direction.ordinal());
+    }
+
+    /**
+     * Returns the number of ghosts in the current level of the given game.
+     * Ghosts are ordered by the order they are released from the ghost pen.
+     *
+     * @param game the game
+     * @return the number of ghosts
+     */
+    public int getGhostCount(int game) {
+        return layout[game].ghostCount;
+    }
+
+    public int getGhostTileX(int game, int ghost) {
+        return toTile(ghostX[ghost * games + game]);
+    }
+
+    public int getGhostTileY(int game, int ghost) {
+        return toTile(ghostY[ghost * games + game]);
+    }
+
+    public int getGhostFixedX(int game, int ghost) {
+        return ghostX[ghost * games + game];
+    }
+
+    public int getGhostFixedY(int game, int ghost) {
+        return ghostY[ghost * games + game];
+    }
+
+    public @NotNull Direction getGhostDirection(int game, int ghost) {
+        return DIRECTIONS[ghostDirection[ghost * games + game]];
+    }
+
+    public @NotNull GhostState getGhostState(int game, int ghost) {
+        return GHOST_STATES[ghostState[ghost * games + game]];
+    }
+
+    /**
+     * Returns true if there is a fruit in the maze.
+     *
+     * @param game the game
+     * @return true if there is a fruit
+     */
+    public boolean hasFruit(int game) {
+        return fruitTicksLeft[game] > 0;
+    }
+
+
+    /**
+     * The static parts of a {@link MazeTemplate}, unpacked into arrays.
+     */
+    private static final class Layout {
+
+        private static final byte AGGRESSIVE = 0;
+        private static final byte AMBUSH = 1;
+        private static final byte PATROL = 2;
+        private static final byte FEIGN = 3;
+
+        private final @NotNull MazeTemplate template;
+        private final int width;
+        private final int height;
+        private final byte[] tiles;
+        private final byte[] moves;  // see Maze#getMoves(int), walls never change in a batch
+        private final long[] pellets;
+        private final int totalPellets;
+        private final int pacmanSpawnX;
+        private final int pacmanSpawnY;
+        private final int fruitTileX;
+        private final int fruitTileY;
+        private final int reviveTileX;
+        private final int reviveTileY;
+        private final int penCenterX;
+
+        private final int[] ghostSpawnX;
+        private final int[] ghostSpawnY;
+        private final byte[] ghostSpawnDirection;
+        private final boolean[] ghostSpawnReleased;
+        private final boolean[] ghostElroy;
+        private final int[] ghostScatterX;
+        private final int[] ghostScatterY;
+        private final int ghostCount;
+        private final byte[] ghostChase;
+        private final int blinky;  // the ghost that patrol ghosts coordinate with
+
+        private Layout(@NotNull MazeTemplate template) {
+            this.template = template;
+            this.width = template.getWidth();
+            this.height = template.getHeight();
+            this.tiles = template.copyTiles();
+            this.moves = template.copyMoves();
+            this.pellets = new long[(tiles.length + 63) >>> 6];
+            for (int i = 0; i < tiles.length; i++) {
+                if (tiles[i] == PELLET || tiles[i] == POWER_PELLET)
+                    pellets[i >>> 6] |= 1L << i;
+            }
+            this.totalPellets = template.getTotalPellets();
+            this.pacmanSpawnX = FixedPoint.fromPixels(template.getPacmanSpawnPixel().x());
+            this.pacmanSpawnY = FixedPoint.fromPixels(template.getPacmanSpawnPixel().y());
+            this.fruitTileX = template.getFruitSpawnPixel().x() / Maze.TILE_SIZE;
+            this.fruitTileY = template.getFruitSpawnPixel().y() / Maze.TILE_SIZE;
+            this.reviveTileX = template.getGhostRevivePixel().x() / Maze.TILE_SIZE;
+            this.reviveTileY = template.getGhostRevivePixel().y() / Maze.TILE_SIZE;
+            this.penCenterX = FixedPoint.fromPixels(width * Maze.TILE_SIZE / 2);
+
+            List<MazeTemplate.GhostTemplate> ghosts = template.getGhosts();
+            int count = ghosts.size();
+            this.ghostCount = count;
+            this.ghostSpawnX = new int[count];
+            this.ghostSpawnY = new int[count];
+            this.ghostSpawnDirection = new byte[count];
+            this.ghostSpawnReleased = new boolean[count];
+            this.ghostElroy = new boolean[count];
+            this.ghostScatterX = new int[count];
+            this.ghostScatterY = new int[count];
+            this.ghostChase = new byte[count];
+
+            int blinky = -1;
+            boolean hasPatrol = false;
+            for (int i = 0; i < count; i++) {
+                MazeTemplate.GhostTemplate ghost = ghosts.get(i);
+                ghostSpawnX[i] = FixedPoint.fromPixels(ghost.getSpawnPixel().x());
+                ghostSpawnY[i] = FixedPoint.fromPixels(ghost.getSpawnPixel().y());
+                ghostSpawnDirection[i] = (byte) ghost.getSpawnDirection().ordinal();
+                ghostSpawnReleased[i] = ghost.isReleased();
+                ghostElroy[i] = ghost.isElroy();
+                ghostScatterX[i] = ghost.getScatterTile().x();
+                ghostScatterY[i] = ghost.getScatterTile().y();
+
+                Class<? extends Behavior> chase = ghost.getChaseBehaviorType();
+                if (chase == AggressiveChaseBehavior.class) {
+                    ghostChase[i] = AGGRESSIVE;
+                    if (blinky == -1)
+                        blinky = i;
+                } else if (chase == AmbushChaseBehavior.class) {
+                    ghostChase[i] = AMBUSH;
+                } else if (chase == PatrolChaseBehavior.class) {
+                    ghostChase[i] = PATROL;
+                    hasPatrol = true;
+                } else if (chase == FeignChaseBehavior.class) {
+                    ghostChase[i] = FEIGN;
+                } else {
+                    throw new IllegalArgumentException("Cannot simulate chase behavior " + chase.getName() + " of " + ghost.getName() + " in a batch");
+                }
+            }
+
+            if (hasPatrol && blinky == -1)
+                throw new IllegalStateException("No ghost found in maze");
+            this.blinky = blinky;
+        }
+
+        private int index(int x, int y) {
+            return Math.floorMod(y, height) * width + Math.floorMod(x, width);
+        }
+
+        /**
+         * Returns true if the tile next to the given tile (inside the maze)
+         * is passable to every entity, see {@link Maze#canEnter(int, Direction)}.
+         */
+        private boolean canEnter(int tileX, int tileY, int direction) {
+            return (moves[tileY * width + tileX] & (1 << direction)) != 0;
+        }
+
+        /**
+         * Same as {@link Maze#getCorridorDirection(int, Direction)}, or
+         * {@link #NO_DIRECTION} when there is a choice to make.
+         */
+        private byte getCorridorDirection(int tileX, int tileY, byte direction) {
+            int exits = moves[tileY * width + tileX] & ((1 << Maze.GHOST_MOVES_SHIFT) - 1);
+            int behind = 1 << BEHIND[direction];
+            if ((exits & behind) == 0 || Integer.bitCount(exits) != 2)
+                return NO_DIRECTION;
+
+            return (byte) Integer.numberOfTrailingZeros(exits & ~behind);
+        }
+    }
+}
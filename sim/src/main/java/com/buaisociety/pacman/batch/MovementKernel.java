@@ -0,0 +1,83 @@
+package com.buaisociety.pacman.batch;
+
+import com.buaisociety.pacman.entity.Direction;
+import com.buaisociety.pacman.entity.Entity;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Moves entities and detects collisions for many games at once. This is the
+ * data-parallel part of {@link BatchSimulator#step(BatchBehavior)}: every
+ * decision has already been made, so the same arithmetic runs for each game.
+ *
+ * <p>Positions are in sub-pixels, and are never negative since they wrap
+ * around the maze. Directions are {@link Direction#ordinal()}s.
+ */
+interface MovementKernel {
+
+    /**
+     * Also move towards the center of the lane, see {@link Entity#move(Direction, int, boolean)}.
+     */
+    int FIX_CENTER = 1;
+
+    /**
+     * The next tile is not passable, so move towards the center of the
+     * current tile instead of moving forward. Only used by pacman.
+     */
+    int STOP = 2;
+
+    /**
+     * Moves every entity <code>i</code> in <code>[from, to)</code> that has a
+     * positive <code>speed[i]</code>, the same way as
+     * {@link Entity#move(Direction, int, boolean)}. Entity <code>i</code> is
+     * stored at <code>x[offset + i]</code>.
+     *
+     * @param x the x coordinates
+     * @param y the y coordinates
+     * @param lastX set to the old x coordinates of the entities that move
+     * @param lastY set to the old y coordinates of the entities that move
+     * @param offset the index of the first entity in the position arrays
+     * @param from the first entity to move, inclusive
+     * @param to the last entity to move, exclusive
+     * @param direction the direction to move in
+     * @param speed the distance to move, 0 to not move at all
+     * @param flags {@link #FIX_CENTER} and/or {@link #STOP}
+     */
+    void move(int[] x, int[] y, int[] lastX, int[] lastY, int offset, int from, int to, int[] direction, int[] speed, int[] flags);
+
+    /**
+     * Sets <code>collisions[offset + i]</code> to true if ghost
+     * <code>i</code> (stored at <code>ghostX[offset + i]</code>) is on the
+     * same tile as pacman <code>i</code>, for every <code>i</code> in
+     * <code>[0, count)</code>.
+     *
+     * @param ghostX the x coordinates of the ghosts
+     * @param ghostY the y coordinates of the ghosts
+     * @param offset the index of the first ghost
+     * @param pacmanX the x coordinates of pacman
+     * @param pacmanY the y coordinates of pacman
+     * @param count the number of games
+     * @param collisions the output
+     */
+    void collide(int[] ghostX, int[] ghostY, int offset, int[] pacmanX, int[] pacmanY, int count, boolean[] collisions);
+
+    /**
+     * Returns the vector kernel when the <code>jdk.incubator.vector</code>
+     * module is enabled (with <code>--add-modules jdk.incubator.vector</code>),
+     * otherwise the scalar kernel.
+     *
+     * @param width the width of the maze, in sub-pixels
+     * @param height the height of the maze, in sub-pixels
+     * @return the fastest kernel available
+     */
+    static @NotNull MovementKernel create(int width, int height) {
+        ScalarMovementKernel scalar = new ScalarMovementKernel(width, height);
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty())
+            return scalar;
+
+        try {
+            return new VectorMovementKernel(scalar);
+        } catch (LinkageError e) {
+            return scalar;
+        }
+    }
+}
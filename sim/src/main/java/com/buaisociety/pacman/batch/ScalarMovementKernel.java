@@ -0,0 +1,95 @@
+package com.buaisociety.pacman.batch;
+
+import com.buaisociety.pacman.entity.Direction;
+import com.buaisociety.pacman.maze.Maze;
+import com.buaisociety.pacman.util.FixedPoint;
+import com.buaisociety.pacman.util.NumberUtil;
+
+/**
+ * The plain java {@link MovementKernel}, 1 entity at a time. Used when the
+ * vector module is not available, and for the leftover entities that do not
+ * fill a whole vector.
+ */
+final class ScalarMovementKernel implements MovementKernel {
+
+    private static final int[] DX = new int[Direction.values().length];
+    private static final int[] DY = new int[Direction.values().length];
+
+    static {
+        for (Direction direction : Direction.values()) {
+            DX[direction.ordinal()] = direction.getDx();
+            DY[direction.ordinal()] = direction.getDy();
+        }
+    }
+
+    private final int width;
+    private final int height;
+
+    ScalarMovementKernel(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    int getHeight() {
+        return height;
+    }
+
+    @Override
+    public void move(int[] x, int[] y, int[] lastX, int[] lastY, int offset, int from, int to, int[] direction, int[] speed, int[] flags) {
+        for (int i = from; i < to; i++) {
+            int distance = speed[i];
+            if (distance <= 0)
+                continue;
+
+            int k = offset + i;
+            int newX = x[k];
+            int newY = y[k];
+            int centerX = FixedPoint.fromPixels(Maze.toCenterPixel(toTile(newX)));
+            int centerY = FixedPoint.fromPixels(Maze.toCenterPixel(toTile(newY)));
+            int dx = DX[direction[i]];
+            int dy = DY[direction[i]];
+
+            // To prevent overshooting, move towards the center of the current tile
+            if ((flags[i] & STOP) != 0) {
+                newX = NumberUtil.moveTowards(newX, centerX, distance);
+                newY = NumberUtil.moveTowards(newY, centerY, distance);
+            } else {
+                newX += distance * dx;
+                newY += distance * dy;
+            }
+
+            if ((flags[i] & FIX_CENTER) != 0) {
+                if (dy == 0) {
+                    newY = NumberUtil.moveTowards(newY, centerY, distance);
+                } else {
+                    newX = NumberUtil.moveTowards(newX, centerX, distance);
+                }
+            }
+
+            lastX[k] = x[k];
+            lastY[k] = y[k];
+            x[k] = Math.floorMod(newX, width);
+            y[k] = Math.floorMod(newY, height);
+        }
+    }
+
+    @Override
+    public void collide(int[] ghostX, int[] ghostY, int offset, int[] pacmanX, int[] pacmanY, int count, boolean[] collisions) {
+        collide(ghostX, ghostY, offset, pacmanX, pacmanY, 0, count, collisions);
+    }
+
+    void collide(int[] ghostX, int[] ghostY, int offset, int[] pacmanX, int[] pacmanY, int from, int to, boolean[] collisions) {
+        for (int i = from; i < to; i++) {
+            int k = offset + i;
+            collisions[k] = toTile(ghostX[k]) == toTile(pacmanX[i]) && toTile(ghostY[k]) == toTile(pacmanY[i]);
+        }
+    }
+
+    private static int toTile(int fixed) {
+        return FixedPoint.toPixel(fixed) / Maze.TILE_SIZE;
+    }
+}
@@ -0,0 +1,115 @@
+package com.buaisociety.pacman.batch;
+
+import com.buaisociety.pacman.entity.Direction;
+import com.buaisociety.pacman.maze.Maze;
+import com.buaisociety.pacman.util.FixedPoint;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A {@link MovementKernel} that handles as many games per instruction as the
+ * CPU's vector registers allow (e.g. 8 games with AVX2).
+ *
+ * <p>This class uses the incubating <code>jdk.incubator.vector</code> module,
+ * so it must only be loaded when that module is enabled, see
+ * {@link MovementKernel#create(int, int)}. Branches are replaced by masks,
+ * and the results are exactly the same as the {@link ScalarMovementKernel}.
+ */
+final class VectorMovementKernel implements MovementKernel {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    // Positions are never negative, so a shift gives the same tile as dividing
+    private static final int TILE_SHIFT = FixedPoint.SHIFT + Integer.numberOfTrailingZeros(Maze.TILE_SIZE);
+    private static final int TILE_SIZE = FixedPoint.fromPixels(Maze.TILE_SIZE);
+    private static final int TILE_CENTER = FixedPoint.fromPixels(Maze.toCenterPixel(0));
+
+    private static final int UP = Direction.UP.ordinal();
+    private static final int DOWN = Direction.DOWN.ordinal();
+    private static final int LEFT = Direction.LEFT.ordinal();
+    private static final int RIGHT = Direction.RIGHT.ordinal();
+
+    private final @NotNull ScalarMovementKernel tail;
+    private final int width;
+    private final int height;
+
+    VectorMovementKernel(@NotNull ScalarMovementKernel tail) {
+        this.tail = tail;
+        this.width = tail.getWidth();
+        this.height = tail.getHeight();
+    }
+
+    @Override
+    public void move(int[] x, int[] y, int[] lastX, int[] lastY, int offset, int from, int to, int[] direction, int[] speed, int[] flags) {
+        int i = from;
+        int upper = from + SPECIES.loopBound(to - from);
+        for (; i < upper; i += SPECIES.length()) {
+            IntVector distance = IntVector.fromArray(SPECIES, speed, i);
+            VectorMask<Integer> moving = distance.compare(VectorOperators.GT, 0);
+            if (!moving.anyTrue())
+                continue;
+
+            int k = offset + i;
+            IntVector oldX = IntVector.fromArray(SPECIES, x, k);
+            IntVector oldY = IntVector.fromArray(SPECIES, y, k);
+            IntVector dir = IntVector.fromArray(SPECIES, direction, i);
+            IntVector flag = IntVector.fromArray(SPECIES, flags, i);
+
+            IntVector zero = IntVector.zero(SPECIES);
+            IntVector dx = zero.blend(1, dir.eq(RIGHT)).blend(-1, dir.eq(LEFT));
+            IntVector dy = zero.blend(1, dir.eq(UP)).blend(-1, dir.eq(DOWN));
+            IntVector centerX = oldX.lanewise(VectorOperators.ASHR, TILE_SHIFT).mul(TILE_SIZE).add(TILE_CENTER);
+            IntVector centerY = oldY.lanewise(VectorOperators.ASHR, TILE_SHIFT).mul(TILE_SIZE).add(TILE_CENTER);
+
+            // Move forward, or towards the center of the tile when stopping at a wall
+            VectorMask<Integer> stop = flag.and(STOP).compare(VectorOperators.NE, 0);
+            IntVector newX = oldX.add(distance.mul(dx)).blend(moveTowards(oldX, centerX, distance), stop);
+            IntVector newY = oldY.add(distance.mul(dy)).blend(moveTowards(oldY, centerY, distance), stop);
+
+            VectorMask<Integer> fixCenter = flag.and(FIX_CENTER).compare(VectorOperators.NE, 0);
+            VectorMask<Integer> horizontal = dy.eq(0);
+            newY = newY.blend(moveTowards(newY, centerY, distance), fixCenter.and(horizontal));
+            newX = newX.blend(moveTowards(newX, centerX, distance), fixCenter.andNot(horizontal));
+
+            // Entities move less than 1 maze per tick, so 1 wrap is enough
+            newX = newX.add(width, newX.lt(0));
+            newX = newX.sub(width, newX.compare(VectorOperators.GE, width));
+            newY = newY.add(height, newY.lt(0));
+            newY = newY.sub(height, newY.compare(VectorOperators.GE, height));
+
+            oldX.intoArray(lastX, k, moving);
+            oldY.intoArray(lastY, k, moving);
+            newX.intoArray(x, k, moving);
+            newY.intoArray(y, k, moving);
+        }
+
+        tail.move(x, y, lastX, lastY, offset, i, to, direction, speed, flags);
+    }
+
+    @Override
+    public void collide(int[] ghostX, int[] ghostY, int offset, int[] pacmanX, int[] pacmanY, int count, boolean[] collisions) {
+        int i = 0;
+        int upper = SPECIES.loopBound(count);
+        for (; i < upper; i += SPECIES.length()) {
+            IntVector tileX = IntVector.fromArray(SPECIES, ghostX, offset + i).lanewise(VectorOperators.ASHR, TILE_SHIFT);
+            IntVector tileY = IntVector.fromArray(SPECIES, ghostY, offset + i).lanewise(VectorOperators.ASHR, TILE_SHIFT);
+            IntVector pacmanTileX = IntVector.fromArray(SPECIES, pacmanX, i).lanewise(VectorOperators.ASHR, TILE_SHIFT);
+            IntVector pacmanTileY = IntVector.fromArray(SPECIES, pacmanY, i).lanewise(VectorOperators.ASHR, TILE_SHIFT);
+            tileX.eq(pacmanTileX).and(tileY.eq(pacmanTileY)).intoArray(collisions, offset + i);
+        }
+
+        tail.collide(ghostX, ghostY, offset, pacmanX, pacmanY, i, count, collisions);
+    }
+
+    /**
+     * Same as {@link com.buaisociety.pacman.util.NumberUtil#moveTowards(int, int, int)}, per lane.
+     */
+    private static @NotNull IntVector moveTowards(@NotNull IntVector current, @NotNull IntVector target, @NotNull IntVector maxDelta) {
+        IntVector up = current.add(maxDelta).min(target);
+        IntVector down = current.sub(maxDelta).max(target);
+        return down.blend(up, current.lt(target));
+    }
+}
@@ -0,0 +1,336 @@
+package com.buaisociety.pacman.entity;
+
+import com.buaisociety.pacman.GameSnapshot;
+import com.buaisociety.pacman.entity.behavior.Behavior;
+import com.buaisociety.pacman.maze.Maze;
+import com.buaisociety.pacman.util.FixedPoint;
+import com.buaisociety.pacman.util.NumberUtil;
+import org.jetbrains.annotations.NotNull;
+import org.joml.Vector2d;
+import org.joml.Vector2dc;
+import org.joml.Vector2i;
+import org.joml.Vector2ic;
+
+/**
+ * Represents an entity in the game.
+ */
+public abstract class Entity {
+
+    public static final double BASE_SPEED = 1.26262627083;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    protected final @NotNull Maze maze;
+    protected final @NotNull EntityType type;
+    protected int ticksAlive;
+    protected Vector2i spawnTile;
+
+    // Positions are stored in fixed point, see FixedPoint
+    protected int x;
+    protected int y;
+    protected int lastX;
+    protected int lastY;
+    protected Direction direction;
+
+    protected Entity(@NotNull Maze maze, @NotNull EntityType type) {
+        this.maze = maze;
+        this.type = type;
+        this.ticksAlive = 0;
+        this.spawnTile = new Vector2i();
+        this.direction = Direction.UP;
+    }
+
+    public @NotNull Maze getMaze() {
+        return maze;
+    }
+
+    public @NotNull EntityType getType() {
+        return type;
+    }
+
+    public int getTicksAlive() {
+        return ticksAlive;
+    }
+
+    /**
+     * Returns a copy of the position of this entity, in pixels. Prefer
+     * {@link #getFixedX()} and {@link #getFixedY()} in code that runs every
+     * tick, since they do not allocate.
+     *
+     * @return the position of this entity.
+     */
+    public @NotNull Vector2d getPosition() {
+        return new Vector2d(FixedPoint.toPixels(x), FixedPoint.toPixels(y));
+    }
+
+    public @NotNull Vector2d getLastPosition() {
+        return new Vector2d(FixedPoint.toPixels(lastX), FixedPoint.toPixels(lastY));
+    }
+
+    public void setPosition(@NotNull Vector2dc position) {
+        setFixedPosition(FixedPoint.fromPixels(position.x()), FixedPoint.fromPixels(position.y()));
+    }
+
+    /**
+     * Sets the position of this entity, in sub-pixels.
+     *
+     * @param x the x coordinate, in sub-pixels.
+     * @param y the y coordinate, in sub-pixels.
+     */
+    public void setFixedPosition(int x, int y) {
+        this.lastX = this.x;
+        this.lastY = this.y;
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * Returns the x coordinate of this entity, in sub-pixels.
+     *
+     * @return the x coordinate, in sub-pixels.
+     * @see FixedPoint
+     */
+    public int getFixedX() {
+        return x;
+    }
+
+    /**
+     * Returns the y coordinate of this entity, in sub-pixels.
+     *
+     * @return the y coordinate, in sub-pixels.
+     * @see FixedPoint
+     */
+    public int getFixedY() {
+        return y;
+    }
+
+    /**
+     * Returns the x coordinate of this entity before its last move, in sub-pixels.
+     *
+     * @return the last x coordinate, in sub-pixels.
+     */
+    public int getLastFixedX() {
+        return lastX;
+    }
+
+    /**
+     * Returns the y coordinate of this entity before its last move, in sub-pixels.
+     *
+     * @return the last y coordinate, in sub-pixels.
+     */
+    public int getLastFixedY() {
+        return lastY;
+    }
+
+    /**
+     * Returns the x coordinate of the pixel this entity is in.
+     *
+     * @return the x coordinate, in pixels.
+     */
+    public int getPixelX() {
+        return FixedPoint.toPixel(x);
+    }
+
+    /**
+     * Returns the y coordinate of the pixel this entity is in.
+     *
+     * @return the y coordinate, in pixels.
+     */
+    public int getPixelY() {
+        return FixedPoint.toPixel(y);
+    }
+
+    public @NotNull Vector2i getTilePosition() {
+        return new Vector2i(getTileX(), getTileY());
+    }
+
+    /**
+     * Returns the x coordinate of the tile this entity is in. Unlike
+     * {@link #getTilePosition()}, this does not allocate.
+     *
+     * @return the x coordinate of the current tile.
+     */
+    public int getTileX() {
+        return getPixelX() / Maze.TILE_SIZE;
+    }
+
+    /**
+     * Returns the y coordinate of the tile this entity is in. Unlike
+     * {@link #getTilePosition()}, this does not allocate.
+     *
+     * @return the y coordinate of the current tile.
+     */
+    public int getTileY() {
+        return getPixelY() / Maze.TILE_SIZE;
+    }
+
+    /**
+     * Returns the index of the tile this entity is in, see
+     * {@link Maze#index(int, int)}. Positions always wrap to the inside of
+     * the maze, so this skips the wrapping that {@link Maze#index(int, int)}
+     * does.
+     *
+     * @return the index of the current tile.
+     */
+    public int getTileIndex() {
+        return getTileY() * maze.getWidth() + getTileX();
+    }
+
+    public @NotNull Vector2i getSpawnTile() {
+        return spawnTile;
+    }
+
+    public @NotNull Direction getDirection() {
+        return direction;
+    }
+
+    public void setDirection(@NotNull Direction direction) {
+        this.direction = direction;
+    }
+
+    /**
+     * Called by {@link Maze#reset()} to reset the entity to its initial state
+     * when Pacman dies and respawns.
+     */
+    public void reset() {
+    }
+
+    /**
+     * Returns true if the entity should be removed from the game (permanent death).
+     *
+     * @return true if the entity should be removed.
+     */
+    public boolean isRemove() {
+        return false;
+    }
+
+    /**
+     * Returns the speed of the entity in pixels per frame.
+     *
+     * @return the speed of the entity.
+     */
+    public double getSpeed() {
+        return FixedPoint.toPixels(getFixedSpeed());
+    }
+
+    /**
+     * Returns the speed of the entity in sub-pixels per frame.
+     *
+     * @return the speed of the entity.
+     * @see FixedPoint
+     */
+    public abstract int getFixedSpeed();
+
+    /**
+     * Returns the current behavior (the behavior to handle the next movement)
+     * of the entity.
+     *
+     * @return the behavior of the entity.
+     */
+    public abstract @NotNull Behavior getBehavior();
+
+    /**
+     * Returns true if, if the entity were to face the given direction, it would
+     * be able to move forward in that direction. Note that Pacman can "corner,"
+     * meaning that he can "move into a wall" partially, so long as it is on a
+     * corner.
+     *
+     * @param direction the direction to check.
+     * @return true if the entity can move in the given direction.
+     */
+    public boolean canMove(@NotNull Direction direction) {
+        int tileX = getTileX();
+        int tileY = getTileY();
+
+        // When the next tile is not passable, the only case we can move forward
+        // in that direction is when we still have some space to move in the
+        // current tile (in pixel coordinates).
+        if (!maze.canEnter(tileY * maze.getWidth() + tileX, direction)) {
+            int toCenterX = Maze.toCenterPixel(tileX) - getPixelX();
+            int toCenterY = Maze.toCenterPixel(tileY) - getPixelY();
+            int dot = toCenterX * direction.getDx() + toCenterY * direction.getDy();
+
+            return Math.abs(dot) > 0;
+        }
+
+        return true;
+    }
+
+    /**
+     * Moves the entity in the given direction.
+     *
+     * @param direction the direction to move in.
+     * @param speed the distance to move, in sub-pixels.
+     * @param fixCenter true to also move towards the center of the lane.
+     */
+    public void move(@NotNull Direction direction, int speed, boolean fixCenter) {
+        int x = this.x;
+        int y = this.y;
+
+        int tileX = getTileX();
+        int tileY = getTileY();
+        int centerX = FixedPoint.fromPixels(Maze.toCenterPixel(tileX));
+        int centerY = FixedPoint.fromPixels(Maze.toCenterPixel(tileY));
+
+        // To prevent overshooting, we should move towards the center of the current tile
+        if (this instanceof PacmanEntity && !maze.canEnter(tileY * maze.getWidth() + tileX, direction)) {
+            x = NumberUtil.moveTowards(x, centerX, speed);
+            y = NumberUtil.moveTowards(y, centerY, speed);
+        } else {
+            x += speed * direction.getDx();
+            y += speed * direction.getDy();
+        }
+
+        if (fixCenter) {
+            if (direction.isHorizontal()) {
+                y = NumberUtil.moveTowards(y, centerY, speed);
+            } else {
+                x = NumberUtil.moveTowards(x, centerX, speed);
+            }
+        }
+
+        // When going through a tunnel, we need to wrap around the maze.
+        Vector2ic pixels = maze.getPixelDimensions();
+        setFixedPosition(
+            Math.floorMod(x, FixedPoint.fromPixels(pixels.x())),
+            Math.floorMod(y, FixedPoint.fromPixels(pixels.y()))
+        );
+    }
+
+    /**
+     * Writes the dynamic state of this entity to the snapshot. Subclasses
+     * with more state should call super, then write their own state.
+     *
+     * @param snapshot the snapshot to write to
+     */
+    public void writeState(@NotNull GameSnapshot snapshot) {
+        snapshot.writeInt(ticksAlive);
+        snapshot.writeInt(x);
+        snapshot.writeInt(y);
+        snapshot.writeInt(lastX);
+        snapshot.writeInt(lastY);
+        snapshot.writeInt(direction.ordinal());
+    }
+
+    /**
+     * Reads the state written by {@link #writeState(GameSnapshot)}, in the
+     * same order.
+     *
+     * @param snapshot the snapshot to read from
+     */
+    public void readState(@NotNull GameSnapshot snapshot) {
+        ticksAlive = snapshot.readInt();
+        x = snapshot.readInt();
+        y = snapshot.readInt();
+        lastX = snapshot.readInt();
+        lastY = snapshot.readInt();
+        direction = DIRECTIONS[snapshot.readInt()];
+    }
+
+    /**
+     * Updates the entity's state. This method is called once per frame, before
+     * rendering the entity.
+     */
+    public void update() {
+        ticksAlive++;
+    }
+}
@@ -0,0 +1,119 @@
+package com.buaisociety.pacman.entity;
+
+import com.buaisociety.pacman.GameSnapshot;
+import com.buaisociety.pacman.entity.behavior.Behavior;
+import com.buaisociety.pacman.maze.BonusPoints;
+import com.buaisociety.pacman.maze.Maze;
+import org.jetbrains.annotations.NotNull;
+import org.joml.Vector2d;
+
+import java.util.random.RandomGenerator;
+
+public class FruitEntity extends Entity {
+
+    private int ticksLeft;
+    private boolean isRemove;
+
+    public FruitEntity(@NotNull Maze maze, @NotNull Config config) {
+        super(maze, EntityType.FRUIT);
+        setPosition(config.spawnPixel);
+        this.ticksLeft = config.ticksLeft;
+    }
+
+    /**
+     * Returns true if the entity should be removed from the game (permanent death).
+     *
+     * @return true if the entity should be removed.
+     */
+    @Override
+    public boolean isRemove() {
+        return isRemove;
+    }
+
+    /**
+     * Returns the number of ticks before the fruit disappears.
+     *
+     * @return the number of ticks left
+     */
+    public int getTicksLeft() {
+        return ticksLeft;
+    }
+
+    /**
+     * Returns the speed of the entity in sub-pixels per frame.
+     *
+     * @return the speed of the entity.
+     */
+    @Override
+    public int getFixedSpeed() {
+        return 0;
+    }
+
+    /**
+     * Returns the current behavior (the behavior to handle the next movement) of the entity.
+     *
+     * @return the behavior of the entity.
+     */
+    @Override
+    public @NotNull Behavior getBehavior() {
+        throw new UnsupportedOperationException("Fruit entity does not have a behavior");
+    }
+
+    /**
+     * Updates the entity's state. This method is called once per frame, before rendering the entity.
+     */
+    @Override
+    public void update() {
+        if (isRemove)
+            return;
+
+        super.update();
+
+        ticksLeft--;
+        if (ticksLeft <= 0) {
+            isRemove = true;
+        }
+
+        int pacmen = maze.getPacmenAt(getTileX(), getTileY());
+        if (pacmen != 0) {
+            isRemove = true;
+
+            // With several pacmen on the tile, the first one gets the points
+            PacmanEntity pacman = maze.getPacman(Integer.numberOfTrailingZeros(pacmen));
+            int score = maze.getProfile().getFruitPoints();
+            maze.getLevelManager().incrementScore(pacman.getPlayer(), score);
+            maze.addBonusPoints(new BonusPoints(EntityType.FRUIT, getPosition(), score, 180));
+        }
+    }
+
+    @Override
+    public void writeState(@NotNull GameSnapshot snapshot) {
+        super.writeState(snapshot);
+        snapshot.writeInt(ticksLeft);
+        snapshot.writeBoolean(isRemove);
+    }
+
+    @Override
+    public void readState(@NotNull GameSnapshot snapshot) {
+        super.readState(snapshot);
+        ticksLeft = snapshot.readInt();
+        isRemove = snapshot.readBoolean();
+    }
+
+    /**
+     * Returns a random number of ticks for a fruit to stay in the maze, between
+     * 9 and 10 seconds.
+     *
+     * @param random the source of randomness, see {@link com.buaisociety.pacman.GameManager#getRandom()}
+     * @return the number of ticks the fruit stays
+     */
+    public static int randomTicksLeft(@NotNull RandomGenerator random) {
+        return random.nextInt(9 * 60, 10 * 60);
+    }
+
+
+    public static class Config {
+        public @NotNull Vector2d spawnPixel = new Vector2d();
+        public int ticksLeft = 10 * 60;  // Maze#spawnFruit() picks a random time, see #randomTicksLeft
+    }
+}
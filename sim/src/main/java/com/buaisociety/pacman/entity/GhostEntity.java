@@ -0,0 +1,472 @@
+package com.buaisociety.pacman.entity;
+
+import com.buaisociety.pacman.GameSnapshot;
+import com.buaisociety.pacman.entity.behavior.AggressiveChaseBehavior;
+import com.buaisociety.pacman.entity.behavior.Behavior;
+import com.buaisociety.pacman.entity.behavior.RandomDirectionBehavior;
+import com.buaisociety.pacman.entity.behavior.StaticTargetBehavior;
+import com.buaisociety.pacman.maze.Maze;
+import com.buaisociety.pacman.maze.TileState;
+import com.buaisociety.pacman.util.FixedPoint;
+import com.buaisociety.pacman.util.NumberUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.joml.Vector2d;
+import org.joml.Vector2i;
+
+public class GhostEntity extends Entity {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final GhostState[] STATES = GhostState.values();
+
+    /**
+     * The speed of ghosts inside the ghost pen, in sub-pixels per tick.
+     */
+    public static final int PEN_SPEED = FixedPoint.fromPixels(0.5);
+
+    private int animationFrame;
+
+    private final boolean isElroy;  // Blinky becomes "Elroy" and moves faster
+    private final Behavior chase;
+    private final Behavior scatter;
+    private final Behavior frightened;
+    private final Behavior eaten;
+    private final int[] colorsAlive;
+    private final int[] colorsFrightened;
+    private final int[] colorsFlash;
+    private final int[] colorsEaten;
+
+    // Vars used during #reset()
+    private final @NotNull Vector2i spawnPixel;
+    private final @NotNull Direction spawnDirection;
+    private final boolean spawnReleased;
+
+    private int localDotCounter;
+    private boolean released;
+    private @NotNull GhostState state = GhostState.CHASE;
+    private @Nullable Direction nextDirection;
+    private final Vector2i scatterTile;
+
+    // Recorded by beginTick(), so that ghosts target each other from the
+    // start of the tick no matter which ghost updates first
+    private int tickStartTileX;
+    private int tickStartTileY;
+    private @NotNull Direction tickStartDirection = Direction.UP;
+    private @NotNull GhostState tickStartState = GhostState.CHASE;
+
+    // Set by decide(), used by applyMove() in the same tick
+    private boolean positionQueued;
+    private int queuedX;
+    private int queuedY;
+    private @NotNull Direction queuedDirection = Direction.UP;
+    private int queuedSpeed;
+    private boolean queuedFixCenter;
+
+    public GhostEntity(@NotNull Maze maze, @NotNull Config config) {
+        super(maze, EntityType.GHOST);
+
+        this.isElroy = config.isElroy;
+        this.chase = config.chase;
+        this.scatterTile = config.scatterTile;
+        this.scatter = new StaticTargetBehavior(scatterTile);
+        this.frightened = new RandomDirectionBehavior();
+        this.eaten = new StaticTargetBehavior(maze.toTileCoords(new Vector2d(config.reviveTile)));
+
+        this.spawnPixel = config.spawnPixel;
+        this.spawnDirection = config.spawnDirection;
+        this.spawnReleased = config.spawnReleased;
+        reset();
+
+        this.colorsAlive = config.colorsAlive;
+        this.colorsFrightened = config.colorsFrightened;
+        this.colorsFlash = config.colorsFlash;
+        this.colorsEaten = config.colorsEaten;
+    }
+
+    @Override
+    public void reset() {
+        // Set twice to update lastPosition
+        int spawnX = FixedPoint.fromPixels(spawnPixel.x);
+        int spawnY = FixedPoint.fromPixels(spawnPixel.y);
+        setFixedPosition(spawnX, spawnY);
+        setFixedPosition(spawnX, spawnY);
+        direction = spawnDirection;
+        released = spawnReleased;
+
+        state = maze.isGhostChase() ? GhostState.CHASE : GhostState.SCATTER;
+        nextDirection = null;
+    }
+
+    public @NotNull Vector2i getScatterTile() {
+        return scatterTile;
+    }
+
+    /**
+     * Returns the current frame of the ghost's "wiggle" animation.
+     *
+     * @return the current animation frame
+     */
+    public int getAnimationFrame() {
+        return animationFrame;
+    }
+
+    /**
+     * Returns the colors of the ghost for the given state, packed as
+     * RGBA8888 integers. When frightened, <code>flash</code> determines
+     * whether the colors for the end of the frightened state are returned.
+     *
+     * @param state the state of the ghost
+     * @param flash true for the flashing colors when frightened
+     * @return the colors of the ghost
+     */
+    public int[] getColors(@NotNull GhostState state, boolean flash) {
+        return switch (state) {
+            case CHASE, SCATTER -> colorsAlive;
+            case FRIGHTENED -> flash ? colorsFlash : colorsFrightened;
+            case EATEN -> colorsEaten;
+        };
+    }
+
+    public int getLocalDotCounter() {
+        return localDotCounter;
+    }
+
+    public void incrementLocalDotCounter() {
+        this.localDotCounter++;
+    }
+
+    public boolean isReleased() {
+        return released;
+    }
+
+    public void setReleased(boolean released) {
+        this.released = released;
+    }
+
+    public @NotNull GhostState getState() {
+        return state;
+    }
+
+    /**
+     * Returns the x-coordinate of the tile this ghost was on at the start of
+     * the current (or last) tick. Behaviors that target other ghosts should
+     * use this instead of {@link #getTileX()}, since the other ghost may
+     * already have decided or moved this tick.
+     *
+     * @return the x-coordinate of the tile at the start of the tick
+     */
+    public int getTickStartTileX() {
+        return tickStartTileX;
+    }
+
+    /**
+     * Returns the y-coordinate of the tile this ghost was on at the start of
+     * the current (or last) tick, see {@link #getTickStartTileX()}.
+     *
+     * @return the y-coordinate of the tile at the start of the tick
+     */
+    public int getTickStartTileY() {
+        return tickStartTileY;
+    }
+
+    /**
+     * Returns the direction of this ghost at the start of the current (or
+     * last) tick, see {@link #getTickStartTileX()}.
+     *
+     * @return the direction at the start of the tick
+     */
+    public @NotNull Direction getTickStartDirection() {
+        return tickStartDirection;
+    }
+
+    /**
+     * Returns the state of this ghost at the start of the current (or last)
+     * tick, see {@link #getTickStartTileX()}.
+     *
+     * @return the state at the start of the tick
+     */
+    public @NotNull GhostState getTickStartState() {
+        return tickStartState;
+    }
+
+    /**
+     * Returns the direction the ghost will turn to at the center of its
+     * current tile, or <code>null</code> if it has not chosen yet.
+     *
+     * @return the next direction, or <code>null</code>
+     */
+    public @Nullable Direction getNextDirection() {
+        return nextDirection;
+    }
+
+    public void setState(@NotNull GhostState state) {
+        // Don't try to override the power pellet
+        if (state == GhostState.FRIGHTENED) {
+            if (this.state == GhostState.FRIGHTENED)
+                return;
+            if (this.state == GhostState.EATEN)
+                return;
+        }
+
+        // Next direction is no longer valid
+        nextDirection = null;
+
+        // Ghosts immediately switch directions when they change state. Sometimes,
+        // this switch can cause the ghost to back into a wall. If this happens,
+        // we should try other directions
+        if (!canMove(direction.behind())) {
+            System.out.println("Ghost can't move in direction: " + direction);
+
+            if (canMove(direction.right())) {
+                this.direction = direction.right();
+            } else if (canMove(direction.left())) {
+                this.direction = direction.left();
+            }
+            // otherwise, don't change direction, just keep going forward
+        } else {
+            this.direction = direction.behind();
+        }
+
+        this.state = state;
+    }
+
+    @Override
+    public int getFixedSpeed() {
+        boolean inTunnel = maze.getTileState(getTileX(), getTileY()) == TileState.TUNNEL;
+        return maze.getProfile().getGhostSpeed(state, inTunnel, isElroy, maze.getPelletsRemaining());
+    }
+
+    @Override
+    public @NotNull Behavior getBehavior() {
+        return getBehavior(state);
+    }
+
+    public @NotNull Behavior getBehavior(@NotNull GhostState state) {
+        return switch (state) {
+            case CHASE -> chase;
+            case SCATTER -> scatter;
+            case FRIGHTENED -> frightened;
+            case EATEN -> eaten;
+        };
+    }
+
+    /**
+     * Updates the ghost in 1 go, same as {@link #beginTick()},
+     * {@link #decide()}, {@link #applyMove()} then {@link #resolve()}. The
+     * maze calls the phases separately, so that every ghost decides before
+     * any ghost moves.
+     */
+    @Override
+    public void update() {
+        beginTick();
+        decide();
+        applyMove();
+        resolve();
+    }
+
+    /**
+     * Records the tile, direction and state of this ghost, which other
+     * ghosts target during this tick. The maze calls this for every ghost
+     * before any ghost decides.
+     */
+    public void beginTick() {
+        tickStartTileX = getTileX();
+        tickStartTileY = getTileY();
+        tickStartDirection = direction;
+        tickStartState = state;
+    }
+
+    /**
+     * The first phase of an update: changes state and chooses where to go.
+     * The ghost does not move until {@link #applyMove()} is called, so the
+     * pacmen and the other ghosts still see where it was.
+     */
+    public void decide() {
+        super.update();
+        positionQueued = false;
+        queuedSpeed = 0;
+
+        int tileX = getTileX();
+        int tileY = getTileY();
+        TileState current = maze.getTileState(tileX, tileY);
+        int speed = getFixedSpeed();
+
+        if (ticksAlive % 5 == 0)
+            animationFrame++;
+
+        if (state == GhostState.FRIGHTENED && maze.getFrightenedTimer() == 0)
+            setState(maze.isGhostChase() ? GhostState.CHASE : GhostState.SCATTER);
+
+        // When the ghost is still in the ghost pen, it should just bounce
+        if (!released) {
+            // If moving forward would cause the ghost to leave it's current tile, then
+            // we need to change direction.
+            speed = PEN_SPEED;
+            int nextX = FixedPoint.toPixel(x + direction.getDx() * speed) / Maze.TILE_SIZE;
+            int nextY = FixedPoint.toPixel(y + direction.getDy() * speed) / Maze.TILE_SIZE;
+            if (maze.index(nextX, nextY) != maze.index(tileX, tileY)) {
+                direction = direction.behind();
+            }
+
+            // fixCenter cannot be used in the ghost pen, since the ghosts are off tiles
+            queueMove(direction, speed, false);
+            return;
+        }
+
+        // While still in the ghost pen, the ghost should move towards the center,
+        // then move straight up. TODO: find a way to handle arbitrary ghost pens
+        if (current == TileState.GHOST_PEN && state != GhostState.EATEN) {
+            int centerX = FixedPoint.fromPixels(maze.getPixelDimensions().x() / 2);
+
+            // When centered on the x-axis, move up to get out
+            int dx = x - centerX;
+            if (dx == 0) {
+                direction = Direction.UP;
+                queueMove(direction, PEN_SPEED, false); //  TODO: use moveTowards so we don't overshoot
+                return;
+            }
+
+            direction = dx > 0 ? Direction.LEFT : Direction.RIGHT;
+            queuePosition(NumberUtil.moveTowards(x, centerX, PEN_SPEED), y);
+            return;
+        }
+
+        if (state == GhostState.EATEN) {
+            // Look down for an opening to enter the ghost pen, which only ghosts can pass
+            int moves = maze.getMoves(tileY * maze.getWidth() + tileX);
+            int down = 1 << Direction.DOWN.ordinal();
+            boolean ghostsOnly = (moves & down) == 0;
+            boolean ghostsCanEnter = (moves & (down << Maze.GHOST_MOVES_SHIFT)) != 0;
+            if (ghostsOnly && ghostsCanEnter) {
+                // move towards the center of the board, on the x-axis
+                int centerX = FixedPoint.fromPixels(maze.getPixelDimensions().x() / 2);
+                int newX = NumberUtil.moveTowards(x, centerX, speed);
+                queuePosition(newX, y);
+
+                // If we are centered, move down
+                if (newX == centerX) {
+                    direction = Direction.DOWN;
+                    queueMove(direction, speed, false);
+                }
+                return;
+            }
+
+            // If we hit a wall, revive
+            if (current == TileState.GHOST_PEN && !ghostsCanEnter) {
+                setState(maze.isGhostChase() ? GhostState.CHASE : GhostState.SCATTER);
+                return;
+            }
+        }
+
+
+        // When the maze changes between scatter and chase mode, the ghost should too
+        if (state == GhostState.CHASE && !maze.isGhostChase())
+            setState(GhostState.SCATTER);
+        else if (state == GhostState.SCATTER && maze.isGhostChase())
+            setState(GhostState.CHASE);
+
+        // In ghost may only change direction when it enters an intersection.
+        // Since ghosts may not reverse direction, we simply check when we enter
+        // a new tile.
+        int lastTileX = FixedPoint.toPixel(lastX) / Maze.TILE_SIZE;
+        int lastTileY = FixedPoint.toPixel(lastY) / Maze.TILE_SIZE;
+        if (maze.index(lastTileX, lastTileY) != maze.index(tileX, tileY) || nextDirection == null) {
+            Behavior behavior = getBehavior();
+            nextDirection = behavior.getDirection(this);
+        }
+
+        // When we are locked into a new direction, we should move towards the center
+        // of the tile, then move in that direction.
+        if (nextDirection != direction) {
+            int centerX = FixedPoint.fromPixels(Maze.toCenterPixel(tileX));
+            int centerY = FixedPoint.fromPixels(Maze.toCenterPixel(tileY));
+            if (x != centerX || y != centerY) {
+                queuePosition(NumberUtil.moveTowards(x, centerX, speed), NumberUtil.moveTowards(y, centerY, speed));
+                return;
+            }
+
+            direction = nextDirection;
+        }
+
+        // This should never occur
+        if (!canMove(direction)) {
+            System.out.println("Ghost is permanently stuck: " + direction);
+            return;
+        }
+
+        queueMove(direction, speed, true);
+    }
+
+    /**
+     * The second phase of an update: moves where {@link #decide()} chose.
+     */
+    public void applyMove() {
+        if (positionQueued)
+            setFixedPosition(queuedX, queuedY);
+        if (queuedSpeed > 0)
+            move(queuedDirection, queuedSpeed, queuedFixCenter);
+
+        positionQueued = false;
+        queuedSpeed = 0;
+    }
+
+    /**
+     * The last phase of an update: collides with every pacman on the tile
+     * the ghost moved to. The maze calls this after every ghost and every
+     * pacman moved, and after the pacmen ate their pellets.
+     */
+    public void resolve() {
+        int pacmen = maze.getPacmenAt(getTileX(), getTileY());
+        while (pacmen != 0) {
+            maze.eatGhost(maze.getPacman(Integer.numberOfTrailingZeros(pacmen)), this);
+            pacmen &= pacmen - 1;
+        }
+    }
+
+    private void queuePosition(int x, int y) {
+        positionQueued = true;
+        queuedX = x;
+        queuedY = y;
+    }
+
+    private void queueMove(@NotNull Direction direction, int speed, boolean fixCenter) {
+        queuedDirection = direction;
+        queuedSpeed = speed;
+        queuedFixCenter = fixCenter;
+    }
+
+    @Override
+    public void writeState(@NotNull GameSnapshot snapshot) {
+        super.writeState(snapshot);
+        snapshot.writeInt(animationFrame);
+        snapshot.writeInt(localDotCounter);
+        snapshot.writeBoolean(released);
+        snapshot.writeInt(state.ordinal());
+        snapshot.writeInt(nextDirection == null ? -1 : nextDirection.ordinal());
+    }
+
+    @Override
+    public void readState(@NotNull GameSnapshot snapshot) {
+        super.readState(snapshot);
+        animationFrame = snapshot.readInt();
+        localDotCounter = snapshot.readInt();
+        released = snapshot.readBoolean();
+        state = STATES[snapshot.readInt()];
+        int next = snapshot.readInt();
+        nextDirection = next == -1 ? null : DIRECTIONS[next];
+    }
+
+    public static class Config {
+        public boolean isElroy = false;
+        public @NotNull Behavior chase = new AggressiveChaseBehavior();
+        public @NotNull Vector2i scatterTile = new Vector2i();
+        public @NotNull Vector2i spawnPixel = new Vector2i();
+        public @NotNull Direction spawnDirection = Direction.UP;
+        public boolean spawnReleased = false;
+        public @NotNull Vector2i reviveTile = new Vector2i();
+        public int[] colorsAlive = new int[]{};  // RGBA8888
+        public int[] colorsFrightened = new int[]{};
+        public int[] colorsFlash = new int[]{};
+        public int[] colorsEaten = new int[]{};
+    }
+}
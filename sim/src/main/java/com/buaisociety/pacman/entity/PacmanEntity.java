@@ -0,0 +1,305 @@
+package com.buaisociety.pacman.entity;
+
+import com.buaisociety.pacman.GameSnapshot;
+import com.buaisociety.pacman.entity.behavior.AggressiveChaseBehavior;
+import com.buaisociety.pacman.entity.behavior.Behavior;
+import com.buaisociety.pacman.maze.DistanceTable;
+import com.buaisociety.pacman.maze.Maze;
+import com.buaisociety.pacman.maze.TileState;
+import com.buaisociety.pacman.util.FixedPoint;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.joml.Vector2i;
+
+public class PacmanEntity extends Entity {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private int animationFrame;
+
+    private final @NotNull Vector2i spawnPixel;
+    private final @NotNull Behavior behavior;
+    private final int player;
+    private int freezeTicks;
+    private boolean isAlive = true;
+
+    // Decision point stepping, see Config#decisionPointsOnly
+    private final boolean decisionPointsOnly;
+    private final int ghostProximity;
+    private final boolean decideOnFruitSpawn;
+    private int legalDirections;
+    private @Nullable FruitEntity lastFruit;
+    private int decisions;
+
+    // Set by decide(), used by applyMove() and resolve() in the same tick
+    private boolean moving;
+    private @NotNull Direction decided = Direction.UP;
+
+    public PacmanEntity(@NotNull Maze maze, @NotNull Config config) {
+        super(maze, EntityType.PACMAN);
+
+        this.behavior = config.behavior;
+        this.player = config.player;
+        this.spawnPixel = config.spawnPixel;
+        this.decisionPointsOnly = config.decisionPointsOnly;
+        this.ghostProximity = config.ghostProximity;
+        this.decideOnFruitSpawn = config.decideOnFruitSpawn;
+        reset();
+    }
+
+    @Override
+    public void reset() {
+        animationFrame = 0;
+        freezeTicks = 0;
+        isAlive = true;
+
+        // Always ask the behavior after a respawn
+        legalDirections = -1;
+
+        setFixedPosition(FixedPoint.fromPixels(spawnPixel.x), FixedPoint.fromPixels(spawnPixel.y));
+        this.direction = Direction.UP;
+    }
+
+    @Override
+    public int getFixedSpeed() {
+        return maze.getProfile().getPacmanSpeed(maze.getFrightenedTimer() > 0);
+    }
+
+    @Override
+    public @NotNull Behavior getBehavior() {
+        return behavior;
+    }
+
+    /**
+     * Returns the player this pacman belongs to, which gets the points this
+     * pacman scores. 0 unless the game has several players, see
+     * {@link com.buaisociety.pacman.GameManager.Config#pacmen}.
+     *
+     * @return the player of this pacman
+     */
+    public int getPlayer() {
+        return player;
+    }
+
+    /**
+     * Returns true if the pacman is alive (has not been killed by a ghost).
+     *
+     * @return true if the pacman is alive.
+     */
+    public boolean isAlive() {
+        return isAlive;
+    }
+
+    public void kill() {
+        isAlive = false;
+    }
+
+    /**
+     * Returns the number of ticks pacman stays frozen for, after eating a
+     * pellet.
+     *
+     * @return the number of ticks left
+     */
+    public int getFreezeTicks() {
+        return freezeTicks;
+    }
+
+    /**
+     * Returns the number of times the behavior has been asked for a direction.
+     * Without {@link Config#decisionPointsOnly}, this is once per tick that
+     * pacman was not frozen.
+     *
+     * @return the number of decisions made
+     */
+    public int getDecisions() {
+        return decisions;
+    }
+
+    /**
+     * Returns the current frame of pacman's "chomping" animation.
+     *
+     * @return the current animation frame
+     */
+    public int getAnimationFrame() {
+        return animationFrame;
+    }
+
+    /**
+     * Updates pacman in 1 go, same as {@link #decide()}, {@link #applyMove()}
+     * then {@link #resolve()}. The maze calls the phases separately, so that
+     * every pacman decides before any pacman moves.
+     */
+    @Override
+    public void update() {
+        decide();
+        applyMove();
+        resolve();
+    }
+
+    /**
+     * The first phase of an update: asks the behavior for a direction. Only
+     * this pacman is changed, and the new direction is only used once
+     * {@link #applyMove()} is called, so other pacmen (and their behaviors)
+     * still see the state from the start of the tick. The behaviors of
+     * different pacmen may therefore be asked in any order, or at the same
+     * time. Pacmen decide before the ghosts do, so behaviors also see the
+     * ghosts as they were at the start of the tick.
+     */
+    public void decide() {
+        super.update();
+        moving = false;
+
+        // Pacman will freeze for a few ticks when eating pellets and power pellets
+        if (freezeTicks > 0) {
+            freezeTicks--;
+            return;
+        }
+
+        // Increment the animation frame
+        if (ticksAlive % 2 == 0)
+            animationFrame++;
+
+        decided = direction;
+        if (!decisionPointsOnly || isDecisionPoint()) {
+            Behavior behavior = getBehavior();
+            decided = behavior.getDirection(this);
+            decisions++;
+        }
+        moving = true;
+    }
+
+    /**
+     * The second phase of an update: moves in the direction chosen by
+     * {@link #decide()}, unless pacman is frozen.
+     */
+    public void applyMove() {
+        if (!moving)
+            return;
+
+        direction = decided;
+        if (canMove(direction)) {
+            move(direction, getFixedSpeed(), true);
+        }
+    }
+
+    /**
+     * The last phase of an update: eats the pellet on the tile pacman moved
+     * to. Pacmen resolve in order, so when 2 pacmen reach the same pellet,
+     * the first one gets it.
+     */
+    public void resolve() {
+        if (!moving)
+            return;
+
+        // Eat pellets
+        TileState pellet = maze.eatPellet(this, getTileX(), getTileY());
+        if (pellet == TileState.PELLET) {
+            freezeTicks += 1;
+        } else if (pellet == TileState.POWER_PELLET) {
+            freezeTicks += 3;
+        }
+    }
+
+    @Override
+    public void writeState(@NotNull GameSnapshot snapshot) {
+        super.writeState(snapshot);
+        snapshot.writeInt(animationFrame);
+        snapshot.writeInt(freezeTicks);
+        snapshot.writeBoolean(isAlive);
+        snapshot.writeInt(legalDirections);
+        snapshot.writeRef(lastFruit);
+        snapshot.writeInt(decisions);
+    }
+
+    @Override
+    public void readState(@NotNull GameSnapshot snapshot) {
+        super.readState(snapshot);
+        animationFrame = snapshot.readInt();
+        freezeTicks = snapshot.readInt();
+        isAlive = snapshot.readBoolean();
+        legalDirections = snapshot.readInt();
+        lastFruit = (FruitEntity) snapshot.readRef();
+        decisions = snapshot.readInt();
+    }
+
+    /**
+     * Returns true if the behavior should choose a new direction this tick,
+     * when using {@link Config#decisionPointsOnly}. Between decision points,
+     * the only sensible choice is to keep going, so the behavior is skipped.
+     *
+     * <p>A decision point is when the set of directions pacman can move in
+     * changes (entering or leaving an intersection), when pacman is stuck,
+     * or on one of the events enabled in the {@link Config}.
+     *
+     * @return true if the behavior should be asked for a direction
+     */
+    private boolean isDecisionPoint() {
+        int previous = legalDirections;
+        legalDirections = 0;
+        for (Direction direction : DIRECTIONS) {
+            if (canMove(direction))
+                legalDirections |= 1 << direction.ordinal();
+        }
+
+        // Always track the fruit, so a fruit that spawns on the same tick as
+        // another decision point does not cause a second decision next tick
+        FruitEntity fruit = maze.getFruit();
+        boolean fruitSpawned = fruit != lastFruit && fruit != null;
+        lastFruit = fruit;
+
+        if (legalDirections != previous || (legalDirections & (1 << direction.ordinal())) == 0)
+            return true;
+        if (decideOnFruitSpawn && fruitSpawned)
+            return true;
+
+        return ghostProximity > 0 && isGhostNearby();
+    }
+
+    private boolean isGhostNearby() {
+        DistanceTable distances = maze.getDistances();
+        int from = maze.index(getTileX(), getTileY());
+        for (int i = 0; i < maze.getGhostCount(); i++) {
+            GhostEntity ghost = maze.getGhost(i);
+            if (ghost.getState() == GhostState.EATEN)
+                continue;
+
+            // Ghosts in the pen are unreachable, so they are never nearby
+            int distance = distances.getDistance(from, maze.index(ghost.getTileX(), ghost.getTileY()));
+            if (distance != DistanceTable.UNREACHABLE && distance <= ghostProximity)
+                return true;
+        }
+        return false;
+    }
+
+    public static class Config {
+        public @NotNull Behavior behavior = new AggressiveChaseBehavior();
+        public @NotNull Vector2i spawnPixel = new Vector2i();
+        public int player = 0;  // set by the GameManager, see #getPlayer()
+
+        /**
+         * When true, the behavior is only asked for a direction at decision
+         * points, instead of every tick. In a corridor, pacman keeps moving
+         * in the same direction until it reaches an intersection, a corner,
+         * a wall, or one of the events below happens. This cuts the number of
+         * calls to the behavior by roughly an order of magnitude.
+         *
+         * <p>Behaviors that count their own calls (e.g. to detect pacman
+         * standing still) should count ticks instead when this is enabled.
+         */
+        public boolean decisionPointsOnly = false;
+
+        /**
+         * With {@link #decisionPointsOnly}, also ask the behavior every tick
+         * while a ghost is this many tiles away (or closer), following the
+         * corridors. 0 disables this. The distances are those of the
+         * template, see {@link Maze#hasWallsChanged()}.
+         */
+        public int ghostProximity = 0;
+
+        /**
+         * With {@link #decisionPointsOnly}, also ask the behavior when a
+         * fruit spawns.
+         */
+        public boolean decideOnFruitSpawn = true;
+    }
+}
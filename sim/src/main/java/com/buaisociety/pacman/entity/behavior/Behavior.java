@@ -1,6 +1,5 @@
 package com.buaisociety.pacman.entity.behavior;
 
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.buaisociety.pacman.entity.Direction;
 import com.buaisociety.pacman.entity.Entity;
 import org.jetbrains.annotations.NotNull;
@@ -21,16 +20,4 @@ public interface Behavior {
      * @return the desired direction for the entity
      */
     @NotNull Direction getDirection(@NotNull Entity entity);
-
-    /**
-     * Renders the behavior, if applicable.
-     *
-     * <p>This is typically only used to debug the behavior. An entity's
-     * behavior is rendered BEFORE the entity is rendered (so the entity
-     * may be rendered on top of the behavior).
-     *
-     * @param batch the sprite batch to render with
-     */
-    default void render(@NotNull SpriteBatch batch) {
-    }
 }
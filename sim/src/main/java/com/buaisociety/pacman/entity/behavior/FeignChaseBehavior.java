@@ -7,13 +7,16 @@ import org.jetbrains.annotations.NotNull;
 import org.joml.Vector2i;
 
 public class FeignChaseBehavior implements TargetableBehavior {
+
+    private final @NotNull Vector2i target = new Vector2i();
+
     @NotNull
     @Override
     public Vector2i getTarget(@NotNull Entity entity) {
-        PacmanEntity pacman = entity.getMaze().getPacman();
-        Vector2i target = pacman.getTilePosition();
+        PacmanEntity pacman = entity.getMaze().getTargetPacman(entity);
+        target.set(pacman.getTileX(), pacman.getTileY());
 
-        if (target.distanceSquared(entity.getTilePosition()) > 64) {
+        if (target.distanceSquared(entity.getTileX(), entity.getTileY()) > 64) {
             return target;
         } else {
             return ((GhostEntity) entity).getScatterTile();
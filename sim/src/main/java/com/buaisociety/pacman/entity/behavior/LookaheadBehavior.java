@@ -0,0 +1,404 @@
+package com.buaisociety.pacman.entity.behavior;
+
+import com.buaisociety.pacman.GameManager;
+import com.buaisociety.pacman.batch.BatchBehavior;
+import com.buaisociety.pacman.batch.BatchSimulator;
+import com.buaisociety.pacman.entity.Direction;
+import com.buaisociety.pacman.entity.Entity;
+import com.buaisociety.pacman.entity.PacmanEntity;
+import com.buaisociety.pacman.maze.Maze;
+import com.buaisociety.pacman.util.GameRandom;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A pacman behavior that plans ahead by simulating the rest of the game.
+ *
+ * <p>Every time pacman enters a new tile, the current game is copied into a
+ * {@link BatchSimulator}, which plays the ghosts with the same targeting rules
+ * as the real game. Each simulated game starts with 1 of pacman's possible
+ * directions, then turns randomly at intersections for a while. The
+ * direction with the best average outcome (points, minus a penalty for
+ * dying) is chosen. Directions are tried using UCB1, so the promising ones
+ * get most of the simulations.
+ *
+ * <p>The search stops when the time budget for the decision is used up. It
+ * can run on several threads at once (root parallelization), each with its
+ * own simulator. The extra threads come from {@link Config#executor}, which
+ * is meant to be shared by every behavior, since a new behavior is created
+ * for every pacman. Searches that the executor could not start before the
+ * deadline are skipped, so a busy executor does not delay a decision past
+ * its budget. Games must use the default rules, see {@link BatchSimulator}.
+ *
+ * <p>The simulated games turn randomly using {@link Config#seed}, and the
+ * level and tick of the real game. With a fixed number of
+ * {@link Config#batches} instead of a time budget, the same game state
+ * always gets the same direction.
+ */
+public class LookaheadBehavior implements Behavior {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final @NotNull Config config;
+    private BatchSimulator root;
+    private Worker[] workers;
+
+    private int lastTileX = -1;
+    private int lastTileY = -1;
+    private Direction planned;
+    private long simulations;
+
+    public LookaheadBehavior() {
+        this(new Config());
+    }
+
+    public LookaheadBehavior(@NotNull Config config) {
+        if (config.threads < 1 || config.rollouts < 1 || config.batches < 0)
+            throw new IllegalArgumentException("Need at least 1 thread and 1 rollout, and batches must not be negative");
+        if (config.threads > 1 && config.executor == null)
+            throw new IllegalArgumentException("Searching on " + config.threads + " threads needs an executor");
+        this.config = config;
+    }
+
+    /**
+     * Returns the number of games that were simulated by this behavior.
+     *
+     * @return the number of simulated games
+     */
+    public long getSimulations() {
+        return simulations;
+    }
+
+    @Override
+    public @NotNull Direction getDirection(@NotNull Entity entity) {
+        if (!(entity instanceof PacmanEntity))
+            throw new IllegalArgumentException("Lookahead only works for pacman, got " + entity.getType());
+
+        // Stick to the plan until pacman reaches the next tile
+        int tileX = entity.getTileX();
+        int tileY = entity.getTileY();
+        if (planned != null && tileX == lastTileX && tileY == lastTileY && entity.canMove(planned))
+            return planned;
+
+        lastTileX = tileX;
+        lastTileY = tileY;
+        planned = search(entity);
+        return planned;
+    }
+
+    private @NotNull Direction search(@NotNull Entity entity) {
+        int legal = 0;
+        int legalCount = 0;
+        Direction only = entity.getDirection();
+        for (Direction direction : DIRECTIONS) {
+            if (entity.canMove(direction)) {
+                legal |= 1 << direction.ordinal();
+                legalCount++;
+                only = direction;
+            }
+        }
+
+        // Nothing to decide
+        if (legalCount <= 1)
+            return only;
+
+        Maze maze = entity.getMaze();
+        GameManager manager = maze.getLevelManager();
+        if (root == null) {
+            root = new BatchSimulator(1, manager.getConfig());
+            workers = new Worker[config.threads];
+            for (int i = 0; i < workers.length; i++) {
+                workers[i] = new Worker(config, new BatchSimulator(config.rollouts, manager.getConfig()));
+            }
+        }
+        // Called while pacman decides, so the simulator finishes this tick first
+        root.load(0, manager);
+
+        long seed = GameRandom.mix64(GameRandom.mix64(config.seed ^ manager.getLevel()) ^ maze.getTicks());
+        for (int i = 0; i < workers.length; i++) {
+            workers[i].random.setState(GameRandom.mix64(seed + i));
+        }
+
+        long deadline = System.nanoTime() + config.budgetNanos;
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[workers.length - 1];
+        for (int i = 1; i < workers.length; i++) {
+            Worker worker = workers[i];
+            int finalLegal = legal;
+            worker.started.set(false);
+            futures[i - 1] = CompletableFuture.runAsync(() -> {
+                if (worker.started.compareAndSet(false, true))
+                    worker.search(root, finalLegal, deadline);
+            }, config.executor);
+        }
+
+        // The calling thread searches too, as the first worker. Then it waits
+        // for the workers that started, and skips the ones still queued
+        // (unless the search is a fixed number of batches).
+        workers[0].search(root, legal, deadline);
+        for (int i = 1; i < workers.length; i++) {
+            if (config.batches == 0 && workers[i].started.compareAndSet(false, true))
+                workers[i].skip();
+            else
+                futures[i - 1].join();
+        }
+
+        Direction best = entity.canMove(entity.getDirection()) ? entity.getDirection() : only;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (Direction direction : DIRECTIONS) {
+            int i = direction.ordinal();
+            if ((legal & (1 << i)) == 0)
+                continue;
+
+            long visits = 0;
+            double total = 0;
+            for (Worker worker : workers) {
+                visits += worker.visits[i];
+                total += worker.totals[i];
+            }
+            simulations += visits;
+            if (visits > 0 && total / visits > bestValue) {
+                bestValue = total / visits;
+                best = direction;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * The search state of 1 thread.
+     */
+    private static final class Worker implements BatchBehavior {
+
+        private final @NotNull Config config;
+        private final @NotNull BatchSimulator simulator;
+        private final long[] visits = new long[DIRECTIONS.length];
+        private final double[] totals = new double[DIRECTIONS.length];
+        private final AtomicBoolean started = new AtomicBoolean();
+        private final GameRandom random = new GameRandom(0);
+
+        // Per simulated game
+        private final byte[] action;
+        private final boolean[] forced;  // true until pacman leaves the starting tile
+        private final int[] turnTileX;  // where pacman last chose a random direction
+        private final int[] turnTileY;
+        private final int[] lives;
+        private final boolean[] done;
+        private final double[] values;
+
+        private int rootTileX;
+        private int rootTileY;
+
+        private Worker(@NotNull Config config, @NotNull BatchSimulator simulator) {
+            this.config = config;
+            this.simulator = simulator;
+            int games = simulator.getGameCount();
+            this.action = new byte[games];
+            this.forced = new boolean[games];
+            this.turnTileX = new int[games];
+            this.turnTileY = new int[games];
+            this.lives = new int[games];
+            this.done = new boolean[games];
+            this.values = new double[games];
+        }
+
+        private void search(@NotNull BatchSimulator root, int legal, long deadline) {
+            Arrays.fill(visits, 0);
+            Arrays.fill(totals, 0);
+            rootTileX = root.getPacmanTileX(0);
+            rootTileY = root.getPacmanTileY(0);
+            int startScore = root.getScore(0);
+            int startLevel = root.getLevel(0);
+            int games = simulator.getGameCount();
+
+            boolean timed = config.batches == 0;
+            for (int batch = 0; timed ? System.nanoTime() < deadline : batch < config.batches; batch++) {
+                long total = visits[0] + visits[1] + visits[2] + visits[3];
+                for (int game = 0; game < games; game++) {
+                    simulator.copyGame(root, 0, game);
+                    action[game] = select(legal, total + game);
+                    visits[action[game]]++;
+                    forced[game] = true;
+                    lives[game] = root.getExtraLives(0);
+                    done[game] = false;
+                }
+
+                int remaining = games;
+                boolean cut = false;
+                for (int tick = 0; tick < config.horizon && remaining > 0; tick++) {
+                    simulator.step(this);
+                    for (int game = 0; game < games; game++) {
+                        if (done[game])
+                            continue;
+
+                        int points = simulator.getScore(game) - startScore;
+                        if (simulator.getLevel(game) != startLevel) {
+                            values[game] = points + config.levelBonus;
+                            done[game] = true;
+                            remaining--;
+                        } else if (simulator.getExtraLives(game) < lives[game]) {
+                            values[game] = points - config.deathPenalty;
+                            done[game] = true;
+                            remaining--;
+                        } else {
+                            lives[game] = simulator.getExtraLives(game);
+                        }
+                    }
+
+                    // Cut the simulations short when out of time
+                    if (timed && (tick & 15) == 15 && System.nanoTime() >= deadline) {
+                        cut = true;
+                        break;
+                    }
+                }
+
+                // A simulation that was cut short has not scored its final
+                // points yet, so it is dropped instead of averaged in
+                for (int game = 0; game < games; game++) {
+                    if (done[game]) {
+                        totals[action[game]] += values[game];
+                    } else if (cut) {
+                        visits[action[game]]--;
+                    } else {
+                        totals[action[game]] += simulator.getScore(game) - startScore;
+                    }
+                }
+            }
+        }
+
+        // Counts nothing for a decision this worker did not search
+        private void skip() {
+            Arrays.fill(visits, 0);
+            Arrays.fill(totals, 0);
+        }
+
+        /**
+         * Chooses the first direction of a simulated game with UCB1. Every
+         * legal direction is tried once before any is repeated.
+         */
+        private byte select(int legal, long total) {
+            byte best = -1;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (byte i = 0; i < DIRECTIONS.length; i++) {
+                if ((legal & (1 << i)) == 0)
+                    continue;
+                if (visits[i] == 0)
+                    return i;
+
+                double mean = totals[i] / visits[i];
+                double score = mean + config.exploration * Math.sqrt(Math.log(total) / visits[i]);
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = i;
+                }
+            }
+            return best;
+        }
+
+        @Override
+        public void getDirections(@NotNull BatchSimulator simulator, int[] games, int count, byte[] directions) {
+            for (int i = 0; i < count; i++) {
+                int game = games[i];
+                int tileX = simulator.getPacmanTileX(game);
+                int tileY = simulator.getPacmanTileY(game);
+
+                // Follow the direction being evaluated until pacman leaves the tile
+                if (forced[game]) {
+                    if (tileX == rootTileX && tileY == rootTileY) {
+                        directions[game] = action[game];
+                        continue;
+                    }
+                    forced[game] = false;
+                }
+
+                // Then turn randomly at each new tile, without reversing
+                Direction current = DIRECTIONS[directions[game]];
+                if (tileX == turnTileX[game] && tileY == turnTileY[game] && simulator.canPacmanMove(game, current))
+                    continue;
+
+                turnTileX[game] = tileX;
+                turnTileY[game] = tileY;
+                Direction choice = current.behind();
+                int options = 0;
+                for (Direction direction : DIRECTIONS) {
+                    if (direction == current.behind() || !simulator.canPacmanMove(game, direction))
+                        continue;
+
+                    // Reservoir sampling, to pick uniformly without a list
+                    if (random.nextInt(++options) == 0)
+                        choice = direction;
+                }
+                directions[game] = (byte) choice.ordinal();
+            }
+        }
+    }
+
+    public static class Config {
+
+        /**
+         * The time to spend on each decision, in nanoseconds. Simulations
+         * that are still running at the deadline are dropped, so this must
+         * leave time for {@link #rollouts} games of {@link #horizon} ticks.
+         */
+        public long budgetNanos = TimeUnit.MILLISECONDS.toNanos(5);
+
+        /**
+         * The number of batches of {@link #rollouts} games each thread
+         * simulates per decision, or 0 to simulate until
+         * {@link #budgetNanos} is used up. Use a fixed number of batches to
+         * make searches reproducible.
+         */
+        public int batches = 0;
+
+        /**
+         * The seed of the random turns in the simulated games.
+         */
+        public long seed = 0;
+
+        /**
+         * The number of threads that search at the same time, including the
+         * thread that asks for a direction. Games usually run on several
+         * threads already (e.g. 1 per processor when training), so this is 1
+         * unless there are processors to spare.
+         */
+        public int threads = 1;
+
+        /**
+         * Runs the extra threads of the search, and must be set when
+         * {@link #threads} is more than 1. Share 1 executor between every
+         * behavior (and every game), with enough threads for the games that
+         * search at the same time.
+         */
+        public @Nullable ExecutorService executor = null;
+
+        /**
+         * The number of games each thread simulates at once.
+         */
+        public int rollouts = 32;
+
+        /**
+         * The number of ticks to simulate each game for.
+         */
+        public int horizon = 240;
+
+        /**
+         * The points lost when pacman dies in a simulated game.
+         */
+        public int deathPenalty = 3000;
+
+        /**
+         * The points gained when pacman clears the maze in a simulated game.
+         */
+        public int levelBonus = 1000;
+
+        /**
+         * How much UCB1 favors directions that have been tried less, in points.
+         */
+        public double exploration = 300;
+    }
+}
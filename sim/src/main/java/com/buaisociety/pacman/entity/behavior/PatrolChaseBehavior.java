@@ -16,10 +16,12 @@ import org.joml.Vector2i;
 public class PatrolChaseBehavior implements TargetableBehavior {
 
     private @Nullable GhostEntity blinky;
+    private final @NotNull Vector2i target = new Vector2i();
 
     public @NotNull GhostEntity findBlinky(@NotNull Maze maze) {
-        for (Entity entity : maze.getEntities()) {
-            if (entity instanceof GhostEntity ghost && ghost.getBehavior(GhostState.CHASE) instanceof AggressiveChaseBehavior) {
+        for (int i = 0; i < maze.getGhostCount(); i++) {
+            GhostEntity ghost = maze.getGhost(i);
+            if (ghost.getBehavior(GhostState.CHASE) instanceof AggressiveChaseBehavior) {
                 return ghost;
             }
         }
@@ -35,12 +37,13 @@ public class PatrolChaseBehavior implements TargetableBehavior {
             blinky = findBlinky(maze);
         }
 
-        PacmanEntity pacman = maze.getPacman();
+        PacmanEntity pacman = maze.getTargetPacman(entity);
         Direction dir = pacman.getDirection();
-        Vector2i target = pacman.getTilePosition().add(dir.getDx() * 2, dir.getDy() * 2);
+        int aheadX = pacman.getTileX() + dir.getDx() * 2;
+        int aheadY = pacman.getTileY() + dir.getDy() * 2;
 
-        Vector2i between = target.sub(blinky.getTilePosition());
-        between.mul(2).add(blinky.getTilePosition());
-        return between;
+        // Double the vector from blinky (where it was at the start of the
+        // tick) to the tile ahead of pacman
+        return target.set(2 * aheadX - blinky.getTickStartTileX(), 2 * aheadY - blinky.getTickStartTileY());
     }
 }
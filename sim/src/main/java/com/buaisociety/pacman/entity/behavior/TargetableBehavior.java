@@ -3,9 +3,7 @@ package com.buaisociety.pacman.entity.behavior;
 import com.buaisociety.pacman.entity.Direction;
 import com.buaisociety.pacman.entity.Entity;
 import com.buaisociety.pacman.maze.Maze;
-import com.buaisociety.pacman.maze.Tile;
 import org.jetbrains.annotations.NotNull;
-import org.joml.RoundingMode;
 import org.joml.Vector2i;
 
 /**
@@ -25,23 +23,35 @@ public interface TargetableBehavior extends Behavior {
 
     @Override
     default @NotNull Direction getDirection(@NotNull Entity entity) {
+        Maze maze = entity.getMaze();
+        int tileX = entity.getTileX();
+        int tileY = entity.getTileY();
+        int tile = entity.getTileIndex();
+
+        // In the middle of a corridor, there is only 1 way to go
+        Direction corridor = maze.getCorridorDirection(tile, entity.getDirection());
+        if (corridor != null)
+            return corridor;
+
         Vector2i target = getTarget(entity);
 
         Direction temp = null;
         int smallest = Integer.MAX_VALUE;
 
-        Tile current = entity.getMaze().getTile(entity.getTilePosition());
         for (Direction direction : DIRECTIONS) {
             // Ghosts may not reverse direction
             if (entity.getDirection().behind() == direction)
                 continue;
 
-            Tile next = current.getNeighbor(direction);
-            if (!next.getState().isPassable())
+            if (!maze.canEnter(tile, direction))
                 continue;
 
-            Vector2i location = new Vector2i(entity.getPosition().div(Maze.TILE_SIZE), RoundingMode.TRUNCATE).add(direction.asVector());
-            int distance = (int) location.distanceSquared(target);
+            int nextX = tileX + direction.getDx();
+            int nextY = tileY + direction.getDy();
+
+            int dx = nextX - target.x;
+            int dy = nextY - target.y;
+            int distance = dx * dx + dy * dy;
 
             if (distance <= smallest) {
                 smallest = distance;
@@ -55,5 +65,13 @@ public interface TargetableBehavior extends Behavior {
         return temp;
     }
 
+    /**
+     * Returns the tile that the entity should move towards. Implementations
+     * may reuse the returned vector between calls, so callers should not hold
+     * onto it.
+     *
+     * @param entity the entity that is moving.
+     * @return the target tile.
+     */
     @NotNull Vector2i getTarget(@NotNull Entity entity);
 }
@@ -0,0 +1,103 @@
+package com.buaisociety.pacman.maze;
+
+import com.buaisociety.pacman.entity.EntityType;
+import org.jetbrains.annotations.NotNull;
+import org.joml.Vector2d;
+import org.joml.Vector2dc;
+
+/**
+ * Represents the points awarded for eating a ghost or a fruit. The arcade game
+ * briefly shows these points where the ghost/fruit was eaten.
+ *
+ * <p>This class only holds the game state of the bonus. Drawing the bonus is
+ * left to the renderer.
+ */
+public class BonusPoints {
+
+    private final @NotNull EntityType source;
+    private final @NotNull Vector2dc position;
+    private final int points;
+    private final int lifetime;
+    private int ticksAlive;
+
+    public BonusPoints(@NotNull EntityType source, @NotNull Vector2dc position, int points, int lifetime) {
+        this.source = source;
+        this.position = new Vector2d(position);
+        this.points = points;
+        this.lifetime = lifetime;
+    }
+
+    /**
+     * Returns the type of entity that was eaten to award these points.
+     *
+     * @return the type of entity that was eaten
+     */
+    public @NotNull EntityType getSource() {
+        return source;
+    }
+
+    /**
+     * Returns the position, in pixels, where the points were awarded.
+     *
+     * @return the position where the points were awarded
+     */
+    public @NotNull Vector2dc getPosition() {
+        return position;
+    }
+
+    /**
+     * Returns the number of points that were awarded.
+     *
+     * @return the number of points
+     */
+    public int getPoints() {
+        return points;
+    }
+
+    /**
+     * Returns the number of ticks that the points are shown for.
+     *
+     * @return the number of ticks the points are shown for
+     */
+    public int getLifetime() {
+        return lifetime;
+    }
+
+    /**
+     * Returns the number of ticks that the points have been shown for.
+     *
+     * @return the number of ticks the points have been shown for
+     */
+    public int getTicksAlive() {
+        return ticksAlive;
+    }
+
+    /**
+     * Returns true while the points should still be shown.
+     *
+     * @return true if the points should still be shown
+     */
+    public boolean isAlive() {
+        return ticksAlive < lifetime;
+    }
+
+    /**
+     * Called by the {@link Maze} once per tick.
+     */
+    public void update() {
+        ticksAlive++;
+    }
+
+    void setTicksAlive(int ticksAlive) {
+        this.ticksAlive = ticksAlive;
+    }
+
+    /**
+     * Same as calling {@link #update()} the given number of times.
+     *
+     * @param ticks the number of ticks that passed
+     */
+    public void update(int ticks) {
+        ticksAlive += ticks;
+    }
+}
@@ -0,0 +1,201 @@
+package com.buaisociety.pacman.maze;
+
+import com.buaisociety.pacman.entity.Direction;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The length of the shortest path between every pair of tiles in a maze,
+ * following the corridors and tunnels (not a straight line through walls).
+ *
+ * <p>Distances are measured in tiles, with a BFS over the tiles that are
+ * {@link TileState#isPassable() passable} to all entities. Tiles that cannot
+ * reach each other have a distance of {@link #UNREACHABLE}.
+ *
+ * <p>For a 28x36 maze, the table is about 2 MB of shorts. Computing it takes
+ * a moment, so it is saved to <code>mazes/&lt;name&gt;/distances.bin</code>
+ * and memory mapped when it is loaded again. The file stores a checksum of the
+ * tile layout, so it is rebuilt automatically when <code>maze.png</code>
+ * changes. When the file cannot be written (e.g. the assets are inside a jar),
+ * the table is kept in memory instead.
+ *
+ * <p>The table belongs to the template, so it does not follow
+ * {@link Maze#setTileState(int, int, TileState)}: once a maze changes its
+ * walls (see {@link Maze#hasWallsChanged()}), its distances are stale.
+ */
+public final class DistanceTable {
+
+    /**
+     * The distance between 2 tiles that cannot reach each other.
+     */
+    public static final int UNREACHABLE = -1;
+
+    private static final int MAGIC = 0x50414344;  // "PACD"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 5 * Integer.BYTES;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final int width;
+    private final int height;
+    private final int tileCount;
+    private final @NotNull ShortBuffer distances;
+
+    private DistanceTable(int width, int height, @NotNull ShortBuffer distances) {
+        this.width = width;
+        this.height = height;
+        this.tileCount = width * height;
+        this.distances = distances;
+    }
+
+    /**
+     * Loads the distance table for the given template from disk, or computes
+     * (and saves) it if it is missing or out of date.
+     *
+     * @param template the maze to get the distances for
+     * @return the distance table
+     */
+    static @NotNull DistanceTable load(@NotNull MazeTemplate template) {
+        byte[] tiles = template.copyTiles();
+        int checksum = Arrays.hashCode(tiles);
+        Path file = Path.of("mazes", template.getName(), "distances.bin");
+
+        DistanceTable cached = read(file, template.getWidth(), template.getHeight(), checksum);
+        if (cached != null)
+            return cached;
+
+        ShortBuffer distances = compute(template.getWidth(), template.getHeight(), tiles);
+        try {
+            write(file, template.getWidth(), template.getHeight(), checksum, distances);
+            cached = read(file, template.getWidth(), template.getHeight(), checksum);
+            if (cached != null)
+                return cached;
+        } catch (IOException e) {
+            // Not fatal, we can still use the table we just computed
+            System.err.println("Could not save distances for maze " + template.getName() + ": " + e);
+        }
+
+        return new DistanceTable(template.getWidth(), template.getHeight(), distances);
+    }
+
+    private static @Nullable DistanceTable read(@NotNull Path file, int width, int height, int checksum) {
+        if (!Files.isRegularFile(file))
+            return null;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long expectedSize = HEADER_BYTES + (long) width * height * width * height * Short.BYTES;
+            if (channel.size() != expectedSize)
+                return null;
+
+            // The mapping stays valid after the channel is closed
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                || buffer.getInt(8) != width || buffer.getInt(12) != height || buffer.getInt(16) != checksum)
+                return null;
+
+            ShortBuffer distances = buffer.position(HEADER_BYTES).slice().order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+            return new DistanceTable(width, height, distances);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void write(@NotNull Path file, int width, int height, int checksum, @NotNull ShortBuffer distances) throws IOException {
+        if (!Files.isDirectory(file.getParent()))
+            throw new IOException("No maze folder at " + file.getParent().toAbsolutePath());
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + distances.capacity() * Short.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height).putInt(checksum);
+        buffer.asShortBuffer().put(distances.duplicate().clear());
+
+        // Write to a temporary file first, so other processes never map a half written table
+        Path temp = Files.createTempFile(file.getParent(), "distances", ".tmp");
+        try {
+            Files.write(temp, buffer.array());
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static @NotNull ShortBuffer compute(int width, int height, byte[] tiles) {
+        int tileCount = width * height;
+        boolean[] passable = new boolean[tileCount];
+        for (int i = 0; i < tileCount; i++) {
+            passable[i] = TileState.byId(tiles[i]).isPassable();
+        }
+
+        short[] distances = new short[tileCount * tileCount];
+        Arrays.fill(distances, (short) UNREACHABLE);
+
+        int[] queue = new int[tileCount];
+        for (int from = 0; from < tileCount; from++) {
+            if (!passable[from])
+                continue;
+
+            int row = from * tileCount;
+            int head = 0;
+            int tail = 0;
+            distances[row + from] = 0;
+            queue[tail++] = from;
+            while (head < tail) {
+                int tile = queue[head++];
+                int x = tile % width;
+                int y = tile / width;
+                for (Direction direction : DIRECTIONS) {
+                    // Wraps around, just like the tunnels
+                    int nx = Math.floorMod(x + direction.getDx(), width);
+                    int ny = Math.floorMod(y + direction.getDy(), height);
+                    int neighbor = ny * width + nx;
+                    if (!passable[neighbor] || distances[row + neighbor] != UNREACHABLE)
+                        continue;
+
+                    distances[row + neighbor] = (short) (distances[row + tile] + 1);
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+
+        return ShortBuffer.wrap(distances);
+    }
+
+    /**
+     * Returns the number of tiles an entity has to move to get from 1 tile to
+     * another, or {@link #UNREACHABLE}. Coordinates wrap around the maze.
+     *
+     * @param fromX The x-coordinate of the starting tile.
+     * @param fromY The y-coordinate of the starting tile.
+     * @param toX The x-coordinate of the destination tile.
+     * @param toY The y-coordinate of the destination tile.
+     * @return the distance in tiles, or {@link #UNREACHABLE}
+     */
+    public int getDistance(int fromX, int fromY, int toX, int toY) {
+        return getDistance(toIndex(fromX, fromY), toIndex(toX, toY));
+    }
+
+    /**
+     * Returns the number of tiles an entity has to move to get from 1 tile to
+     * another, or {@link #UNREACHABLE}.
+     *
+     * @param from The index of the starting tile, see {@link Maze#index(int, int)}.
+     * @param to The index of the destination tile.
+     * @return the distance in tiles, or {@link #UNREACHABLE}
+     */
+    public int getDistance(int from, int to) {
+        return distances.get(from * tileCount + to);
+    }
+
+    private int toIndex(int x, int y) {
+        return Math.floorMod(y, height) * width + Math.floorMod(x, width);
+    }
+}
@@ -0,0 +1,247 @@
+package com.buaisociety.pacman.maze;
+
+import com.buaisociety.pacman.entity.Entity;
+import com.buaisociety.pacman.entity.GhostState;
+import com.buaisociety.pacman.util.Assets;
+import com.buaisociety.pacman.util.FixedPoint;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The immutable difficulty settings of 1 level: speeds, fright time, elroy
+ * threshold, ghost release costs and the chase/scatter schedule.
+ *
+ * <p>The tables are read from <code>./assets/level_profile.json</code>. Rows
+ * with a <code>from_level</code> apply from that level until the next row,
+ * and lists indexed by level repeat their final value for every level past
+ * the end. Profiles are built once per level and handicap and shared by every
+ * game (across threads), so the entities only read fields every tick.
+ *
+ * <p>The handicap delays the speed changes per-level, which makes the game
+ * easier. It applies to everything except the chase/scatter schedule and the
+ * fruit points, which always use the actual level.
+ */
+public final class LevelProfile {
+
+    private static final String PATH = "level_profile.json";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Map<Long, LevelProfile> PROFILES = new ConcurrentHashMap<>();
+    private static volatile JsonNode tables;  // loaded on first use
+
+    private final int level;
+    private final int speedLevel;
+    private final int pacmanSpeed;
+    private final int pacmanFrightenedSpeed;
+    private final int ghostSpeed;
+    private final int ghostFrightenedSpeed;
+    private final int ghostTunnelSpeed;
+    private final int ghostElroy1Speed;
+    private final int ghostElroy2Speed;
+    private final int ghostEatenSpeed;
+    private final int frightTicks;
+    private final int elroyPellets;
+    private final int[] releasePellets;
+    private final int[] scatterChaseTicks;
+    private final int fruitPoints;
+
+    private LevelProfile(@NotNull JsonNode tables, int level, int handicap) {
+        this.level = level;
+        this.speedLevel = Math.max(1, level - handicap);
+
+        JsonNode pacman = byRange(tables.get("pacman_speeds"), speedLevel);
+        this.pacmanSpeed = speed(pacman.get("normal").asDouble());
+        this.pacmanFrightenedSpeed = speed(pacman.get("frightened").asDouble());
+
+        JsonNode ghost = byRange(tables.get("ghost_speeds"), speedLevel);
+        this.ghostSpeed = speed(ghost.get("normal").asDouble());
+        this.ghostFrightenedSpeed = speed(ghost.get("frightened").asDouble());
+        this.ghostTunnelSpeed = speed(ghost.get("tunnel").asDouble());
+        this.ghostElroy1Speed = speed(ghost.get("elroy_1").asDouble());
+        this.ghostElroy2Speed = speed(ghost.get("elroy_2").asDouble());
+        this.ghostEatenSpeed = speed(tables.get("eaten_ghost_speed").asDouble());
+
+        this.frightTicks = byLevel(tables.get("fright_ticks"), speedLevel).asInt();
+        this.elroyPellets = byLevel(tables.get("elroy_pellets"), speedLevel).asInt();
+        this.releasePellets = toIntArray(byLevel(tables.get("release_pellets"), speedLevel));
+        this.scatterChaseTicks = toIntArray(byRange(tables.get("scatter_chase_ticks"), level).get("ticks"));
+        this.fruitPoints = byLevel(tables.get("fruit_points"), level).asInt();
+    }
+
+    /**
+     * Returns the profile for the given level and handicap, loading the
+     * tables the first time this is called.
+     *
+     * @param level the current level, at least 1
+     * @param handicap the number of levels to delay the speed changes by
+     * @return the profile of the level
+     * @throws IllegalArgumentException if the level is less than 1
+     * @throws RuntimeException if the tables could not be loaded
+     */
+    public static @NotNull LevelProfile get(int level, int handicap) {
+        if (level < 1)
+            throw new IllegalArgumentException("Level must be at least 1, got " + level);
+
+        long key = ((long) level << 32) | (handicap & 0xFFFFFFFFL);
+        return PROFILES.computeIfAbsent(key, k -> new LevelProfile(getTables(), level, handicap));
+    }
+
+    private static @NotNull JsonNode getTables() {
+        JsonNode loaded = tables;
+        if (loaded == null) {
+            try {
+                loaded = MAPPER.readTree(Assets.readString(PATH));
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to load " + PATH, e);
+            }
+            tables = loaded;
+        }
+        return loaded;
+    }
+
+    private static @NotNull JsonNode byRange(@NotNull JsonNode rows, int level) {
+        JsonNode match = rows.get(0);
+        for (JsonNode row : rows) {
+            if (row.get("from_level").asInt() <= level)
+                match = row;
+        }
+        return match;
+    }
+
+    private static @NotNull JsonNode byLevel(@NotNull JsonNode values, int level) {
+        return values.get(Math.min(level, values.size()) - 1);
+    }
+
+    private static int[] toIntArray(@NotNull JsonNode values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i).asInt();
+        }
+        return array;
+    }
+
+    private static int speed(double multiplier) {
+        return FixedPoint.fromPixels(Entity.BASE_SPEED * multiplier);
+    }
+
+    /**
+     * Returns the level this profile was built for.
+     *
+     * @return the current level
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Returns the level used to look up speeds, fright time, elroy threshold
+     * and release costs, which is the level minus the handicap.
+     *
+     * @return the level used for speeds, at least 1
+     */
+    public int getSpeedLevel() {
+        return speedLevel;
+    }
+
+    /**
+     * Returns the speed of pacman, in sub-pixels per tick.
+     *
+     * @param frightened true while the ghosts are frightened
+     * @return the speed of pacman
+     */
+    public int getPacmanSpeed(boolean frightened) {
+        return frightened ? pacmanFrightenedSpeed : pacmanSpeed;
+    }
+
+    /**
+     * Returns the speed of a ghost, in sub-pixels per tick. This does not
+     * include the speed used to bounce around inside the ghost pen.
+     *
+     * @param state the state of the ghost
+     * @param inTunnel true if the ghost is on a {@link TileState#TUNNEL} tile
+     * @param isElroy true if the ghost speeds up when few pellets are left
+     * @param pelletsRemaining the number of pellets left in the maze
+     * @return the speed of the ghost
+     */
+    public int getGhostSpeed(@NotNull GhostState state, boolean inTunnel, boolean isElroy, int pelletsRemaining) {
+        // The speed of the ghost changes based on the state
+        if (state == GhostState.EATEN) {
+            return ghostEatenSpeed;
+        } else if (state == GhostState.FRIGHTENED) {
+            return ghostFrightenedSpeed;
+        }
+
+        // When entering a tunnel, the ghosts suffer a severe speed penalty
+        if (inTunnel) {
+            return ghostTunnelSpeed;
+        }
+
+        // Blinky may become "Elroy" and move faster when there are few pellets left
+        if (isElroy) {
+            if (pelletsRemaining < elroyPellets / 2) {
+                return ghostElroy2Speed;
+            } else if (pelletsRemaining < elroyPellets) {
+                return ghostElroy1Speed;
+            }
+        }
+
+        // Just normal speeds
+        return ghostSpeed;
+    }
+
+    /**
+     * Returns the number of ticks the ghosts stay frightened after pacman eats
+     * a power pellet.
+     *
+     * @return the number of ticks
+     */
+    public int getFrightTicks() {
+        return frightTicks;
+    }
+
+    /**
+     * Returns the number of pellets left in the maze below which an elroy
+     * ghost speeds up. Below half of this, it speeds up again.
+     *
+     * @return the number of pellets
+     */
+    public int getElroyPellets() {
+        return elroyPellets;
+    }
+
+    /**
+     * Returns the number of pellets that must be eaten (since the previous
+     * ghost was released) to release the ghost at the given index. Any extra
+     * ghosts (past the first 4) cost the same as the final ghost.
+     *
+     * @param ghostIndex the index of the ghost, in release order
+     * @return the number of pellets
+     */
+    public int getReleasePellets(int ghostIndex) {
+        return releasePellets[Math.min(ghostIndex, releasePellets.length - 1)];
+    }
+
+    /**
+     * Returns the number of ticks of the given scatter or chase period. Even
+     * indices are scatter periods and odd indices are chase periods. The
+     * final period is negative, which keeps the ghosts in chase mode forever.
+     *
+     * @param index the index of the period, see {@link Maze#getChaseIndex()}
+     * @return the number of ticks
+     */
+    public int getScatterChaseTicks(int index) {
+        return scatterChaseTicks[index];
+    }
+
+    /**
+     * Returns the number of points pacman gets for eating the fruit.
+     *
+     * @return the points for eating the fruit
+     */
+    public int getFruitPoints() {
+        return fruitPoints;
+    }
+}
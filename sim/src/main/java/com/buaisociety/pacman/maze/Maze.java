@@ -0,0 +1,1203 @@
+package com.buaisociety.pacman.maze;
+
+import com.buaisociety.pacman.GameManager;
+import com.buaisociety.pacman.GameSnapshot;
+import com.buaisociety.pacman.entity.Direction;
+import com.buaisociety.pacman.entity.Entity;
+import com.buaisociety.pacman.entity.EntityType;
+import com.buaisociety.pacman.entity.FruitEntity;
+import com.buaisociety.pacman.entity.GhostEntity;
+import com.buaisociety.pacman.entity.GhostState;
+import com.buaisociety.pacman.entity.PacmanEntity;
+import com.buaisociety.pacman.event.EntityPreSpawnEvent;
+import com.buaisociety.pacman.event.EntityRemoveEvent;
+import com.buaisociety.pacman.event.EntitySpawnEvent;
+import com.buaisociety.pacman.event.GlobalBehaviorEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.joml.Vector2d;
+import org.joml.Vector2dc;
+import org.joml.Vector2i;
+import org.joml.Vector2ic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Represents a maze in the game of Pacman. Mazes are responsible for keeping
+ * track of the state of the tiles, the entities in the maze, and the number of
+ * pellets remaining in the maze (the win condition for Pacman).
+ *
+ * <p>Mazes are also responsible for having spawn locations and other entity
+ * data ready, so that the {@link GameManager} can easily manage the initial
+ * game state.
+ *
+ * <p>Mazes only hold game state. Drawing a maze is left to the renderer, so
+ * that games can be simulated without a graphics context.
+ */
+public class Maze {
+
+    /**
+     * All tiles are 8x8 pixels.
+     */
+    public static final int TILE_SIZE = 8;
+
+    /**
+     * The moves of a tile (see {@link #getMoves(int)}) for ghosts, which may
+     * pass through the ghost pen, are shifted left by this many bits.
+     */
+    public static final int GHOST_MOVES_SHIFT = 4;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    protected @NotNull GameManager gameManager;
+    protected final @NotNull MazeTemplate template;
+    private final @NotNull LevelProfile profile;  // shared, see #getProfile()
+    protected final byte[] tiles;  // row-major TileState ids, see #index(int, int)
+    private final int[] neighbors;  // shared with the template, see #getNeighbor(int, Direction)
+    private final byte[] moves;  // per tile, see #getMoves(int)
+    private boolean wallsChanged;  // true once setTileState changed the moves of a tile
+    private final int[] pelletTiles;  // the tiles with a pellet or power pellet, in no order
+    private final int[] pelletSlots;  // the index of each tile in pelletTiles, or -1
+    private int pelletTileCount;
+    private final @NotNull TileChangeJournal tileChanges;
+    protected final int width;
+    protected final int height;
+    protected int totalPellets;
+    protected int pelletsRemaining;
+    protected @NotNull List<Entity> entities;
+    private final @NotNull List<Entity> entitiesView;
+
+    // Typed slots, kept in sync with the entities list by addEntity/removeEntity
+    private @NotNull PacmanEntity[] pacmen = new PacmanEntity[1];
+    private int pacmanCount;
+    private @NotNull GhostEntity[] ghosts;  // in release order
+    private int ghostCount;
+    private @Nullable FruitEntity fruit;
+
+    // Tile occupancy, so collisions cost O(entities) no matter how many there are
+    private final int[] pacmanMasks;  // per tile, bit i is set if pacmen[i] is on the tile
+    private int[] pacmanTiles = new int[1];  // per pacman, the tile it is indexed on, or -1
+
+    protected int ticks;
+    protected int freezeTicks;
+    private int gameStartTicks;
+
+    private @NotNull Vector2i tileDimensions;
+    private @NotNull Vector2i pixelDimensions;
+    private @NotNull Vector2i fruitSpawnPixel;
+    private @NotNull List<BonusPoints> bonusPoints;
+
+    private int localChaseCounter;  // used to switch between chase and scatter
+    private int frightenedTimer;  // 0 if not frightened, otherwise the number of ticks left
+    private int localNumGhostsEaten;  // number of ghosts eaten from the current power pellet, tracked for bonuses
+    private boolean isGhostChase;  // true if the ghosts are in chase mode, false if in scatter mode
+    private int ghostChaseIndex;  // index of the current chase/scatter mode
+    private boolean deciding;  // true while the pacmen decide, see #isDeciding()
+
+    public Maze(@NotNull GameManager gameManager, @NotNull MazeTemplate template) {
+        this.gameManager = gameManager;
+        this.template = template;
+        this.profile = LevelProfile.get(gameManager.getLevel(), gameManager.getConfig().handicap);
+        this.width = template.getWidth();
+        this.height = template.getHeight();
+        this.tiles = template.copyTiles();
+        this.neighbors = template.getNeighbors();
+        this.moves = template.copyMoves();
+        this.tileChanges = new TileChangeJournal(width);
+        this.pelletTiles = new int[width * height];
+        this.pelletSlots = new int[width * height];
+        this.entities = new ArrayList<>();
+        this.entitiesView = Collections.unmodifiableList(entities);
+        this.ghosts = new GhostEntity[template.getGhosts().size()];
+        this.pacmanMasks = new int[width * height];
+        this.tileDimensions = new Vector2i(width, height);
+        this.pixelDimensions = new Vector2i(tileDimensions).mul(TILE_SIZE);
+        this.fruitSpawnPixel = new Vector2i(template.getFruitSpawnPixel());
+        this.bonusPoints = new ArrayList<>();
+        initTiles();
+
+        // Start with chase so the first update flips it to scatter
+        isGhostChase = true;
+
+        // Game is frozen for the first 4 seconds
+        gameStartTicks = 60 * 4;
+    }
+
+    /**
+     * Responsible for initializing the tiles array, and setting the initial variables of this Maze instance.
+     */
+    public void initTiles() {
+        if (tiles == null) {
+            throw new IllegalStateException("Tiles array must be initialized before calling initTiles()");
+        }
+
+        pelletsRemaining = 0;
+        totalPellets = 0;
+        for (byte id : tiles) {
+            if (id == TileState.PELLET.ordinal() || id == TileState.POWER_PELLET.ordinal()) {
+                pelletsRemaining++;
+                totalPellets++;
+            }
+        }
+        findPelletTiles();
+    }
+
+    private void findPelletTiles() {
+        pelletTileCount = 0;
+        for (int i = 0; i < tiles.length; i++) {
+            if (isPellet(tiles[i])) {
+                pelletSlots[i] = pelletTileCount;
+                pelletTiles[pelletTileCount++] = i;
+            } else {
+                pelletSlots[i] = -1;
+            }
+        }
+    }
+
+    private static boolean isPellet(int id) {
+        return id == TileState.PELLET.ordinal() || id == TileState.POWER_PELLET.ordinal();
+    }
+
+    public void reset() {
+        frightenedTimer = 0;
+        for (Entity entity : entities) {
+            entity.reset();
+        }
+        updateOccupancy();
+    }
+
+    public @NotNull GameManager getLevelManager() {
+        return gameManager;
+    }
+
+    /**
+     * Returns the name of this maze. This name matches up with one of the
+     * folders in the <code>./assets/mazes</code> directory.
+     *
+     * @return the name of this maze
+     */
+    public @NotNull String getName() {
+        return template.getName();
+    }
+
+    /**
+     * Returns the shared speeds and timings of the level this maze was
+     * created for.
+     *
+     * @return the profile of this maze's level
+     */
+    public @NotNull LevelProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * Returns the tiles that changed during the last tick, and before it
+     * since the tick before. The journal is reused, so read it right after
+     * each {@link #update()}.
+     *
+     * @return the tile changes of the last tick
+     */
+    public @NotNull TileChangeJournal getTileChanges() {
+        return tileChanges;
+    }
+
+    /**
+     * Returns the shared template that this maze was created from.
+     *
+     * @return the template of this maze
+     */
+    public @NotNull MazeTemplate getTemplate() {
+        return template;
+    }
+
+    /**
+     * Returns the graph of intersections and corridors in this maze. The graph
+     * only describes the layout of the maze, so eaten pellets do not change it,
+     * and neither do walls changed by {@link #setTileState(int, int, TileState)}.
+     *
+     * @return the navigation graph
+     */
+    public @NotNull NavGraph getNavGraph() {
+        return template.getNavGraph();
+    }
+
+    /**
+     * Returns the shortest path distance between every pair of tiles in this
+     * maze. Like the navigation graph, this only depends on the layout of the
+     * template, so the distances are stale once {@link #hasWallsChanged()}:
+     * they may lead through new walls, or miss new openings.
+     *
+     * @return the distance table
+     */
+    public @NotNull DistanceTable getDistances() {
+        return template.getDistances();
+    }
+
+    /**
+     * Returns the number of tiles an entity at the given tile has to move to
+     * reach the closest pellet (or power pellet), following the corridors.
+     * Only the pellets that are left are visited, so this gets cheaper as
+     * the level goes on. The distances come from {@link #getDistances()}.
+     *
+     * @param x The x-coordinate of the tile.
+     * @param y The y-coordinate of the tile.
+     * @return the distance in tiles, or {@link DistanceTable#UNREACHABLE} if no pellet can be reached
+     */
+    public int getClosestPelletDistance(int x, int y) {
+        DistanceTable distances = getDistances();
+        int from = index(x, y);
+        int closest = DistanceTable.UNREACHABLE;
+        for (int i = 0; i < pelletTileCount; i++) {
+            int distance = distances.getDistance(from, pelletTiles[i]);
+            if (distance != DistanceTable.UNREACHABLE && (closest == DistanceTable.UNREACHABLE || distance < closest)) {
+                closest = distance;
+                if (closest == 0)
+                    break;
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Returns true once {@link #setTileState(int, int, TileState)} has made
+     * a tile passable or impassable. The moves of every tile are kept up to
+     * date, but the template's {@link #getDistances() distances} and
+     * {@link #getNavGraph() navigation graph} are not.
+     *
+     * @return true if the walls differ from the template
+     */
+    public boolean hasWallsChanged() {
+        return wallsChanged;
+    }
+
+    /**
+     * Returns the number of ticks this maze has been updated for.
+     *
+     * @return the number of ticks
+     */
+    public int getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Returns the number of ticks left before the game starts. While this is
+     * positive, the game shows "READY!" and no entities move.
+     *
+     * @return the number of ticks left before the game starts
+     */
+    public int getGameStartTicks() {
+        return gameStartTicks;
+    }
+
+    public int getPelletsRemaining() {
+        return pelletsRemaining;
+    }
+
+    /**
+     * Returns the first pacman in the maze, which is the only pacman unless
+     * the game has several players (see {@link GameManager.Config#pacmen}).
+     *
+     * @return the first pacman
+     * @throws IllegalStateException if there is no pacman in the maze
+     */
+    public @NotNull PacmanEntity getPacman() {
+        if (pacmanCount == 0)
+            throw new IllegalStateException("Pacman not found in maze");
+        return pacmen[0];
+    }
+
+    /**
+     * Returns the pacman that the given entity (usually a ghost) should go
+     * after: the closest living pacman, in a straight line. Ties go to the
+     * pacman that was added first. If every pacman is dead, the first pacman
+     * is returned.
+     *
+     * @param entity the entity that is looking for a target
+     * @return the pacman to target
+     * @throws IllegalStateException if there is no pacman in the maze
+     */
+    public @NotNull PacmanEntity getTargetPacman(@NotNull Entity entity) {
+        PacmanEntity target = getPacman();
+        if (pacmanCount == 1)
+            return target;
+
+        int closest = Integer.MAX_VALUE;
+        for (int i = 0; i < pacmanCount; i++) {
+            PacmanEntity pacman = pacmen[i];
+            if (!pacman.isAlive())
+                continue;
+
+            int dx = pacman.getTileX() - entity.getTileX();
+            int dy = pacman.getTileY() - entity.getTileY();
+            int distance = dx * dx + dy * dy;
+            if (distance < closest) {
+                closest = distance;
+                target = pacman;
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Returns the number of pacmen in the maze.
+     *
+     * @return the number of pacmen
+     */
+    public int getPacmanCount() {
+        return pacmanCount;
+    }
+
+    /**
+     * Returns the pacman at the given index, in the order they were added.
+     *
+     * @param index the index of the pacman, from 0 to {@link #getPacmanCount()}
+     * @return the pacman at the given index
+     */
+    public @NotNull PacmanEntity getPacman(int index) {
+        if (index < 0 || index >= pacmanCount)
+            throw new IndexOutOfBoundsException("Pacman " + index + " out of bounds for " + pacmanCount + " pacmen");
+        return pacmen[index];
+    }
+
+    /**
+     * Returns the pacmen on the given tile, as a bitmask where bit
+     * <code>i</code> is set if {@link #getPacman(int) pacman i} is on the
+     * tile. The index is updated every time a pacman moves, so entities
+     * can check for collisions without comparing against every pacman.
+     *
+     * @param x the x coordinate of the tile
+     * @param y the y coordinate of the tile
+     * @return the bitmask of pacmen on the tile
+     */
+    public int getPacmenAt(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height)
+            return 0;
+        return pacmanMasks[y * width + x];
+    }
+
+    /**
+     * Moves the given pacman to its current tile in the occupancy index.
+     */
+    private void updateOccupancy(int slot) {
+        PacmanEntity pacman = pacmen[slot];
+        int tileX = pacman.getTileX();
+        int tileY = pacman.getTileY();
+        int tile = tileX < 0 || tileX >= width || tileY < 0 || tileY >= height ? -1 : tileY * width + tileX;
+        int old = pacmanTiles[slot];
+        if (tile == old)
+            return;
+
+        if (old != -1)
+            pacmanMasks[old] &= ~(1 << slot);
+        if (tile != -1)
+            pacmanMasks[tile] |= 1 << slot;
+        pacmanTiles[slot] = tile;
+    }
+
+    /**
+     * Moves every pacman to its current tile in the occupancy index. Cheap
+     * enough to call every tick, which catches pacmen that were moved from
+     * outside the maze (e.g. by an event listener).
+     */
+    private void updateOccupancy() {
+        for (int i = 0; i < pacmanCount; i++) {
+            updateOccupancy(i);
+        }
+    }
+
+    private void clearOccupancy() {
+        for (int i = 0; i < pacmanCount; i++) {
+            if (pacmanTiles[i] != -1)
+                pacmanMasks[pacmanTiles[i]] = 0;
+            pacmanTiles[i] = -1;
+        }
+    }
+
+    /**
+     * Returns the number of ghosts in the maze.
+     *
+     * @return the number of ghosts
+     */
+    public int getGhostCount() {
+        return ghostCount;
+    }
+
+    /**
+     * Returns the ghost at the given index. Ghosts are ordered by the order
+     * they are released from the ghost pen (the order they were spawned).
+     *
+     * @param index the index of the ghost, from 0 to {@link #getGhostCount()}
+     * @return the ghost at the given index
+     */
+    public @NotNull GhostEntity getGhost(int index) {
+        if (index < 0 || index >= ghostCount)
+            throw new IndexOutOfBoundsException("Ghost " + index + " out of bounds for " + ghostCount + " ghosts");
+        return ghosts[index];
+    }
+
+    /**
+     * Returns the fruit that is currently in the maze, or <code>null</code>.
+     *
+     * @return the fruit, or <code>null</code>
+     */
+    public @Nullable FruitEntity getFruit() {
+        return fruit;
+    }
+
+    /**
+     * Adds an entity to the maze. This should be called after the
+     * {@link EntitySpawnEvent} for the entity, if it was not cancelled.
+     *
+     * @param entity the entity to add
+     * @throws IllegalStateException if more than 32 pacmen are added
+     */
+    public void addEntity(@NotNull Entity entity) {
+        if (entity instanceof PacmanEntity pacman) {
+            // The occupancy index has 1 bit per pacman
+            if (pacmanCount == Integer.SIZE)
+                throw new IllegalStateException("Maze cannot have more than " + Integer.SIZE + " pacmen");
+            if (pacmanCount == pacmen.length) {
+                pacmen = Arrays.copyOf(pacmen, pacmanCount + 1);
+                pacmanTiles = Arrays.copyOf(pacmanTiles, pacmanCount + 1);
+            }
+            pacmen[pacmanCount] = pacman;
+            pacmanTiles[pacmanCount] = -1;
+            updateOccupancy(pacmanCount++);
+        } else if (entity instanceof GhostEntity ghost) {
+            if (ghostCount == ghosts.length)
+                ghosts = Arrays.copyOf(ghosts, ghostCount + 1);
+            ghosts[ghostCount++] = ghost;
+        } else if (entity instanceof FruitEntity fruit) {
+            this.fruit = fruit;
+        }
+
+        entities.add(entity);
+    }
+
+    /**
+     * Removes an entity from the maze right away, without firing an
+     * {@link EntityRemoveEvent}. Does nothing if the entity is not in the
+     * maze.
+     *
+     * @param entity the entity to remove
+     */
+    public void removeEntity(@NotNull Entity entity) {
+        int index = entities.indexOf(entity);
+        if (index != -1)
+            removeEntity(index);
+    }
+
+    private void removeEntity(int index) {
+        Entity entity = entities.remove(index);
+        if (entity instanceof PacmanEntity) {
+            // Slots shift down, so the bits of the occupancy index do too
+            clearOccupancy();
+            for (int i = 0; i < pacmanCount; i++) {
+                if (pacmen[i] == entity) {
+                    System.arraycopy(pacmen, i + 1, pacmen, i, pacmanCount - i - 1);
+                    pacmen[--pacmanCount] = null;
+                    break;
+                }
+            }
+            updateOccupancy();
+        } else if (entity == fruit) {
+            fruit = null;
+        } else if (entity instanceof GhostEntity) {
+            for (int i = 0; i < ghostCount; i++) {
+                if (ghosts[i] == entity) {
+                    System.arraycopy(ghosts, i + 1, ghosts, i, ghostCount - i - 1);
+                    ghosts[--ghostCount] = null;
+                    break;
+                }
+            }
+        }
+    }
+
+    public void addBonusPoints(@NotNull BonusPoints bonus) {
+        bonusPoints.add(bonus);
+    }
+
+    /**
+     * Returns the bonus points that are currently being shown.
+     *
+     * @return the bonus points that are currently being shown
+     */
+    public @NotNull List<BonusPoints> getBonusPoints() {
+        return bonusPoints;
+    }
+
+    /**
+     * Returns the list of entities in the maze. The list cannot be modified
+     * directly; use {@link #addEntity(Entity)} so that {@link #getPacman()},
+     * the ghosts and the fruit stay up to date.
+     *
+     * @return The list of entities in the maze.
+     */
+    public @NotNull List<Entity> getEntities() {
+        return entitiesView;
+    }
+
+    /**
+     * Returns the dimensions of the maze in tiles.
+     *
+     * @return The dimensions of the maze in tiles.
+     */
+    public @NotNull Vector2ic getDimensions() {
+        return tileDimensions;
+    }
+
+    /**
+     * Returns the dimensions of the maze in pixels.
+     *
+     * @return The dimensions of the maze in pixels.
+     */
+    public @NotNull Vector2ic getPixelDimensions() {
+        return pixelDimensions;
+    }
+
+    /**
+     * Converts a position in pixels to a tile coordinate. This is useful for converting the position of an entity to a tile coordinate.
+     *
+     * @param position The position in pixels.
+     * @return The tile coordinate.
+     */
+    public final @NotNull Vector2i toTileCoords(@NotNull Vector2dc position) {
+        return new Vector2i((int) position.x() / TILE_SIZE, (int) position.y() / TILE_SIZE);
+    }
+
+    /**
+     * Converts a tile coordinate to the coordinate of the center pixel of that
+     * tile. Works for both the x and y axis.
+     *
+     * @param tile The tile coordinate.
+     * @return The pixel coordinate of the center of the tile.
+     * @see Tile#getCenterPixel()
+     */
+    public static int toCenterPixel(int tile) {
+        return tile * TILE_SIZE + TILE_SIZE / 2 - 1;
+    }
+
+    /**
+     * Returns the index of the given tile in the flat tiles array. Coordinates
+     * outside the maze wrap around to the other side, just like the tunnels.
+     *
+     * @param x The x-coordinate of the tile.
+     * @param y The y-coordinate of the tile.
+     * @return The index of the tile.
+     */
+    public final int index(int x, int y) {
+        return Math.floorMod(y, height) * width + Math.floorMod(x, width);
+    }
+
+    /**
+     * Returns the width of the maze, in tiles.
+     *
+     * @return the width of the maze
+     */
+    public final int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the maze, in tiles.
+     *
+     * @return the height of the maze
+     */
+    public final int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the index of the tile next to the given tile, in the given
+     * direction. Like the tunnels, tiles on the edge wrap around to the other
+     * side of the maze.
+     *
+     * @param tile the index of the tile, see {@link #index(int, int)}
+     * @param direction the direction to look in
+     * @return the index of the neighbor
+     */
+    public final int getNeighbor(int tile, @NotNull Direction direction) {
+        return neighbors[tile * 4 + direction.ordinal()];
+    }
+
+    /**
+     * Returns the directions an entity on the given tile can move in, as a
+     * bitmask by {@link Direction#ordinal()}. The low 4 bits are the
+     * directions where the next tile is {@link TileState#isPassable()
+     * passable} to every entity. The next 4 bits (see
+     * {@link #GHOST_MOVES_SHIFT}) also count the ghost pen as open, see
+     * {@link TileState#isGhostPassable()}.
+     *
+     * <p>The moves are precomputed per template, and kept up to date by
+     * {@link #setTileState(int, int, TileState)}, so checking a move is 1
+     * array read.
+     *
+     * @param tile the index of the tile, see {@link #index(int, int)}
+     * @return the moves of the tile
+     */
+    public final int getMoves(int tile) {
+        return moves[tile] & 0xFF;
+    }
+
+    /**
+     * Returns true if the tile next to the given tile, in the given direction,
+     * is passable to every entity.
+     *
+     * @param tile the index of the tile, see {@link #index(int, int)}
+     * @param direction the direction to move in
+     * @return true if the next tile is passable
+     */
+    public final boolean canEnter(int tile, @NotNull Direction direction) {
+        return (moves[tile] & (1 << direction.ordinal())) != 0;
+    }
+
+    /**
+     * Returns the only way forward for an entity in the middle of a corridor,
+     * or <code>null</code> if the entity has a choice to make. A tile is in a
+     * corridor when it has exactly 2 exits, and the entity came in through one
+     * of them. Entities that may not reverse (like the ghosts) can skip any
+     * pathfinding there.
+     *
+     * <p>Like {@link #getMoves(int)}, this follows
+     * {@link #setTileState(int, int, TileState)}.
+     *
+     * @param tile the index of the tile, see {@link #index(int, int)}
+     * @param heading the direction the entity is moving
+     * @return the direction to continue in, or <code>null</code>
+     */
+    public final @Nullable Direction getCorridorDirection(int tile, @NotNull Direction heading) {
+        int exits = moves[tile] & ((1 << GHOST_MOVES_SHIFT) - 1);
+        int behind = 1 << heading.behind().ordinal();
+        if ((exits & behind) == 0 || Integer.bitCount(exits) != 2)
+            return null;
+
+        return DIRECTIONS[Integer.numberOfTrailingZeros(exits & ~behind)];
+    }
+
+    /**
+     * Returns the state of the tile at the given position. Unlike
+     * {@link #getTile(int, int)}, this does not allocate.
+     *
+     * @param x The x-coordinate of the tile.
+     * @param y The y-coordinate of the tile.
+     * @return The state of the tile at the given position.
+     */
+    public final @NotNull TileState getTileState(int x, int y) {
+        return TileState.byId(tiles[index(x, y)]);
+    }
+
+    /**
+     * Sets the state of the tile at the given position.
+     *
+     * <p>This does not update the pellet count; call {@link #initTiles()}
+     * after removing pellets manually.
+     *
+     * @param x The x-coordinate of the tile.
+     * @param y The y-coordinate of the tile.
+     * @param state The new state of the tile.
+     */
+    public final void setTileState(int x, int y, @NotNull TileState state) {
+        int tile = index(x, y);
+        TileState old = TileState.byId(tiles[tile]);
+        if (old == state)
+            return;
+
+        tiles[tile] = (byte) state.ordinal();
+        tileChanges.add(tile, old, state);
+
+        // Keep the list of pellet tiles compact, by moving the last one into the gap
+        if (isPellet(old.ordinal()) && !isPellet(state.ordinal())) {
+            int slot = pelletSlots[tile];
+            int last = pelletTiles[--pelletTileCount];
+            pelletTiles[slot] = last;
+            pelletSlots[last] = slot;
+            pelletSlots[tile] = -1;
+        } else if (!isPellet(old.ordinal()) && isPellet(state.ordinal())) {
+            pelletSlots[tile] = pelletTileCount;
+            pelletTiles[pelletTileCount++] = tile;
+        }
+
+        // Only the neighbors look at this tile to decide where they can move
+        if (old.isPassable() != state.isPassable() || old.isGhostPassable() != state.isGhostPassable()) {
+            wallsChanged = true;
+            for (int direction = 0; direction < 4; direction++) {
+                int neighbor = neighbors[tile * 4 + direction];
+                moves[neighbor] = MazeTemplate.computeMoves(tiles, neighbors, neighbor);
+            }
+        }
+    }
+
+    /**
+     * Returns true if the tile at the given position is passable to all
+     * entities.
+     *
+     * @param x The x-coordinate of the tile.
+     * @param y The y-coordinate of the tile.
+     * @return true if the tile is passable.
+     * @see TileState#isPassable()
+     */
+    public final boolean isPassable(int x, int y) {
+        return getTileState(x, y).isPassable();
+    }
+
+    /**
+     * Returns the tile at the given position.
+     *
+     * @param position The position of the tile.
+     * @return The tile at the given position.
+     */
+    public final @NotNull Tile getTile(@NotNull Vector2ic position) {
+        return getTile(position.x(), position.y());
+    }
+
+    /**
+     * Returns the tile at the given position. Tiles are views, so this
+     * allocates a new tile every call.
+     *
+     * @param x The x-coordinate of the tile.
+     * @param y The y-coordinate of the tile.
+     * @return The tile at the given position.
+     */
+    public final @NotNull Tile getTile(int x, int y) {
+        return new Tile(this, Math.floorMod(x, width), Math.floorMod(y, height));
+    }
+
+    /**
+     * Wraps the given position to the dimensions of the maze.
+     *
+     * <p>This is used when an entity moves off the screen using a tunnel to
+     * reappear on the other side of the screen.
+     *
+     * @param position The position to wrap.
+     * @return The wrapped position.
+     */
+    public final @NotNull Vector2d getWrappedPosition(@NotNull Vector2d position) {
+        double y = (position.y + pixelDimensions.y) % pixelDimensions.y;
+        double x = (position.x + pixelDimensions.x) % pixelDimensions.x;
+        return new Vector2d(x, y);
+    }
+
+    /**
+     * Returns the number of ticks left in the frightened state. If the value is 0, then the game is not in the frightened state.
+     *
+     * @return The number of ticks left in the frightened state.
+     */
+    public int getFrightenedTimer() {
+        return frightenedTimer;
+    }
+
+    /**
+     * Ghosts change between chase and scatter mode on a timer (set by this maze class).
+     *
+     * @return true if the ghosts are in chase mode, false if in scatter mode
+     */
+    public boolean isGhostChase() {
+        return isGhostChase;
+    }
+
+    /**
+     * Returns the number of ticks until the ghosts switch between chase and
+     * scatter mode. Negative values mean the ghosts never switch again.
+     *
+     * @return the number of ticks until the next switch
+     */
+    public int getChaseTicksLeft() {
+        return localChaseCounter;
+    }
+
+    /**
+     * Returns the index of the next chase/scatter time, see
+     * {@link LevelProfile#getScatterChaseTicks(int)}.
+     *
+     * @return the index of the next chase/scatter time
+     */
+    public int getChaseIndex() {
+        return ghostChaseIndex;
+    }
+
+    /**
+     * Returns the number of ghosts eaten since the last power pellet, which
+     * doubles the points for the next ghost.
+     *
+     * @return the number of ghosts eaten
+     */
+    public int getGhostsEaten() {
+        return localNumGhostsEaten;
+    }
+
+    /**
+     * Returns true while {@link #update()} asks the pacmen where to go, which
+     * is when pacman behaviors run. The tick has already started by then:
+     * the tick counter, the frightened timer and the chase/scatter counter
+     * have counted down, but nothing else has decided or moved yet.
+     *
+     * @return true if the tick is partway done
+     */
+    public boolean isDeciding() {
+        return deciding;
+    }
+
+    /**
+     * Returns the number of ticks the maze stays frozen for after a ghost was
+     * eaten.
+     *
+     * @return the number of ticks left
+     */
+    public int getFreezeTicks() {
+        return freezeTicks;
+    }
+
+    /**
+     * Returns <code>null</code> if the game is still running, or a {@link TerminalReason} if the game has ended.
+     * With several pacmen, the game is only lost once every pacman is dead.
+     *
+     * @return <code>null</code> if the game is still running, or a {@link TerminalReason}
+     */
+    public @Nullable TerminalReason getTerminalReason() {
+        if (pelletsRemaining == 0)
+            return TerminalReason.WIN;
+        if (pacmanCount == 0)
+            throw new IllegalStateException("Pacman not found in maze");
+
+        for (int i = 0; i < pacmanCount; i++) {
+            if (pacmen[i].isAlive())
+                return null;
+        }
+        return TerminalReason.LOSE;
+    }
+
+    public void eatGhost(@NotNull PacmanEntity pacman, @NotNull GhostEntity ghost) {
+        // Ghosts can only be eaten when they are frightened
+        if (ghost.getState() == GhostState.CHASE || ghost.getState() == GhostState.SCATTER) {
+            pacman.kill();
+            return;
+        }
+
+        // Cannot eat a ghost that is already eaten
+        if (ghost.getState() == GhostState.EATEN)
+            return;
+
+        ghost.setState(GhostState.EATEN);
+
+        int addScore = 200 * (int) Math.pow(2, localNumGhostsEaten);
+        gameManager.incrementScore(pacman.getPlayer(), addScore);
+        freezeTicks += 40;
+        bonusPoints.add(new BonusPoints(EntityType.GHOST, ghost.getPosition(), addScore, 40));
+
+        // As more ghosts are eaten, the bonus points are worth more
+        localNumGhostsEaten++;
+    }
+
+    public @NotNull TileState eatPellet(@NotNull PacmanEntity pacman, @NotNull Tile tile) {
+        return eatPellet(pacman, tile.getX(), tile.getY());
+    }
+
+    public @NotNull TileState eatPellet(@NotNull PacmanEntity pacman, int x, int y) {
+        TileState state = getTileState(x, y);
+
+        // Normal pellets are eaten by Pacman, and the score is increased. Normal
+        // pellets also release ghosts when a certain number of them are eaten.
+        if (state == TileState.PELLET) {
+            gameManager.incrementScore(pacman.getPlayer(), 10);
+            pelletsRemaining--;
+            setTileState(x, y, TileState.SPACE);
+
+            // Ghosts are released when a certain number of pellets are eaten. The
+            // first 2 ghosts (blinky and pinky) are always released. Then each
+            // subsequent ghost has a "cost" (that resets when a ghost is released).
+            // Any extra ghosts (past the first 4) can be released at the same cost
+            // as the final ghost.
+            for (int i = 0; i < ghostCount; i++) {
+                GhostEntity ghost = ghosts[i];
+                int bound = profile.getReleasePellets(i);
+                if (ghost.isReleased())
+                    continue;
+
+                // Either release the ghosts, or increment the counter
+                if (ghost.getLocalDotCounter() >= bound) {
+                    ghost.setReleased(true);
+                } else {
+                    ghost.incrementLocalDotCounter();
+                }
+            }
+        } else if (state == TileState.POWER_PELLET) {
+            localNumGhostsEaten = 0;
+            gameManager.incrementScore(pacman.getPlayer(), 50);
+            pelletsRemaining--;
+            setTileState(x, y, TileState.SPACE);
+
+            frightenedTimer = profile.getFrightTicks();
+            for (int i = 0; i < ghostCount; i++) {
+                ghosts[i].setState(GhostState.FRIGHTENED);
+            }
+        } else {
+            // Make sure we actually ate a pellet
+            return state;
+        }
+
+        // Once 70 pellets are eaten, the first fruit is released
+        int pelletsEaten = totalPellets - pelletsRemaining;
+        if (pelletsEaten == 70 || pelletsEaten == 170) {
+            spawnFruit();
+        }
+
+        return state;
+    }
+
+    public void spawnFruit() {
+        // Remove the first fruit, if there
+        if (fruit != null)
+            removeEntity(entities.indexOf(fruit));
+        FruitEntity.Config config = new FruitEntity.Config();
+        config.spawnPixel = new Vector2d(fruitSpawnPixel);
+        config.ticksLeft = FruitEntity.randomTicksLeft(gameManager.getRandom());
+
+        // Fire the event to allow the fruit to be customized
+        EntityPreSpawnEvent event = new EntityPreSpawnEvent(this, EntityType.FRUIT, config);
+        gameManager.getEvents().fireEvent(event);
+        if (event.isCancelled())
+            return;
+
+        FruitEntity fruit = new FruitEntity(this, (FruitEntity.Config) event.getConfig());
+        EntitySpawnEvent spawnEvent = new EntitySpawnEvent(fruit);
+        gameManager.getEvents().fireEvent(spawnEvent);
+        if (spawnEvent.isCancelled())
+            return;
+
+        addEntity(fruit);
+    }
+
+    /**
+     * Writes the dynamic state of this maze and its entities to the snapshot.
+     * Called by {@link GameManager#snapshot(GameSnapshot)}.
+     *
+     * @param snapshot the snapshot to write to
+     */
+    public void writeState(@NotNull GameSnapshot snapshot) {
+        snapshot.writeBytes(tiles);
+        snapshot.writeInt(pelletsRemaining);
+        snapshot.writeInt(ticks);
+        snapshot.writeInt(freezeTicks);
+        snapshot.writeInt(gameStartTicks);
+        snapshot.writeInt(localChaseCounter);
+        snapshot.writeInt(frightenedTimer);
+        snapshot.writeInt(localNumGhostsEaten);
+        snapshot.writeBoolean(isGhostChase);
+        snapshot.writeInt(ghostChaseIndex);
+
+        snapshot.writeInt(entities.size());
+        for (int i = 0; i < entities.size(); i++) {
+            Entity entity = entities.get(i);
+            snapshot.writeRef(entity);
+            entity.writeState(snapshot);
+        }
+
+        snapshot.writeInt(bonusPoints.size());
+        for (int i = 0; i < bonusPoints.size(); i++) {
+            BonusPoints bonus = bonusPoints.get(i);
+            snapshot.writeRef(bonus);
+            snapshot.writeInt(bonus.getTicksAlive());
+        }
+    }
+
+    /**
+     * Reads the state written by {@link #writeState(GameSnapshot)}. Entities
+     * that were removed since (e.g. an eaten fruit) are added back, without
+     * firing any events.
+     *
+     * @param snapshot the snapshot to read from
+     */
+    public void readState(@NotNull GameSnapshot snapshot) {
+        snapshot.readBytes(tiles);
+        findPelletTiles();
+        tileChanges.markRescanNeeded();
+        if (wallsChanged) {
+            for (int i = 0; i < moves.length; i++) {
+                moves[i] = MazeTemplate.computeMoves(tiles, neighbors, i);
+            }
+        }
+        pelletsRemaining = snapshot.readInt();
+        ticks = snapshot.readInt();
+        freezeTicks = snapshot.readInt();
+        gameStartTicks = snapshot.readInt();
+        localChaseCounter = snapshot.readInt();
+        frightenedTimer = snapshot.readInt();
+        localNumGhostsEaten = snapshot.readInt();
+        isGhostChase = snapshot.readBoolean();
+        ghostChaseIndex = snapshot.readInt();
+
+        entities.clear();
+        clearOccupancy();
+        pacmanCount = 0;
+        ghostCount = 0;
+        fruit = null;
+        int entityCount = snapshot.readInt();
+        for (int i = 0; i < entityCount; i++) {
+            Entity entity = (Entity) snapshot.readRef();
+            addEntity(entity);
+            entity.readState(snapshot);
+        }
+        updateOccupancy();
+
+        bonusPoints.clear();
+        int bonusCount = snapshot.readInt();
+        for (int i = 0; i < bonusCount; i++) {
+            BonusPoints bonus = (BonusPoints) snapshot.readRef();
+            bonus.setTicksAlive(snapshot.readInt());
+            bonusPoints.add(bonus);
+        }
+    }
+
+    /**
+     * Returns the number of upcoming ticks where the game is frozen (after a
+     * ghost is eaten, or while "READY!" is shown). During these ticks, only
+     * the tick counter and the bonus points change.
+     *
+     * @return the number of idle ticks before the next {@link #update()} that moves entities
+     */
+    public int getIdleTicks() {
+        return freezeTicks + gameStartTicks;
+    }
+
+    /**
+     * Skips all {@link #getIdleTicks() idle ticks} at once. The maze ends up
+     * in exactly the same state as after calling {@link #update()} once per
+     * idle tick, so the next call to {@link #update()} moves entities again.
+     *
+     * <p>Fruit timers and the chase/scatter counter do not count down while
+     * the game is frozen, so they are left alone.
+     *
+     * @return the number of ticks that were skipped
+     */
+    public int advanceUntilNextEvent() {
+        int skipped = getIdleTicks();
+        if (skipped == 0)
+            return 0;
+
+        ticks += skipped;
+        tileChanges.beginTick();
+        freezeTicks = 0;
+        gameStartTicks = 0;
+        for (int i = bonusPoints.size() - 1; i >= 0; i--) {
+            BonusPoints bonus = bonusPoints.get(i);
+            bonus.update(skipped);
+            if (!bonus.isAlive()) {
+                bonusPoints.remove(i);
+            }
+        }
+        tileChanges.endTick();
+        return skipped;
+    }
+
+    public void update() {
+        tileChanges.beginTick();
+        tick();
+        tileChanges.endTick();
+    }
+
+    private void tick() {
+        ticks++;
+
+        // Bonus points are shown even while the game is frozen. Loops in
+        // update() are indexed so that a tick does not allocate.
+        for (int i = bonusPoints.size() - 1; i >= 0; i--) {
+            BonusPoints bonus = bonusPoints.get(i);
+            bonus.update();
+            if (!bonus.isAlive()) {
+                bonusPoints.remove(i);
+            }
+        }
+
+        if (freezeTicks > 0) {
+            freezeTicks--;
+            return;
+        }
+        if (gameStartTicks > 0) {
+            gameStartTicks--;
+            return;
+        }
+
+        if (getTerminalReason() != null)
+            return;
+
+        if (frightenedTimer > 0) {
+            frightenedTimer--;
+        }
+
+        // Try to flip-flop between chase and scatter. We also allow for negative values,
+        // which prevent flip-flops (Used in the base game for permanent chase).
+        if (localChaseCounter-- == 0) {
+            isGhostChase = !isGhostChase;
+
+            localChaseCounter = profile.getScatterChaseTicks(ghostChaseIndex++);
+
+            // Fire an event to allow the chase/scatter times to be customized
+            GlobalBehaviorEvent event = new GlobalBehaviorEvent(this, isGhostChase, localChaseCounter);
+            gameManager.getEvents().fireEvent(event);
+            isGhostChase = event.isChaseBehavior();
+            localChaseCounter = event.getTimeLeft();
+        }
+
+        // Entities update in 3 phases. Loops are indexed to allow
+        // modification of the entities list.
+        updateOccupancy();
+
+        // Decide: every pacman, then every ghost, chooses where to go before
+        // anything moves. Pacman behaviors see the ghosts as they were at the
+        // start of the tick, since deciding changes a ghost's state and
+        // direction. Ghosts only read where pacman is (not where it decided
+        // to go), and target each other (e.g. patrol targets blinky) from the
+        // state recorded by beginTick(), so the order they decide in does not
+        // matter, except for the order they draw from the game's random source.
+        for (int i = 0; i < ghostCount; i++) {
+            ghosts[i].beginTick();
+        }
+        deciding = true;
+        for (int i = 0; i < pacmanCount; i++) {
+            pacmen[i].decide();
+        }
+        deciding = false;
+        for (int i = 0; i < ghostCount; i++) {
+            ghosts[i].decide();
+        }
+
+        // Move
+        for (int i = 0; i < ghostCount; i++) {
+            ghosts[i].applyMove();
+        }
+        for (int i = 0; i < pacmanCount; i++) {
+            pacmen[i].applyMove();
+        }
+        updateOccupancy();
+
+        // Resolve, against where everything moved to: pellets, then
+        // collisions between ghosts and pacmen, then fruit
+        for (int i = 0; i < pacmanCount; i++) {
+            pacmen[i].resolve();
+        }
+        for (int i = 0; i < ghostCount; i++) {
+            ghosts[i].resolve();
+        }
+        for (int i = 0; i < entities.size(); i++) {
+            Entity entity = entities.get(i);
+            if (entity.getType() == EntityType.FRUIT)
+                entity.update();
+        }
+
+        // Remove dead ones
+        for (int i = 0; i < entities.size(); i++) {
+            Entity entity = entities.get(i);
+            if (entity.isRemove()) {
+                EntityRemoveEvent event = new EntityRemoveEvent(entity);
+                gameManager.getEvents().fireEvent(event);
+                if (event.isCancelled())
+                    continue;
+
+                removeEntity(i--);
+            }
+        }
+    }
+}
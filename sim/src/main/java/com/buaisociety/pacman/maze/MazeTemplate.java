@@ -0,0 +1,522 @@
+package com.buaisociety.pacman.maze;
+
+import com.buaisociety.pacman.entity.Direction;
+import com.buaisociety.pacman.entity.behavior.Behavior;
+import com.buaisociety.pacman.util.Assets;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.joml.Vector2i;
+import org.joml.Vector2ic;
+
+import java.awt.image.BufferedImage;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.StreamSupport;
+
+/**
+ * The immutable, parsed contents of a maze folder in <code>./assets/mazes</code>.
+ *
+ * <p>Loading a maze means reading json files and decoding images, which is far
+ * too slow to do every time a game moves to the next level. Templates are
+ * loaded once per level name and shared by every game (across threads). Each
+ * {@link Maze} only copies the tile layout, since pellets are eaten per game.
+ */
+public final class MazeTemplate {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Map<String, MazeTemplate> TEMPLATES = new ConcurrentHashMap<>();
+    private static final Map<String, List<String>> LEVEL_PRESETS = new ConcurrentHashMap<>();
+
+    private final @NotNull String name;
+    private final int width;
+    private final int height;
+    private final byte[] tiles;  // row-major TileState ids, same layout as Maze
+    private final int[] neighbors;  // per tile and direction, see #getNeighbor(int, Direction)
+    private final byte[] moves;  // per tile, see #getMoves(int)
+    private final int totalPellets;
+    private final @NotNull Vector2ic pacmanSpawnPixel;
+    private final @NotNull Vector2ic ghostRevivePixel;
+    private final @NotNull Vector2ic fruitSpawnPixel;
+    private final @NotNull List<GhostTemplate> ghosts;
+    private final @NotNull NavGraph navGraph;
+    private volatile @Nullable DistanceTable distances;  // loaded on first use
+
+    private MazeTemplate(
+        @NotNull String name,
+        @NotNull TileState[][] tiles,
+        @NotNull Vector2ic pacmanSpawnPixel,
+        @NotNull Vector2ic ghostRevivePixel,
+        @NotNull Vector2ic fruitSpawnPixel,
+        @NotNull List<GhostTemplate> ghosts
+    ) {
+        this.name = name;
+        this.width = tiles[0].length;
+        this.height = tiles.length;
+        this.tiles = new byte[width * height];
+
+        int totalPellets = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                TileState state = tiles[y][x];
+                this.tiles[y * width + x] = (byte) state.ordinal();
+                if (state == TileState.PELLET || state == TileState.POWER_PELLET)
+                    totalPellets++;
+            }
+        }
+
+        // Movement only ever looks 1 tile ahead, so precompute those lookups
+        this.neighbors = new int[width * height * 4];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                for (Direction direction : Direction.values()) {
+                    int neighborX = Math.floorMod(x + direction.getDx(), width);
+                    int neighborY = Math.floorMod(y + direction.getDy(), height);
+                    neighbors[(y * width + x) * 4 + direction.ordinal()] = neighborY * width + neighborX;
+                }
+            }
+        }
+        this.moves = new byte[width * height];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = computeMoves(this.tiles, neighbors, i);
+        }
+
+        this.totalPellets = totalPellets;
+        this.pacmanSpawnPixel = pacmanSpawnPixel;
+        this.ghostRevivePixel = ghostRevivePixel;
+        this.fruitSpawnPixel = fruitSpawnPixel;
+        this.ghosts = List.copyOf(ghosts);
+
+        int spawnTileX = pacmanSpawnPixel.x() / Maze.TILE_SIZE;
+        int spawnTileY = pacmanSpawnPixel.y() / Maze.TILE_SIZE;
+        this.navGraph = new NavGraph(width, height, this.tiles, spawnTileX, spawnTileY);
+    }
+
+    /**
+     * Returns the template for the given maze, loading it the first time it is
+     * requested.
+     *
+     * @param name the name of the maze folder, e.g. <code>"9"</code>
+     * @return the template for the maze
+     * @throws RuntimeException if the maze files could not be loaded
+     */
+    public static @NotNull MazeTemplate get(@NotNull String name) {
+        return TEMPLATES.computeIfAbsent(name, MazeTemplate::load);
+    }
+
+    /**
+     * Returns the level names listed in the given levels preset (like
+     * <code>levels.json</code>), loading it the first time it is requested.
+     *
+     * @param preset the path to the levels preset
+     * @return the level names, in order
+     * @throws RuntimeException if the preset could not be loaded
+     */
+    public static @NotNull List<String> getLevels(@NotNull String preset) {
+        return LEVEL_PRESETS.computeIfAbsent(preset, path -> {
+            JsonNode levelsJson;
+            try {
+                levelsJson = MAPPER.readTree(Assets.readString(path));
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to load " + path, e);
+            }
+
+            return StreamSupport.stream(levelsJson.get("levels").spliterator(), false)
+                .map(JsonNode::asText)
+                .toList();
+        });
+    }
+
+    /**
+     * Forgets all loaded templates and level presets, so they are reloaded from
+     * disk the next time they are requested. Mazes that were already created
+     * are not affected.
+     */
+    public static void clearCache() {
+        TEMPLATES.clear();
+        LEVEL_PRESETS.clear();
+    }
+
+    private static @NotNull MazeTemplate load(@NotNull String name) {
+        JsonNode mazeConfigJson;
+        try {
+            mazeConfigJson = MAPPER.readTree(Assets.readString("mazes/" + name + "/config.json"));
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to load maze config for " + name, e);
+        }
+
+        BufferedImage image;
+        try {
+            image = Assets.readImage("mazes/" + name + "/maze.png");
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to load maze image for " + name, e);
+        }
+
+        TileState[][] tiles = new TileState[image.getHeight()][image.getWidth()];
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int pixel = image.getRGB(x, y);  // ARGB
+                int red = (pixel >> 16) & 0xFF;  // grayscale, so r=g=b
+
+                // This is a 4-bit grayscale image, so we can only have 16 colors
+                int normalized = red / (256 / (TileState.values().length - 1));
+                tiles[image.getHeight() - 1 - y][x] = switch (normalized) {
+                    case 0 -> TileState.SPACE;
+                    case 1 -> TileState.TUNNEL;
+                    case 2 -> TileState.PELLET;
+                    case 3 -> TileState.POWER_PELLET;
+                    case 4 -> TileState.GHOST_PEN;
+                    case 5 -> TileState.WALL;
+                    default -> throw new IllegalStateException("Unexpected value: " + normalized);
+                };
+            }
+        }
+
+        List<GhostTemplate> ghosts = new ArrayList<>();
+        for (JsonNode ghostNode : mazeConfigJson.get("ghosts")) {
+            ghosts.add(GhostTemplate.load(ghostNode));
+        }
+
+        return new MazeTemplate(
+            name,
+            tiles,
+            parseVector(mazeConfigJson.get("pacman_spawn_position")),
+            parseVector(mazeConfigJson.get("ghost_revive_position")),
+            parseVector(mazeConfigJson.get("fruit_spawn_position")),
+            ghosts
+        );
+    }
+
+    /**
+     * Returns the name of this maze. This name matches up with one of the
+     * folders in the <code>./assets/mazes</code> directory.
+     *
+     * @return the name of this maze
+     */
+    public @NotNull String getName() {
+        return name;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the state of the given tile at the start of the level. Unlike
+     * {@link Maze#getTileState(int, int)}, coordinates do not wrap.
+     *
+     * @param x The x-coordinate of the tile.
+     * @param y The y-coordinate of the tile.
+     * @return The state of the tile.
+     */
+    public @NotNull TileState getTileState(int x, int y) {
+        return TileState.byId(tiles[y * width + x]);
+    }
+
+    /**
+     * Returns a copy of the tile layout, as row-major {@link TileState} ids.
+     *
+     * @return a new copy of the tiles
+     */
+    public byte[] copyTiles() {
+        return tiles.clone();
+    }
+
+    /**
+     * Returns the index of the tile next to the given tile, in the given
+     * direction. Like the tunnels, tiles on the edge wrap around to the other
+     * side of the maze.
+     *
+     * @param tile the index of the tile, see {@link Maze#index(int, int)}
+     * @param direction the direction to look in
+     * @return the index of the neighbor
+     */
+    public int getNeighbor(int tile, @NotNull Direction direction) {
+        return neighbors[tile * 4 + direction.ordinal()];
+    }
+
+    /**
+     * Returns the directions an entity on the given tile can move in at the
+     * start of the level, see {@link Maze#getMoves(int)}.
+     *
+     * @param tile the index of the tile, see {@link Maze#index(int, int)}
+     * @return the moves of the tile
+     */
+    public int getMoves(int tile) {
+        return moves[tile];
+    }
+
+    /**
+     * Returns a copy of the moves of every tile, see {@link #getMoves(int)}.
+     *
+     * @return a new copy of the moves
+     */
+    public byte[] copyMoves() {
+        return moves.clone();
+    }
+
+    /**
+     * Returns the neighbor table shared by every maze of this template, in
+     * the order of {@link #getNeighbor(int, Direction)}. Must not be modified.
+     */
+    int[] getNeighbors() {
+        return neighbors;
+    }
+
+    /**
+     * Returns the moves of the given tile (see {@link Maze#getMoves(int)}),
+     * from the states of its neighbors.
+     *
+     * @param tiles the row-major {@link TileState} ids
+     * @param neighbors the neighbor table, see {@link #getNeighbor(int, Direction)}
+     * @param tile the index of the tile
+     * @return the moves of the tile
+     */
+    static byte computeMoves(byte[] tiles, int[] neighbors, int tile) {
+        int moves = 0;
+        for (int direction = 0; direction < 4; direction++) {
+            TileState neighbor = TileState.byId(tiles[neighbors[tile * 4 + direction]]);
+            if (neighbor.isPassable())
+                moves |= 1 << direction;
+            if (neighbor.isGhostPassable())
+                moves |= 1 << (direction + Maze.GHOST_MOVES_SHIFT);
+        }
+        return (byte) moves;
+    }
+
+    /**
+     * Returns the number of pellets (including power pellets) at the start of
+     * the level.
+     *
+     * @return the number of pellets
+     */
+    public int getTotalPellets() {
+        return totalPellets;
+    }
+
+    public @NotNull Vector2ic getPacmanSpawnPixel() {
+        return pacmanSpawnPixel;
+    }
+
+    public @NotNull Vector2ic getGhostRevivePixel() {
+        return ghostRevivePixel;
+    }
+
+    public @NotNull Vector2ic getFruitSpawnPixel() {
+        return fruitSpawnPixel;
+    }
+
+    /**
+     * Returns the ghosts of this maze, in the order they are listed in the
+     * maze's config.
+     *
+     * @return the ghosts of this maze
+     */
+    public @NotNull List<GhostTemplate> getGhosts() {
+        return ghosts;
+    }
+
+    /**
+     * Returns the graph of intersections and corridors in this maze.
+     *
+     * @return the navigation graph
+     */
+    public @NotNull NavGraph getNavGraph() {
+        return navGraph;
+    }
+
+    /**
+     * Returns the shortest path distance between every pair of tiles in this
+     * maze. The table is loaded (or computed) the first time it is requested.
+     *
+     * @return the distance table
+     */
+    public @NotNull DistanceTable getDistances() {
+        DistanceTable distances = this.distances;
+        if (distances == null) {
+            synchronized (this) {
+                distances = this.distances;
+                if (distances == null) {
+                    distances = DistanceTable.load(this);
+                    this.distances = distances;
+                }
+            }
+        }
+        return distances;
+    }
+
+    private static int[] parseColors(@NotNull JsonNode node) {
+        return StreamSupport.stream(node.spliterator(), false)
+            .mapToInt(MazeTemplate::parseColor)
+            .toArray();
+    }
+
+    // Colors are packed as RGBA8888, so the simulation does not need a graphics library
+    private static int parseColor(@NotNull JsonNode node) {
+        int r = (int) (node.get("r").asDouble() * 255);
+        int g = (int) (node.get("g").asDouble() * 255);
+        int b = (int) (node.get("b").asDouble() * 255);
+        int a = (int) (node.get("a").asDouble() * 255);
+        return (r << 24) | (g << 16) | (b << 8) | a;
+    }
+
+    private static @NotNull Vector2ic parseVector(@NotNull JsonNode node) {
+        return new Vector2i(node.get("x").asInt(), node.get("y").asInt());
+    }
+
+
+    /**
+     * The parsed spawn settings of 1 ghost in a maze, combined with the ghost's
+     * own json file (e.g. <code>ghosts/blinky.json</code>).
+     *
+     * <p>The color arrays are shared by every ghost spawned from this template,
+     * and must not be modified.
+     */
+    public static final class GhostTemplate {
+
+        private final @NotNull String name;
+        private final @NotNull Vector2ic spawnPixel;
+        private final @NotNull Direction spawnDirection;
+        private final boolean released;
+        private final @NotNull Vector2ic scatterTile;
+        private final boolean isElroy;
+        private final @NotNull Constructor<? extends Behavior> chaseBehavior;
+        private final int[] colorsAlive;
+        private final int[] colorsFrightened;
+        private final int[] colorsFlash;
+        private final int[] colorsEaten;
+
+        private GhostTemplate(
+            @NotNull String name,
+            @NotNull Vector2ic spawnPixel,
+            @NotNull Direction spawnDirection,
+            boolean released,
+            @NotNull Vector2ic scatterTile,
+            boolean isElroy,
+            @NotNull Constructor<? extends Behavior> chaseBehavior,
+            @NotNull JsonNode colorJson
+        ) {
+            this.name = name;
+            this.spawnPixel = spawnPixel;
+            this.spawnDirection = spawnDirection;
+            this.released = released;
+            this.scatterTile = scatterTile;
+            this.isElroy = isElroy;
+            this.chaseBehavior = chaseBehavior;
+            this.colorsAlive = parseColors(colorJson.get("alive"));
+            this.colorsFrightened = parseColors(colorJson.get("frightened"));
+            this.colorsFlash = parseColors(colorJson.get("flash"));
+            this.colorsEaten = parseColors(colorJson.get("eaten"));
+        }
+
+        private static @NotNull GhostTemplate load(@NotNull JsonNode ghostNode) {
+            String ghostName = ghostNode.get("name").asText();  // expect a value like 'ghosts/inky.json'
+            Direction spawnDirection = Direction.valueOf(ghostNode.get("spawn_direction").asText().toUpperCase(Locale.ROOT));
+
+            JsonNode ghostJson;
+            try {
+                ghostJson = MAPPER.readTree(Assets.readString(ghostName));
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to load ghost config for " + ghostName, e);
+            }
+
+            String behaviorClassPath = ghostJson.get("chase_behavior").asText();
+            Constructor<? extends Behavior> chaseBehavior;
+            try {
+                chaseBehavior = Class.forName(behaviorClassPath).asSubclass(Behavior.class).getConstructor();
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to load behavior for " + ghostName, e);
+            }
+
+            return new GhostTemplate(
+                ghostName,
+                parseVector(ghostNode.get("spawn_position")),
+                spawnDirection,
+                ghostNode.get("is_released").asBoolean(),
+                parseVector(ghostNode.get("scatter_tile")),
+                ghostJson.get("is_elroy").asBoolean(),
+                chaseBehavior,
+                ghostJson.get("colors")
+            );
+        }
+
+        /**
+         * Returns the path to the ghost's json file, like <code>ghosts/inky.json</code>.
+         *
+         * @return the path to the ghost's json file
+         */
+        public @NotNull String getName() {
+            return name;
+        }
+
+        public @NotNull Vector2ic getSpawnPixel() {
+            return spawnPixel;
+        }
+
+        public @NotNull Direction getSpawnDirection() {
+            return spawnDirection;
+        }
+
+        public boolean isReleased() {
+            return released;
+        }
+
+        public @NotNull Vector2ic getScatterTile() {
+            return scatterTile;
+        }
+
+        public boolean isElroy() {
+            return isElroy;
+        }
+
+        /**
+         * Returns the class of the ghost's chase behavior, without creating
+         * an instance of it.
+         *
+         * @return the class of the chase behavior
+         */
+        public @NotNull Class<? extends Behavior> getChaseBehaviorType() {
+            return chaseBehavior.getDeclaringClass();
+        }
+
+        /**
+         * Creates a new instance of the ghost's chase behavior. Behaviors may
+         * hold state, so every ghost needs its own instance.
+         *
+         * @return the new chase behavior
+         * @throws RuntimeException if the behavior could not be created
+         */
+        public @NotNull Behavior newChaseBehavior() {
+            try {
+                return chaseBehavior.newInstance();
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to load behavior for " + name, e);
+            }
+        }
+
+        public int[] getColorsAlive() {
+            return colorsAlive;
+        }
+
+        public int[] getColorsFrightened() {
+            return colorsFrightened;
+        }
+
+        public int[] getColorsFlash() {
+            return colorsFlash;
+        }
+
+        public int[] getColorsEaten() {
+            return colorsEaten;
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package com.buaisociety.pacman.maze;
+
+import com.buaisociety.pacman.entity.Direction;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A graph of the walkable parts of a maze. Nodes are the tiles where an entity
+ * can make a decision (intersections and dead ends), and edges are the
+ * corridors between them. Corridors that go through the tunnels wrap around
+ * the maze, just like {@link Maze#getTile(int, int)} does.
+ *
+ * <p>The graph only depends on the layout of a maze, so it is built once per
+ * {@link MazeTemplate} and shared by every game. Only the tiles that Pacman
+ * can reach from its spawn are part of the graph, and only tiles that are
+ * {@link TileState#isPassable() passable} to all entities are walkable (so the
+ * ghost pen is not included).
+ *
+ * <p>Tiles are referred to by their coordinates, or by their index in the
+ * row-major tile grid (see {@link Maze#index(int, int)}).
+ */
+public final class NavGraph {
+
+    /**
+     * For internal use only -- DO NOT MODIFY
+     *
+     * <p>the <code>.values()</code> is extremely inefficient. Cache.
+     */
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final int width;
+    private final int height;
+    private final boolean[] walkable;   // tile index -> reachable and passable
+    private final int[] nodeAt;         // tile index -> node id, or -1
+    private final int[] nodeTiles;      // node id -> tile index
+    private final Edge[] nodeEdges;     // node id * 4 + direction -> edge, or null
+    private final int[] nextNode;       // tile index * 4 + direction -> node id, or -1
+    private final int[] nextNodeDistance;
+    private final List<Edge> edges;
+
+    NavGraph(int width, int height, byte[] tiles, int startX, int startY) {
+        this.width = width;
+        this.height = height;
+
+        // Flood fill from the start, so unreachable areas (like the score area
+        // at the top of the screen) are left out of the graph
+        boolean[] passable = new boolean[tiles.length];
+        for (int i = 0; i < tiles.length; i++) {
+            passable[i] = TileState.byId(tiles[i]).isPassable();
+        }
+
+        walkable = new boolean[tiles.length];
+        int start = Math.floorMod(startY, height) * width + Math.floorMod(startX, width);
+        if (passable[start]) {
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            walkable[start] = true;
+            queue.add(start);
+            while (!queue.isEmpty()) {
+                int tile = queue.poll();
+                for (Direction direction : DIRECTIONS) {
+                    int neighbor = neighbor(tile, direction);
+                    if (passable[neighbor] && !walkable[neighbor]) {
+                        walkable[neighbor] = true;
+                        queue.add(neighbor);
+                    }
+                }
+            }
+        }
+
+        // Every walkable tile that is not a plain corridor (exactly 2 exits)
+        // becomes a node
+        nodeAt = new int[tiles.length];
+        Arrays.fill(nodeAt, -1);
+        int nodeCount = 0;
+        for (int i = 0; i < tiles.length; i++) {
+            if (walkable[i] && getExits(i) != 2)
+                nodeAt[i] = nodeCount++;
+        }
+
+        nodeTiles = new int[nodeCount];
+        for (int i = 0; i < tiles.length; i++) {
+            if (nodeAt[i] != -1)
+                nodeTiles[nodeAt[i]] = i;
+        }
+
+        // Walk each corridor from each node, recording the edge and how far
+        // every tile along the way is from the end of the corridor
+        nodeEdges = new Edge[nodeCount * DIRECTIONS.length];
+        nextNode = new int[tiles.length * DIRECTIONS.length];
+        nextNodeDistance = new int[tiles.length * DIRECTIONS.length];
+        Arrays.fill(nextNode, -1);
+        Arrays.fill(nextNodeDistance, -1);
+
+        List<Edge> edges = new ArrayList<>();
+        for (int node = 0; node < nodeCount; node++) {
+            for (Direction direction : DIRECTIONS) {
+                Edge edge = walk(node, direction);
+                if (edge == null)
+                    continue;
+
+                edges.add(edge);
+                nodeEdges[node * DIRECTIONS.length + direction.ordinal()] = edge;
+            }
+        }
+        this.edges = List.copyOf(edges);
+    }
+
+    private int neighbor(int tile, @NotNull Direction direction) {
+        int x = Math.floorMod(tile % width + direction.getDx(), width);
+        int y = Math.floorMod(tile / width + direction.getDy(), height);
+        return y * width + x;
+    }
+
+    private boolean crossesEdge(int tile, @NotNull Direction direction) {
+        int x = tile % width + direction.getDx();
+        int y = tile / width + direction.getDy();
+        return x < 0 || x >= width || y < 0 || y >= height;
+    }
+
+    private int getExits(int tile) {
+        int exits = 0;
+        for (Direction direction : DIRECTIONS) {
+            if (walkable[neighbor(tile, direction)])
+                exits++;
+        }
+        return exits;
+    }
+
+    private @Nullable Edge walk(int node, @NotNull Direction direction) {
+        int from = nodeTiles[node];
+        if (!walkable[neighbor(from, direction)])
+            return null;
+
+        List<Integer> corridor = new ArrayList<>();
+        List<Direction> steps = new ArrayList<>();
+        boolean wraps = crossesEdge(from, direction);
+        Direction heading = direction;
+        int current = neighbor(from, direction);
+
+        while (nodeAt[current] == -1) {
+            // Corridors have exactly 2 exits, and we came in through one of them
+            Direction next = null;
+            for (Direction candidate : DIRECTIONS) {
+                if (candidate != heading.behind() && walkable[neighbor(current, candidate)]) {
+                    next = candidate;
+                    break;
+                }
+            }
+
+            // A loop without any intersections, which no maze should have
+            if (next == null || corridor.size() > walkable.length)
+                return null;
+
+            corridor.add(current);
+            steps.add(next);
+            wraps |= crossesEdge(current, next);
+            heading = next;
+            current = neighbor(current, next);
+        }
+
+        int[] corridorTiles = corridor.stream().mapToInt(Integer::intValue).toArray();
+        int to = nodeAt[current];
+        int length = corridorTiles.length + 1;
+
+        nextNode[from * DIRECTIONS.length + direction.ordinal()] = to;
+        nextNodeDistance[from * DIRECTIONS.length + direction.ordinal()] = length;
+        for (int i = 0; i < corridorTiles.length; i++) {
+            int index = corridorTiles[i] * DIRECTIONS.length + steps.get(i).ordinal();
+            nextNode[index] = to;
+            nextNodeDistance[index] = length - (i + 1);
+        }
+
+        return new Edge(node, to, direction, heading, length, corridorTiles, wraps);
+    }
+
+    private int toIndex(int x, int y) {
+        return Math.floorMod(y, height) * width + Math.floorMod(x, width);
+    }
+
+    /**
+     * Returns the number of nodes (intersections and dead ends) in the graph.
+     *
+     * @return the number of nodes
+     */
+    public int getNodeCount() {
+        return nodeTiles.length;
+    }
+
+    /**
+     * Returns the id of the node at the given tile, or -1 if the tile is not a
+     * node (it is a wall, or the middle of a corridor).
+     *
+     * @param x The x-coordinate of the tile.
+     * @param y The y-coordinate of the tile.
+     * @return the node id, or -1
+     */
+    public int getNode(int x, int y) {
+        return nodeAt[toIndex(x, y)];
+    }
+
+    public int getNodeX(int node) {
+        return nodeTiles[node] % width;
+    }
+
+    public int getNodeY(int node) {
+        return nodeTiles[node] / width;
+    }
+
+    /**
+     * Returns true if the given tile is part of the graph; it is passable and
+     * can be reached from Pacman's spawn.
+     *
+     * @param x The x-coordinate of the tile.
+     * @param y The y-coordinate of the tile.
+     * @return true if the tile is walkable
+     */
+    public boolean isWalkable(int x, int y) {
+        return walkable[toIndex(x, y)];
+    }
+
+    /**
+     * Returns true if the given tile is an intersection, where an entity
+     * moving through the tile can choose between at least 2 directions.
+     *
+     * @param x The x-coordinate of the tile.
+     * @param y The y-coordinate of the tile.
+     * @return true if the tile is an intersection
+     */
+    public boolean isIntersection(int x, int y) {
+        int tile = toIndex(x, y);
+        return nodeAt[tile] != -1 && getExits(tile) > 2;
+    }
+
+    /**
+     * Returns the corridor leaving the given node in the given direction, or
+     * <code>null</code> if there is a wall in that direction.
+     *
+     * @param node the node id
+     * @param direction the direction to leave the node
+     * @return the edge, or <code>null</code>
+     */
+    public @Nullable Edge getEdge(int node, @NotNull Direction direction) {
+        return nodeEdges[node * DIRECTIONS.length + direction.ordinal()];
+    }
+
+    /**
+     * Returns every (directed) corridor in the graph. Each corridor is listed
+     * once for each direction it can be travelled.
+     *
+     * @return all edges
+     */
+    public @NotNull List<Edge> getEdges() {
+        return edges;
+    }
+
+    /**
+     * Returns the node that an entity reaches when it leaves the given tile in
+     * the given direction and follows the corridor, or -1 if it cannot move in
+     * that direction.
+     *
+     * @param x The x-coordinate of the tile.
+     * @param y The y-coordinate of the tile.
+     * @param direction The direction to leave the tile.
+     * @return the node id, or -1
+     */
+    public int getNextNode(int x, int y, @NotNull Direction direction) {
+        return nextNode[toIndex(x, y) * DIRECTIONS.length + direction.ordinal()];
+    }
+
+    /**
+     * Returns the number of tiles to the node from {@link #getNextNode(int, int, Direction)},
+     * or -1 if the entity cannot move in that direction.
+     *
+     * @param x The x-coordinate of the tile.
+     * @param y The y-coordinate of the tile.
+     * @param direction The direction to leave the tile.
+     * @return the distance in tiles, or -1
+     */
+    public int getDistanceToNextNode(int x, int y, @NotNull Direction direction) {
+        return nextNodeDistance[toIndex(x, y) * DIRECTIONS.length + direction.ordinal()];
+    }
+
+    /**
+     * A corridor between 2 nodes, travelled in 1 direction.
+     */
+    public static final class Edge {
+
+        private final int from;
+        private final int to;
+        private final @NotNull Direction startDirection;
+        private final @NotNull Direction endDirection;
+        private final int length;
+        private final int[] tiles;
+        private final boolean tunnel;
+
+        private Edge(int from, int to, @NotNull Direction startDirection, @NotNull Direction endDirection, int length, int[] tiles, boolean tunnel) {
+            this.from = from;
+            this.to = to;
+            this.startDirection = startDirection;
+            this.endDirection = endDirection;
+            this.length = length;
+            this.tiles = tiles;
+            this.tunnel = tunnel;
+        }
+
+        /**
+         * Returns the node this corridor starts at.
+         *
+         * @return the node id
+         */
+        public int getFrom() {
+            return from;
+        }
+
+        /**
+         * Returns the node this corridor ends at.
+         *
+         * @return the node id
+         */
+        public int getTo() {
+            return to;
+        }
+
+        /**
+         * Returns the direction to leave the start node in.
+         *
+         * @return the starting direction
+         */
+        public @NotNull Direction getStartDirection() {
+            return startDirection;
+        }
+
+        /**
+         * Returns the direction an entity is moving when it arrives at the
+         * end node.
+         *
+         * @return the arriving direction
+         */
+        public @NotNull Direction getEndDirection() {
+            return endDirection;
+        }
+
+        /**
+         * Returns the number of tiles moved to get from the start node to the
+         * end node.
+         *
+         * @return the length of the corridor
+         */
+        public int getLength() {
+            return length;
+        }
+
+        /**
+         * Returns the number of tiles between the 2 nodes.
+         *
+         * @return the number of tiles
+         */
+        public int getTileCount() {
+            return tiles.length;
+        }
+
+        /**
+         * Returns the index (see {@link Maze#index(int, int)}) of a tile in
+         * the corridor, in the order they are travelled. The nodes at either
+         * end are not included.
+         *
+         * @param i the position in the corridor, from 0 to {@link #getTileCount()}
+         * @return the tile index
+         */
+        public int getTile(int i) {
+            return tiles[i];
+        }
+
+        /**
+         * Returns true if this corridor wraps around the maze through a tunnel.
+         *
+         * @return true if this corridor uses a tunnel
+         */
+        public boolean isTunnel() {
+            return tunnel;
+        }
+    }
+}
@@ -3,23 +3,29 @@ package com.buaisociety.pacman.maze;
 import com.buaisociety.pacman.entity.Direction;
 import org.jetbrains.annotations.NotNull;
 import org.joml.Vector2i;
-import org.joml.Vector2ic;
-
-import java.util.Objects;
 
 /**
  * Represents a tile in the maze.
+ *
+ * <p>Tiles are lightweight views into the {@link Maze}'s tile grid. The maze
+ * itself only stores a flat array of {@link TileState} ids, and tiles are
+ * created on demand. Changing the state of a tile changes the state of the
+ * maze, and 2 tiles are equal when they point to the same cell of the same
+ * maze.
+ *
+ * <p>Performance sensitive code should prefer the coordinate based methods,
+ * like {@link Maze#getTileState(int, int)}, which do not allocate.
  */
-public class Tile {
+public final class Tile {
 
     private final @NotNull Maze maze;
-    private final @NotNull Vector2i position;
-    private @NotNull TileState state;
+    private final int x;
+    private final int y;
 
-    public Tile(@NotNull Maze maze, @NotNull Vector2i position, @NotNull TileState state) {
+    Tile(@NotNull Maze maze, int x, int y) {
         this.maze = maze;
-        this.position = position;
-        this.state = state;
+        this.x = x;
+        this.y = y;
     }
 
     /**
@@ -31,6 +37,24 @@ public class Tile {
         return maze;
     }
 
+    /**
+     * Returns the x coordinate of this tile, in tile units.
+     *
+     * @return the x coordinate of this tile.
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * Returns the y coordinate of this tile, in tile units.
+     *
+     * @return the y coordinate of this tile.
+     */
+    public int getY() {
+        return y;
+    }
+
     /**
      * Returns the tile coordinates of this tile.
      *
@@ -38,8 +62,8 @@ public class Tile {
      *
      * @return the tile coordinates of this tile.
      */
-    public @NotNull Vector2ic getPosition() {
-        return position;
+    public @NotNull Vector2i getPosition() {
+        return new Vector2i(x, y);
     }
 
     /**
@@ -48,7 +72,7 @@ public class Tile {
      * @return the current state of the tile.
      */
     public @NotNull TileState getState() {
-        return state;
+        return maze.getTileState(x, y);
     }
 
     /**
@@ -61,7 +85,7 @@ public class Tile {
      * @param state the new state of the tile.
      */
     public void setState(@NotNull TileState state) {
-        this.state = state;
+        maze.setTileState(x, y, state);
     }
 
     /**
@@ -73,9 +97,7 @@ public class Tile {
      * @return the position of the center pixel of this tile
      */
     public @NotNull Vector2i getCenterPixel() {
-        int x = position.x * Maze.TILE_SIZE + Maze.TILE_SIZE / 2 - 1;
-        int y = position.y * Maze.TILE_SIZE + Maze.TILE_SIZE / 2 - 1;
-        return new Vector2i(x, y);
+        return new Vector2i(Maze.toCenterPixel(x), Maze.toCenterPixel(y));
     }
 
     /**
@@ -85,19 +107,23 @@ public class Tile {
      * @return the neighbor tile in the given direction
      */
     public @NotNull Tile getNeighbor(@NotNull Direction direction) {
-        return maze.getTile(position.x + direction.getDx(), position.y + direction.getDy());
+        return maze.getTile(x + direction.getDx(), y + direction.getDy());
     }
 
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        Tile tile = (Tile) o;
-        return Objects.equals(maze, tile.maze) && Objects.equals(position, tile.position);
+        if (!(o instanceof Tile tile)) return false;
+        return maze == tile.maze && x == tile.x && y == tile.y;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(maze, position);
+        return 31 * (31 * System.identityHashCode(maze) + x) + y;
+    }
+
+    @Override
+    public String toString() {
+        return "Tile{" + x + ", " + y + ", " + getState() + "}";
     }
 }
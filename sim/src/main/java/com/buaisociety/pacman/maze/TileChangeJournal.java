@@ -0,0 +1,170 @@
+package com.buaisociety.pacman.maze;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * The tiles of a {@link Maze} that changed during the last tick, in the order
+ * they changed. This includes eaten pellets and power pellets, and every other
+ * call to {@link Maze#setTileState(int, int, TileState)}.
+ *
+ * <p>Caches built from the tiles (render caches, distance fields, pellet
+ * features) can read this after every {@link Maze#update()} and only redo the
+ * changed tiles, instead of scanning the whole maze. Changes made between
+ * updates (e.g. by a {@link com.buaisociety.pacman.event.CreateMazeEvent}
+ * listener) are kept, and show up together with the changes of the next tick.
+ * Until then, they are not counted by {@link #size()}.
+ *
+ * <p>A cache that skipped a tick (or was created after the maze) cannot catch
+ * up from the journal. Remember {@link #getGeneration()} after reading, and
+ * rebuild from every tile when the next generation is not exactly 1 more, or
+ * when {@link #isRescanNeeded()} is true:
+ *
+ * <pre>{@code
+ * if (journal.isRescanNeeded() || journal.getGeneration() != seen + 1)
+ *     rebuild(maze);
+ * else
+ *     apply(journal);
+ * seen = journal.getGeneration();
+ * }</pre>
+ *
+ * <p>Changes are packed into a reused <code>int[]</code>, so recording and
+ * reading them does not allocate once the buffer has grown large enough.
+ */
+public final class TileChangeJournal {
+
+    private static final TileState[] STATES = TileState.values();
+
+    private final int width;
+    private int[] changes = new int[16];  // tile << 8 | old state << 4 | new state
+    private int recorded;  // including the changes made since the last tick
+    private int size;      // the changes of the last tick
+    private long generation;
+    private boolean rescanNeeded;
+
+    TileChangeJournal(int width) {
+        this.width = width;
+    }
+
+    /**
+     * Returns the number of changes of the last tick, including the changes
+     * made before it started.
+     *
+     * @return the number of changes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of times the journal was started over, which is once
+     * per tick and once per restored snapshot.
+     *
+     * @return the generation of the changes in the journal
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Returns true if the tiles were replaced in a way that is not journaled,
+     * which happens when a {@link com.buaisociety.pacman.GameSnapshot} is
+     * restored. Caches must then rebuild from every tile.
+     *
+     * @return true if every tile may have changed
+     */
+    public boolean isRescanNeeded() {
+        return rescanNeeded;
+    }
+
+    /**
+     * Returns the index of the changed tile, see {@link Maze#index(int, int)}.
+     *
+     * @param change the index of the change, less than {@link #size()}
+     * @return the index of the tile
+     */
+    public int getTile(int change) {
+        return get(change) >>> 8;
+    }
+
+    /**
+     * Returns the x-coordinate of the changed tile.
+     *
+     * @param change the index of the change, less than {@link #size()}
+     * @return the x-coordinate of the tile
+     */
+    public int getTileX(int change) {
+        return getTile(change) % width;
+    }
+
+    /**
+     * Returns the y-coordinate of the changed tile.
+     *
+     * @param change the index of the change, less than {@link #size()}
+     * @return the y-coordinate of the tile
+     */
+    public int getTileY(int change) {
+        return getTile(change) / width;
+    }
+
+    /**
+     * Returns the state of the tile before the change. A pellet was eaten
+     * when this is {@link TileState#PELLET} or {@link TileState#POWER_PELLET}
+     * and the new state is {@link TileState#SPACE}.
+     *
+     * @param change the index of the change, less than {@link #size()}
+     * @return the old state of the tile
+     */
+    public @NotNull TileState getOldState(int change) {
+        return STATES[(get(change) >>> 4) & 0xF];
+    }
+
+    /**
+     * Returns the state of the tile after the change.
+     *
+     * @param change the index of the change, less than {@link #size()}
+     * @return the new state of the tile
+     */
+    public @NotNull TileState getNewState(int change) {
+        return STATES[get(change) & 0xF];
+    }
+
+    private int get(int change) {
+        if (change < 0 || change >= size)
+            throw new IndexOutOfBoundsException("Change " + change + " out of bounds for " + size + " changes");
+        return changes[change];
+    }
+
+    void add(int tile, @NotNull TileState oldState, @NotNull TileState newState) {
+        if (recorded == changes.length)
+            changes = Arrays.copyOf(changes, changes.length * 2);
+        changes[recorded++] = tile << 8 | oldState.ordinal() << 4 | newState.ordinal();
+    }
+
+    void markRescanNeeded() {
+        recorded = 0;
+        size = 0;
+        generation++;
+        rescanNeeded = true;
+    }
+
+    /**
+     * Drops the changes of the previous tick, and keeps the ones made since.
+     */
+    void beginTick() {
+        int pending = recorded - size;
+        System.arraycopy(changes, size, changes, 0, pending);
+        recorded = pending;
+        size = 0;
+        generation++;
+        rescanNeeded = false;
+    }
+
+    /**
+     * Makes every change recorded so far readable, until the next tick.
+     */
+    void endTick() {
+        size = recorded;
+    }
+}
@@ -1,5 +1,7 @@
 package com.buaisociety.pacman.maze;
 
+import org.jetbrains.annotations.NotNull;
+
 /**
  * Represents the state of a tile on the board.
  *
@@ -42,6 +44,14 @@ public enum TileState {
     GHOST_PEN(false);
 
 
+    /**
+     * For internal use only -- DO NOT MODIFY
+     *
+     * <p>Mazes store tiles as the {@link #ordinal()} of their state. Cache the
+     * values so ids can be converted back without copying the array.
+     */
+    private static final TileState[] VALUES = values();
+
     private final boolean isPassable;
 
     TileState(boolean isPassable) {
@@ -57,4 +67,25 @@ public enum TileState {
     public boolean isPassable() {
         return isPassable;
     }
+
+    /**
+     * Returns whether ghosts can pass this tile. Unlike pacman, ghosts can
+     * move through the {@link #GHOST_PEN}.
+     *
+     * @return true if the tile is passable to ghosts, false otherwise.
+     */
+    public boolean isGhostPassable() {
+        return isPassable || this == GHOST_PEN;
+    }
+
+    /**
+     * Returns the tile state with the given id. The id of a tile state is its
+     * {@link #ordinal()}, which is how the {@link Maze} stores its tiles.
+     *
+     * @param id the id of the tile state.
+     * @return the tile state with the given id.
+     */
+    public static @NotNull TileState byId(int id) {
+        return VALUES[id];
+    }
 }
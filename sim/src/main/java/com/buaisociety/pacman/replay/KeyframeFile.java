@@ -0,0 +1,279 @@
+package com.buaisociety.pacman.replay;
+
+import com.buaisociety.pacman.GameManager;
+import com.buaisociety.pacman.GameSnapshot;
+import com.buaisociety.pacman.entity.EntityType;
+import com.buaisociety.pacman.entity.FruitEntity;
+import com.buaisociety.pacman.entity.GhostEntity;
+import com.buaisociety.pacman.entity.PacmanEntity;
+import com.buaisociety.pacman.maze.BonusPoints;
+import com.buaisociety.pacman.maze.Maze;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.joml.Vector2d;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Reads and writes the keyframes of a {@link Replayer}, so a replay loaded
+ * from disk can seek without playing the game first.
+ *
+ * <p>Keyframes hold references to the mazes and entities of the game that
+ * took them, which are gone once that game is. So every reference is stored
+ * as a value: the maze as the level it belongs to, ghosts by their index in
+ * the maze, pacmen by their player, fruits by the order they first show up
+ * in the keyframe, and bonus points by their fields. Reading the file builds
+ * 1 maze per level with {@link GameManager#startLevel(int)}, and points the
+ * references at its entities (and at new fruits and bonus points).
+ */
+final class KeyframeFile {
+
+    private static final int MAGIC = 0x50414346;  // "PACF"
+    private static final int VERSION = 1;
+
+    private static final int NULL = 0;
+    private static final int MAZE = 1;
+    private static final int GHOST = 2;
+    private static final int PACMAN = 3;
+    private static final int FRUIT = 4;
+    private static final int BONUS = 5;
+
+    private static final EntityType[] ENTITY_TYPES = EntityType.values();
+
+    private KeyframeFile() {
+    }
+
+    static void write(@NotNull DataOutputStream out, @NotNull Replay replay, @NotNull List<Replayer.Keyframe> keyframes) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeIdentity(out, replay);
+
+        out.writeInt(keyframes.size());
+        for (Replayer.Keyframe keyframe : keyframes) {
+            out.writeInt(keyframe.tick);
+            out.writeInt(keyframe.level);
+            out.writeInt(keyframe.decision);
+            keyframe.snapshot.write(out, new RefWriter());
+        }
+        out.flush();
+    }
+
+    static @NotNull List<Replayer.Keyframe> read(@NotNull DataInputStream in, @NotNull Replay replay, @NotNull GameManager gameManager) throws IOException {
+        if (in.readInt() != MAGIC)
+            throw new IOException("Not a keyframe file");
+        int version = in.readInt();
+        if (version < 1 || version > VERSION)
+            throw new IOException("Unsupported keyframe version " + version);
+        if (!readIdentity(in, replay))
+            throw new IOException("Keyframes were taken from a different replay");
+
+        int count = in.readInt();
+        if (count < 1)
+            throw new IOException("Corrupt keyframe file, " + count + " keyframes");
+
+        Map<Integer, Level> levels = new HashMap<>();
+        List<Replayer.Keyframe> keyframes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int tick = in.readInt();
+            int level = in.readInt();
+            int decision = in.readInt();
+            if (i == 0 ? tick != 0 : tick <= keyframes.get(i - 1).tick)
+                throw new IOException("Corrupt keyframe file, keyframe " + i + " is at tick " + tick);
+            if (level < 1)
+                throw new IOException("Corrupt keyframe file, keyframe " + i + " is on level " + level);
+
+            GameSnapshot snapshot = new GameSnapshot();
+            snapshot.read(in, gameManager, new RefReader(levels, level, gameManager));
+            keyframes.add(new Replayer.Keyframe(tick, level, decision, snapshot));
+        }
+        return keyframes;
+    }
+
+    // The fields of the replay that decide how the game plays out
+    private static void writeIdentity(@NotNull DataOutputStream out, @NotNull Replay replay) throws IOException {
+        GameManager.Config config = replay.getConfig();
+        out.writeInt(config.id);
+        out.writeUTF(config.levelsPreset);
+        out.writeInt(config.startLevel);
+        out.writeInt(config.startLives);
+        out.writeInt(config.startScore);
+        out.writeInt(config.handicap);
+        out.writeLong(config.seed);
+        out.writeInt(config.episode);
+        out.writeInt(config.pacmen);
+        out.writeInt(replay.getDecisionCount());
+    }
+
+    private static boolean readIdentity(@NotNull DataInputStream in, @NotNull Replay replay) throws IOException {
+        GameManager.Config config = replay.getConfig();
+        boolean same = in.readInt() == config.id;
+        same &= in.readUTF().equals(config.levelsPreset);
+        same &= in.readInt() == config.startLevel;
+        same &= in.readInt() == config.startLives;
+        same &= in.readInt() == config.startScore;
+        same &= in.readInt() == config.handicap;
+        same &= in.readLong() == config.seed;
+        same &= in.readInt() == config.episode;
+        same &= in.readInt() == config.pacmen;
+        same &= in.readInt() == replay.getDecisionCount();
+        return same;
+    }
+
+    /**
+     * Writes the references of 1 snapshot. The maze is always the first
+     * reference (see {@link GameManager#snapshot}), so the entities after it
+     * are looked up in that maze.
+     */
+    private static final class RefWriter implements GameSnapshot.RefWriter {
+
+        private final @NotNull Map<FruitEntity, Integer> fruits = new IdentityHashMap<>();
+        private @Nullable Maze maze;
+
+        @Override
+        public void write(@NotNull DataOutputStream out, @Nullable Object ref) throws IOException {
+            if (ref == null) {
+                out.writeByte(NULL);
+            } else if (ref instanceof Maze) {
+                maze = (Maze) ref;
+                out.writeByte(MAZE);
+            } else if (ref instanceof GhostEntity) {
+                out.writeByte(GHOST);
+                out.writeInt(indexOf((GhostEntity) ref));
+            } else if (ref instanceof PacmanEntity) {
+                out.writeByte(PACMAN);
+                out.writeInt(((PacmanEntity) ref).getPlayer());
+            } else if (ref instanceof FruitEntity) {
+                Integer id = fruits.get(ref);
+                if (id == null) {
+                    id = fruits.size();
+                    fruits.put((FruitEntity) ref, id);
+                }
+                out.writeByte(FRUIT);
+                out.writeInt(id);
+            } else if (ref instanceof BonusPoints) {
+                BonusPoints bonus = (BonusPoints) ref;
+                out.writeByte(BONUS);
+                out.writeByte(bonus.getSource().ordinal());
+                out.writeDouble(bonus.getPosition().x());
+                out.writeDouble(bonus.getPosition().y());
+                out.writeInt(bonus.getPoints());
+                out.writeInt(bonus.getLifetime());
+            } else {
+                throw new IllegalArgumentException("Cannot store a " + ref.getClass().getName() + " in a keyframe file");
+            }
+        }
+
+        private int indexOf(@NotNull GhostEntity ghost) {
+            if (maze != null) {
+                for (int i = 0; i < maze.getGhostCount(); i++) {
+                    if (maze.getGhost(i) == ghost)
+                        return i;
+                }
+            }
+            throw new IllegalArgumentException("Ghost is not in the maze of the keyframe");
+        }
+    }
+
+    /**
+     * Reads the references of 1 snapshot, building the maze of its level the
+     * first time a level is seen.
+     */
+    private static final class RefReader implements GameSnapshot.RefReader {
+
+        private final @NotNull Map<Integer, Level> levels;
+        private final int level;
+        private final @NotNull GameManager gameManager;
+        private final @NotNull List<FruitEntity> fruits = new ArrayList<>();
+        private @Nullable Level current;
+
+        private RefReader(@NotNull Map<Integer, Level> levels, int level, @NotNull GameManager gameManager) {
+            this.levels = levels;
+            this.level = level;
+            this.gameManager = gameManager;
+        }
+
+        @Override
+        public @Nullable Object read(@NotNull DataInputStream in) throws IOException {
+            int tag = in.readUnsignedByte();
+            if (tag == NULL)
+                return null;
+            if (tag == MAZE) {
+                current = levels.computeIfAbsent(level, this::startLevel);
+                return current.maze;
+            }
+
+            Level current = this.current;
+            if (current == null)
+                throw new IOException("Corrupt keyframe file, entity before the maze");
+            switch (tag) {
+                case GHOST: {
+                    int index = in.readInt();
+                    if (index < 0 || index >= current.ghosts.length)
+                        throw new IOException("Corrupt keyframe file, no ghost " + index + " on level " + level);
+                    return current.ghosts[index];
+                }
+                case PACMAN: {
+                    PacmanEntity pacman = current.pacmen.get(in.readInt());
+                    if (pacman == null)
+                        throw new IOException("Corrupt keyframe file, missing pacman on level " + level);
+                    return pacman;
+                }
+                case FRUIT: {
+                    int id = in.readInt();
+                    while (fruits.size() <= id) {
+                        FruitEntity.Config config = new FruitEntity.Config();
+                        config.spawnPixel = new Vector2d(current.maze.getTemplate().getFruitSpawnPixel());
+                        fruits.add(new FruitEntity(current.maze, config));
+                    }
+                    return fruits.get(id);
+                }
+                case BONUS: {
+                    int source = in.readUnsignedByte();
+                    if (source >= ENTITY_TYPES.length)
+                        throw new IOException("Corrupt keyframe file, unknown bonus source " + source);
+                    Vector2d position = new Vector2d(in.readDouble(), in.readDouble());
+                    int points = in.readInt();
+                    int lifetime = in.readInt();
+                    return new BonusPoints(ENTITY_TYPES[source], position, points, lifetime);
+                }
+                default:
+                    throw new IOException("Corrupt keyframe file, unknown reference " + tag);
+            }
+        }
+
+        private @NotNull Level startLevel(int level) {
+            gameManager.startLevel(level);
+            return new Level(Objects.requireNonNull(gameManager.getCurrentMaze()));
+        }
+    }
+
+    /**
+     * The maze built for 1 level, with its entities as they were spawned.
+     */
+    private static final class Level {
+
+        private final @NotNull Maze maze;
+        private final @NotNull GhostEntity[] ghosts;
+        private final @NotNull Map<Integer, PacmanEntity> pacmen = new HashMap<>();
+
+        private Level(@NotNull Maze maze) {
+            this.maze = maze;
+            this.ghosts = new GhostEntity[maze.getGhostCount()];
+            for (int i = 0; i < ghosts.length; i++) {
+                ghosts[i] = maze.getGhost(i);
+            }
+            for (int i = 0; i < maze.getPacmanCount(); i++) {
+                PacmanEntity pacman = maze.getPacman(i);
+                pacmen.put(pacman.getPlayer(), pacman);
+            }
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.buaisociety.pacman.replay;
+
+import com.buaisociety.pacman.GameManager;
+import com.buaisociety.pacman.entity.Direction;
+import com.buaisociety.pacman.entity.PacmanEntity;
+import com.buaisociety.pacman.entity.behavior.Behavior;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * A recording of 1 game, small enough to keep for every game of a generation.
+ *
+ * <p>Games are deterministic, given their {@link GameManager.Config} (which
+ * includes the seed, see {@link GameManager#getRandom()}) and the directions
+ * chosen by pacman's behavior. So instead of storing the state of every
+ * tick, a replay stores the config and every direction pacman chose, packed
+ * into 2 bits each. Behaviors may also kill pacman (e.g. when it stops
+ * scoring), so those are recorded too. Behaviors that need randomness must
+ * use their own random source, not the game's, since a replayed behavior
+ * does not draw from it.
+ *
+ * <p>A replay only plays back the same way on the rules (and random streams)
+ * it was recorded with, so replays from older versions of the game are
+ * rejected when read.
+ *
+ * <p>To record a game, wrap pacman's behavior with {@link #record(Behavior)}
+ * and call {@link #finish(GameManager)} when the game ends. Use a
+ * {@link Replayer} to play it back.
+ */
+public final class Replay {
+
+    private static final int MAGIC = 0x50414352;  // "PACR"
+    private static final int VERSION = 3;  // changes whenever the same inputs play out differently
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final @NotNull GameManager.Config config;
+    private long[] decisions = new long[64];  // 32 directions per long
+    private int decisionCount;
+    private int[] kills = new int[4];  // the decisions where the behavior killed pacman
+    private int killCount;
+    private int played;  // the decisions that record() has played back or recorded
+    private boolean finished;
+    private int level;
+    private int score;
+
+    /**
+     * Creates an empty replay for a game with the given config. The config is
+     * copied, so the game may change its own config afterward.
+     *
+     * @param config the config of the game that will be recorded
+     */
+    public Replay(@NotNull GameManager.Config config) {
+        this.config = copy(config);
+    }
+
+    /**
+     * Returns a copy of the config of the recorded game.
+     *
+     * @return the config of the game
+     */
+    public @NotNull GameManager.Config getConfig() {
+        return copy(config);
+    }
+
+    /**
+     * Returns the number of directions chosen by pacman.
+     *
+     * @return the number of decisions
+     */
+    public int getDecisionCount() {
+        return decisionCount;
+    }
+
+    /**
+     * Returns the direction pacman chose at the given decision.
+     *
+     * @param index the index of the decision
+     * @return the chosen direction
+     */
+    public @NotNull Direction getDecision(int index) {
+        if (index < 0 || index >= decisionCount)
+            throw new IndexOutOfBoundsException("Decision " + index + " out of bounds for " + decisionCount + " decisions");
+        return DIRECTIONS[(int) (decisions[index >>> 5] >>> ((index & 31) << 1)) & 3];
+    }
+
+    /**
+     * Returns true if the behavior killed pacman right after the given decision.
+     *
+     * @param index the index of the decision
+     * @return true if pacman was killed
+     */
+    public boolean isKill(int index) {
+        return Arrays.binarySearch(kills, 0, killCount, index) >= 0;
+    }
+
+    /**
+     * Returns true once {@link #finish(GameManager)} was called.
+     *
+     * @return true if the game has ended
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Returns the level the game ended on, once {@link #isFinished() finished}.
+     *
+     * @return the final level
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Returns the score the game ended with, once {@link #isFinished() finished}.
+     *
+     * @return the final score
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Returns true while {@link #record(Behavior)} is still playing back the
+     * decisions that were in this replay before recording started.
+     *
+     * @return true if the recorded decisions are being played back
+     */
+    public boolean isPlayingBack() {
+        return played < decisionCount;
+    }
+
+    /**
+     * Wraps pacman's behavior, so that every direction it chooses is added to
+     * this replay. Wrap the behavior of every pacman in the game (there is a
+     * new pacman for every level, and 1 per player). Pacmen are updated in a
+     * fixed order, so the directions of several players can share 1 replay.
+     *
+     * <p>If this replay already has decisions (e.g. it was read from a
+     * checkpoint), those are played back first, without asking
+     * <code>behavior</code>. Once the game has caught up, recording continues
+     * where the replay left off.
+     *
+     * @param behavior the behavior to record
+     * @return a behavior that records, then returns, the directions of <code>behavior</code>
+     */
+    public @NotNull Behavior record(@NotNull Behavior behavior) {
+        return entity -> {
+            if (played < decisionCount) {
+                if (isKill(played))
+                    ((PacmanEntity) entity).kill();
+                return getDecision(played++);
+            }
+
+            boolean wasAlive = ((PacmanEntity) entity).isAlive();
+            Direction direction = behavior.getDirection(entity);
+            add(direction);
+            if (wasAlive && !((PacmanEntity) entity).isAlive())
+                addKill(decisionCount - 1);
+            return direction;
+        };
+    }
+
+    /**
+     * Stores the final level and score, which the {@link Replayer} checks to
+     * make sure the replay played out the same way.
+     *
+     * @param manager the game that ended
+     */
+    public void finish(@NotNull GameManager manager) {
+        finished = true;
+        level = manager.getLevel();
+        score = manager.getScore();
+    }
+
+    private void add(@NotNull Direction direction) {
+        if (finished)
+            throw new IllegalStateException("Cannot record after the game has finished");
+
+        int word = decisionCount >>> 5;
+        if (word == decisions.length)
+            decisions = Arrays.copyOf(decisions, decisions.length * 2);
+        decisions[word] |= (long) direction.ordinal() << ((decisionCount & 31) << 1);
+        decisionCount++;
+        played++;
+    }
+
+    private void addKill(int decision) {
+        if (killCount == kills.length)
+            kills = Arrays.copyOf(kills, kills.length * 2);
+        kills[killCount++] = decision;
+    }
+
+    /**
+     * Writes this replay to a file, replacing the file if it exists.
+     *
+     * @param file the file to write to
+     * @throws IOException if the file cannot be written
+     */
+    public void write(@NotNull Path file) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+            write(out);
+        }
+    }
+
+    /**
+     * Writes this replay to a stream. The stream is not closed.
+     *
+     * @param stream the stream to write to
+     * @throws IOException if the stream cannot be written
+     */
+    public void write(@NotNull OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+
+        out.writeInt(config.id);
+        out.writeUTF(config.levelsPreset);
+        out.writeInt(config.startLevel);
+        out.writeInt(config.startLives);
+        out.writeInt(config.startScore);
+        out.writeInt(config.handicap);
+        out.writeLong(config.seed);
+        out.writeInt(config.episode);
+        out.writeInt(config.pacmen);
+
+        out.writeBoolean(finished);
+        out.writeInt(level);
+        out.writeInt(score);
+
+        out.writeInt(killCount);
+        for (int i = 0; i < killCount; i++) {
+            out.writeInt(kills[i]);
+        }
+
+        // Only the bytes that hold decisions, 4 decisions per byte
+        out.writeInt(decisionCount);
+        for (int i = 0; i < (decisionCount + 3) >>> 2; i++) {
+            out.writeByte((int) (decisions[i >>> 3] >>> ((i & 7) << 3)));
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads a replay from a file.
+     *
+     * @param file the file to read
+     * @return the replay
+     * @throws IOException if the file cannot be read, or is not a replay of this version
+     */
+    public static @NotNull Replay read(@NotNull Path file) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            return read(in);
+        }
+    }
+
+    /**
+     * Reads a replay from a stream. The stream is not closed.
+     *
+     * @param stream the stream to read from
+     * @return the replay
+     * @throws IOException if the stream cannot be read, or is not a replay of this version
+     */
+    public static @NotNull Replay read(@NotNull InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        if (in.readInt() != MAGIC)
+            throw new IOException("Not a replay");
+        int version = in.readInt();
+        if (version != VERSION)
+            throw new IOException("Unsupported replay version " + version);
+
+        GameManager.Config config = new GameManager.Config();
+        config.id = in.readInt();
+        config.levelsPreset = in.readUTF();
+        config.startLevel = in.readInt();
+        config.startLives = in.readInt();
+        config.startScore = in.readInt();
+        config.handicap = in.readInt();
+        config.seed = in.readLong();
+        config.episode = in.readInt();
+        config.pacmen = in.readInt();
+
+        Replay replay = new Replay(config);
+        replay.finished = in.readBoolean();
+        replay.level = in.readInt();
+        replay.score = in.readInt();
+
+        replay.killCount = in.readInt();
+        replay.kills = new int[Math.max(replay.killCount, 1)];
+        for (int i = 0; i < replay.killCount; i++) {
+            replay.kills[i] = in.readInt();
+        }
+
+        replay.decisionCount = in.readInt();
+        replay.decisions = new long[Math.max((replay.decisionCount + 31) >>> 5, 1)];
+        for (int i = 0; i < (replay.decisionCount + 3) >>> 2; i++) {
+            replay.decisions[i >>> 3] |= (long) in.readUnsignedByte() << ((i & 7) << 3);
+        }
+        return replay;
+    }
+
+    private static @NotNull GameManager.Config copy(@NotNull GameManager.Config config) {
+        GameManager.Config copy = new GameManager.Config();
+        copy.id = config.id;
+        copy.levelsPreset = config.levelsPreset;
+        copy.startLevel = config.startLevel;
+        copy.startLives = config.startLives;
+        copy.startScore = config.startScore;
+        copy.handicap = config.handicap;
+        copy.seed = config.seed;
+        copy.episode = config.episode;
+        copy.pacmen = config.pacmen;
+        return copy;
+    }
+}
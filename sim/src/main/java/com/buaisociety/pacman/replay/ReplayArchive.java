@@ -0,0 +1,369 @@
+package com.buaisociety.pacman.replay;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stores the {@link Replay} of every game of a training run in 1 folder.
+ *
+ * <p>Replays are appended to segment files (<code>segment-&lt;n&gt;.pacr</code>),
+ * and a new segment is started once the current one is full. Segments are
+ * never rewritten, so a crash loses at most the replays that were still being
+ * written. Every replay also gets a fixed size entry in
+ * <code>index.paci</code>, with its episode (generation), game id, level,
+ * score and position, so a replay can be read by mapping its segment into
+ * memory and parsing only that replay.
+ *
+ * <p>{@link #append(Replay)} only serializes the replay (a few hundred bytes)
+ * and hands it to a background thread, so it never waits on the disk. Reads
+ * may happen from any thread, and see a replay once its future completes.
+ */
+public class ReplayArchive implements AutoCloseable {
+
+    private static final int SEGMENT_MAGIC = 0x50414353;  // "PACS"
+    private static final int INDEX_MAGIC = 0x50414349;  // "PACI"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int ENTRY_BYTES = 32;
+
+    private final @NotNull Path folder;
+    private final long segmentBytes;
+    private final @NotNull ExecutorService writer;
+    private final @NotNull List<Entry> entries = new ArrayList<>();  // guarded by itself
+    private final @NotNull Map<Long, Entry> byGame = new ConcurrentHashMap<>();
+    private final @NotNull Map<Integer, MappedByteBuffer> mapped = new ConcurrentHashMap<>();
+
+    // Only used by the writer thread
+    private final @NotNull FileChannel index;
+    private @Nullable FileChannel segment;
+    private int segmentNumber;
+    private long segmentSize;
+
+    /**
+     * Opens the archive in the given folder, creating it if needed. Replays
+     * that are already in the archive are indexed, and new replays are
+     * appended after them.
+     *
+     * @param folder the folder of the archive
+     * @param segmentBytes the size after which a new segment is started
+     * @throws IOException if the archive cannot be opened
+     */
+    public ReplayArchive(@NotNull Path folder, long segmentBytes) throws IOException {
+        if (segmentBytes <= HEADER_BYTES || segmentBytes > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Segments must be between " + HEADER_BYTES + " bytes and 2 GB, got " + segmentBytes);
+
+        this.folder = folder;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(folder);
+
+        index = FileChannel.open(folder.resolve("index.paci"), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        readIndex();
+
+        writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Replay Archive Writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public ReplayArchive(@NotNull Path folder) throws IOException {
+        this(folder, 64L * 1024 * 1024);
+    }
+
+    /**
+     * Returns the entries of every replay in the archive, in the order they
+     * were written.
+     *
+     * @return the entries of every replay
+     */
+    public @NotNull List<Entry> getEntries() {
+        synchronized (entries) {
+            return List.copyOf(entries);
+        }
+    }
+
+    /**
+     * Returns the entry of the given game, or <code>null</code> if that game
+     * is not in the archive.
+     *
+     * @param episode the episode (e.g. generation) of the game
+     * @param id the id of the game
+     * @return the entry, or <code>null</code>
+     */
+    public @Nullable Entry find(int episode, int id) {
+        return byGame.get(key(episode, id));
+    }
+
+    /**
+     * Returns the entries with the highest scores in the given episode, best
+     * first.
+     *
+     * @param episode the episode (e.g. generation) to search
+     * @param count the maximum number of entries to return
+     * @return the best entries of the episode
+     */
+    public @NotNull List<Entry> getBest(int episode, int count) {
+        List<Entry> best = new ArrayList<>();
+        synchronized (entries) {
+            for (Entry entry : entries) {
+                if (entry.episode == episode)
+                    best.add(entry);
+            }
+        }
+        best.sort(Comparator.comparingInt(Entry::getScore).reversed());
+        return best.subList(0, Math.min(count, best.size()));
+    }
+
+    /**
+     * Adds a replay to the archive. The replay is copied right away, and
+     * written to disk on a background thread.
+     *
+     * @param replay the replay to add, usually {@link Replay#isFinished() finished}
+     * @return a future that completes with the entry once the replay is written
+     */
+    public @NotNull CompletableFuture<Entry> append(@NotNull Replay replay) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        try {
+            replay.write(out);
+        } catch (IOException e) {
+            throw new RuntimeException(e);  // cannot happen, writes to memory
+        }
+
+        byte[] bytes = out.toByteArray();
+        int episode = replay.getConfig().episode;
+        int id = replay.getConfig().id;
+        int level = replay.getLevel();
+        int score = replay.getScore();
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return write(episode, id, level, score, bytes);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }, writer);
+    }
+
+    /**
+     * Reads a replay from the archive.
+     *
+     * @param entry the entry of the replay
+     * @return the replay
+     * @throws IOException if the segment cannot be read, or the replay is corrupt
+     */
+    public @NotNull Replay read(@NotNull Entry entry) throws IOException {
+        MappedByteBuffer buffer = mapped.get(entry.segment);
+        if (buffer == null || buffer.capacity() < entry.offset + entry.length) {
+            try (FileChannel channel = FileChannel.open(segmentPath(entry.segment), StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            mapped.put(entry.segment, buffer);
+        }
+
+        ByteBuffer slice = buffer.slice((int) entry.offset, entry.length);
+        return Replay.read(new ByteBufferInputStream(slice));
+    }
+
+    /**
+     * Waits until every replay that was appended so far is written.
+     */
+    public void flush() {
+        CompletableFuture.runAsync(() -> {}, writer).join();
+    }
+
+    /**
+     * Writes the remaining replays, then closes the files.
+     *
+     * @throws IOException if the files cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (segment != null)
+            segment.close();
+        index.close();
+        mapped.clear();
+    }
+
+    private @NotNull Entry write(int episode, int id, int level, int score, byte[] bytes) throws IOException {
+        if (segment == null || segmentSize + bytes.length > segmentBytes) {
+            if (segment != null) {
+                segment.close();
+                segmentNumber++;
+            }
+            openSegment();
+        }
+
+        Entry entry = new Entry(episode, id, level, score, segmentNumber, segmentSize, bytes.length);
+        ByteBuffer data = ByteBuffer.wrap(bytes);
+        while (data.hasRemaining()) {
+            segmentSize += segment.write(data, segmentSize);
+        }
+
+        // The index is written after the replay, so it never points at missing data
+        ByteBuffer buffer = ByteBuffer.allocate(ENTRY_BYTES);
+        buffer.putInt(entry.episode).putInt(entry.id).putInt(entry.level).putInt(entry.score);
+        buffer.putInt(entry.segment).putLong(entry.offset).putInt(entry.length);
+        buffer.flip();
+        long position = index.size();
+        while (buffer.hasRemaining()) {
+            position += index.write(buffer, position);
+        }
+
+        add(entry);
+        return entry;
+    }
+
+    private void openSegment() throws IOException {
+        // Continue the last segment, unless it is full
+        while (true) {
+            Path path = segmentPath(segmentNumber);
+            segment = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            segmentSize = segment.size();
+            if (segmentSize == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(SEGMENT_MAGIC).putInt(VERSION).flip();
+                while (header.hasRemaining()) {
+                    segmentSize += segment.write(header, segmentSize);
+                }
+            }
+            if (segmentSize < segmentBytes)
+                return;
+
+            segment.close();
+            segmentNumber++;
+        }
+    }
+
+    private void readIndex() throws IOException {
+        long size = index.size();
+        if (size == 0) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(INDEX_MAGIC).putInt(VERSION).flip();
+            index.write(header, 0);
+            return;
+        }
+
+        MappedByteBuffer buffer = index.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        if (size < HEADER_BYTES || buffer.getInt() != INDEX_MAGIC)
+            throw new IOException("Not a replay archive index: " + folder);
+        int version = buffer.getInt();
+        if (version != VERSION)
+            throw new IOException("Unsupported replay archive version " + version);
+
+        // A partly written entry (after a crash) is dropped
+        while (buffer.remaining() >= ENTRY_BYTES) {
+            Entry entry = new Entry(buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt(),
+                buffer.getInt(), buffer.getLong(), buffer.getInt());
+            add(entry);
+            segmentNumber = Math.max(segmentNumber, entry.segment);
+        }
+        index.truncate(size - buffer.remaining());
+    }
+
+    private void add(@NotNull Entry entry) {
+        synchronized (entries) {
+            entries.add(entry);
+        }
+        byGame.put(key(entry.episode, entry.id), entry);
+    }
+
+    private @NotNull Path segmentPath(int segment) {
+        return folder.resolve("segment-" + segment + ".pacr");
+    }
+
+    private static long key(int episode, int id) {
+        return ((long) episode << 32) | (id & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Where a replay is stored, and a summary of how the game ended.
+     */
+    public static final class Entry {
+
+        private final int episode;
+        private final int id;
+        private final int level;
+        private final int score;
+        private final int segment;
+        private final long offset;
+        private final int length;
+
+        private Entry(int episode, int id, int level, int score, int segment, long offset, int length) {
+            this.episode = episode;
+            this.id = id;
+            this.level = level;
+            this.score = score;
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        public int getEpisode() {
+            return episode;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public int getLevel() {
+            return level;
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{episode=" + episode + ", id=" + id + ", level=" + level + ", score=" + score + "}";
+        }
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final @NotNull ByteBuffer buffer;
+
+        private ByteBufferInputStream(@NotNull ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining())
+                return -1;
+
+            length = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, length);
+            return length;
+        }
+    }
+}
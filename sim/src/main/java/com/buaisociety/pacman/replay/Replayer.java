@@ -0,0 +1,340 @@
+package com.buaisociety.pacman.replay;
+
+import com.buaisociety.pacman.GameManager;
+import com.buaisociety.pacman.GameSnapshot;
+import com.buaisociety.pacman.entity.Direction;
+import com.buaisociety.pacman.entity.EntityType;
+import com.buaisociety.pacman.entity.PacmanEntity;
+import com.buaisociety.pacman.event.EntityPreSpawnEvent;
+import com.buaisociety.pacman.maze.Maze;
+import com.buaisociety.pacman.util.Disposable;
+import com.buaisociety.pacman.util.EventListener;
+import com.buaisociety.pacman.util.EventSystem;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Plays a {@link Replay} back, by running a new game with the same config and
+ * feeding pacman the recorded directions.
+ *
+ * <p>The game must be set up the same way as the recorded game, so register
+ * the same listeners (e.g. special training conditions) to the event system
+ * before creating the replayer. The replayer sets pacman's behavior itself,
+ * so do not set it in another listener. Nothing is rendered, and frozen ticks
+ * are skipped, so {@link #run()} replays a game as fast as the simulation
+ * allows.
+ *
+ * <p>While playing forward, the replayer keeps a {@link GameSnapshot keyframe}
+ * every few ticks and at the start of every level. {@link #seek(int)} then
+ * restores the closest keyframe and only simulates the ticks after it, so
+ * jumping around a long game (e.g. to watch a death on level 9) is fast once
+ * that part of the game has been played once.
+ *
+ * <p>Keyframes can be saved next to the replay with
+ * {@link #writeKeyframes(Path)}, and loaded by a later replayer of the same
+ * replay with {@link #readKeyframes(Path)}, so it can seek anywhere without
+ * playing the game first. Loading them builds the maze of every level in the
+ * file, which fires the same events as starting those levels.
+ */
+public class Replayer implements Disposable {
+
+    private final @NotNull Replay replay;
+    private final @NotNull EventSystem events;
+    private final @NotNull GameManager gameManager;
+    private final @NotNull EventListener<EntityPreSpawnEvent> onPreSpawn;
+    private final int keyframeInterval;
+    private final @NotNull List<Keyframe> keyframes = new ArrayList<>();
+    private int tick;
+    private int decision;
+    private boolean exhausted;
+
+    public Replayer(@NotNull Replay replay, @NotNull EventSystem events) {
+        this(replay, events, 60 * 60);
+    }
+
+    /**
+     * Creates a replayer, and starts the first level of the game.
+     *
+     * @param replay the replay to play back
+     * @param events the event system of the game, with the same listeners as the recorded game
+     * @param keyframeInterval the number of ticks between keyframes
+     */
+    public Replayer(@NotNull Replay replay, @NotNull EventSystem events, int keyframeInterval) {
+        if (keyframeInterval < 1)
+            throw new IllegalArgumentException("Keyframe interval must be positive, got " + keyframeInterval);
+
+        this.replay = replay;
+        this.events = events;
+        this.keyframeInterval = keyframeInterval;
+        this.gameManager = new GameManager(events, replay.getConfig());
+
+        onPreSpawn = event -> {
+            if (event.getEntityType() != EntityType.PACMAN || event.getMaze().getLevelManager() != gameManager)
+                return;
+
+            PacmanEntity.Config config = (PacmanEntity.Config) event.getConfig();
+            config.behavior = entity -> next((PacmanEntity) entity);
+        };
+        events.registerListener(EntityPreSpawnEvent.class, onPreSpawn);
+        gameManager.nextLevel();
+        addKeyframe();
+    }
+
+    /**
+     * Returns the game being replayed.
+     *
+     * @return the game being replayed
+     */
+    public @NotNull GameManager getGameManager() {
+        return gameManager;
+    }
+
+    /**
+     * Returns the number of ticks since the game started, including skipped
+     * frozen ticks.
+     *
+     * @return the current tick
+     */
+    public int getTick() {
+        return tick;
+    }
+
+    /**
+     * Returns the number of keyframes that have been taken so far.
+     *
+     * @return the number of keyframes
+     */
+    public int getKeyframeCount() {
+        return keyframes.size();
+    }
+
+    /**
+     * Returns the number of recorded directions that have been played back.
+     *
+     * @return the number of replayed decisions
+     */
+    public int getDecision() {
+        return decision;
+    }
+
+    /**
+     * Returns true when the game has ended, or when pacman asked for more
+     * directions than were recorded.
+     *
+     * @return true if there is nothing left to replay
+     */
+    public boolean isFinished() {
+        return gameManager.isGameOver() || exhausted;
+    }
+
+    /**
+     * Replays 1 tick of the game, like {@link GameManager#update()} followed
+     * by {@link GameManager#postUpdate()}. Frozen ticks are not skipped.
+     */
+    public void step() {
+        if (isFinished())
+            return;
+
+        gameManager.update();
+        gameManager.postUpdate();
+        tick++;
+        onTick();
+    }
+
+    /**
+     * Moves the game to the given tick, or to the end of the game if it ended
+     * sooner. Moving backward restores the closest keyframe before the tick,
+     * then replays the ticks after it.
+     *
+     * @param target the tick to move to
+     */
+    public void seek(int target) {
+        // Only restore when the keyframe is closer than the current tick
+        Keyframe keyframe = findKeyframe(target);
+        if (target < tick || keyframe.tick > tick)
+            restore(keyframe);
+
+        while (tick < target && !isFinished()) {
+            Maze maze = gameManager.getCurrentMaze();
+            int idle = maze.getIdleTicks();
+            if (idle > 0 && idle <= target - tick) {
+                tick += gameManager.advanceUntilNextEvent();
+                continue;
+            }
+            step();
+        }
+    }
+
+    /**
+     * Replays the rest of the game, skipping frozen ticks, then checks that it
+     * ended the same way as the recorded game.
+     *
+     * @throws IllegalStateException if the replay played out differently
+     */
+    public void run() {
+        seek(Integer.MAX_VALUE);
+
+        if (!replay.isFinished())
+            return;
+        if (exhausted || decision != replay.getDecisionCount()
+            || gameManager.getLevel() != replay.getLevel() || gameManager.getScore() != replay.getScore()) {
+            throw new IllegalStateException("Replay desynced after " + decision + "/" + replay.getDecisionCount()
+                + " decisions, ended on level " + gameManager.getLevel() + " with score " + gameManager.getScore()
+                + " instead of level " + replay.getLevel() + " with score " + replay.getScore());
+        }
+    }
+
+    /**
+     * Writes every keyframe taken so far to a file, replacing the file if it
+     * exists. Use {@link #getKeyframeFile(Path)} to keep the file next to the
+     * replay.
+     *
+     * @param file the file to write to
+     * @throws IOException if the file cannot be written
+     */
+    public void writeKeyframes(@NotNull Path file) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+            writeKeyframes(out);
+        }
+    }
+
+    /**
+     * Writes every keyframe taken so far to a stream. The stream is not
+     * closed.
+     *
+     * @param stream the stream to write to
+     * @throws IOException if the stream cannot be written
+     */
+    public void writeKeyframes(@NotNull OutputStream stream) throws IOException {
+        KeyframeFile.write(new DataOutputStream(stream), replay, keyframes);
+    }
+
+    /**
+     * Reads keyframes written by {@link #writeKeyframes(Path)}, replacing the
+     * keyframes taken so far. The game stays at the current tick.
+     *
+     * @param file the file to read
+     * @throws IOException if the file cannot be read, or was not written for this replay
+     */
+    public void readKeyframes(@NotNull Path file) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            readKeyframes(in);
+        }
+    }
+
+    /**
+     * Reads keyframes written by {@link #writeKeyframes(OutputStream)},
+     * replacing the keyframes taken so far. The game stays at the current
+     * tick. The stream is not closed.
+     *
+     * @param stream the stream to read from
+     * @throws IOException if the stream cannot be read, or was not written for this replay
+     */
+    public void readKeyframes(@NotNull InputStream stream) throws IOException {
+        List<Keyframe> loaded = KeyframeFile.read(new DataInputStream(stream), replay, gameManager);
+
+        // Building the mazes of the loaded keyframes replaced the current maze
+        int target = tick;
+        keyframes.clear();
+        keyframes.addAll(loaded);
+        restore(findKeyframe(target));
+        seek(target);
+    }
+
+    /**
+     * Returns the file that keeps the keyframes of the given replay file,
+     * which is next to it with <code>.keys</code> added to its name.
+     *
+     * @param replayFile the file of the replay
+     * @return the file of its keyframes
+     */
+    public static @NotNull Path getKeyframeFile(@NotNull Path replayFile) {
+        return replayFile.resolveSibling(replayFile.getFileName() + ".keys");
+    }
+
+    private @NotNull Keyframe findKeyframe(int target) {
+        // Keyframes are in order of their tick
+        int low = 0;
+        int high = keyframes.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (keyframes.get(mid).tick <= target)
+                low = mid;
+            else
+                high = mid - 1;
+        }
+        return keyframes.get(low);
+    }
+
+    private void restore(@NotNull Keyframe keyframe) {
+        gameManager.restore(keyframe.snapshot);
+        tick = keyframe.tick;
+        decision = keyframe.decision;
+        exhausted = false;
+    }
+
+    private void onTick() {
+        // Keyframes are only added past the last one, not when replaying from one
+        Keyframe last = keyframes.get(keyframes.size() - 1);
+        if (tick <= last.tick || isFinished())
+            return;
+        if (tick - last.tick >= keyframeInterval || gameManager.getLevel() != last.level)
+            addKeyframe();
+    }
+
+    private void addKeyframe() {
+        GameSnapshot snapshot = new GameSnapshot();
+        gameManager.snapshot(snapshot);
+        keyframes.add(new Keyframe(tick, gameManager.getLevel(), decision, snapshot));
+    }
+
+    private @NotNull Direction next(@NotNull PacmanEntity pacman) {
+        if (decision == replay.getDecisionCount()) {
+            exhausted = true;
+            return pacman.getDirection();
+        }
+
+        Direction direction = replay.getDecision(decision);
+        if (replay.isKill(decision))
+            pacman.kill();
+        decision++;
+        return direction;
+    }
+
+    /**
+     * Stops listening for new pacmen. Call this when done with the replayer.
+     */
+    @Override
+    public void dispose() {
+        events.unregisterListener(EntityPreSpawnEvent.class, onPreSpawn);
+    }
+
+    /**
+     * The state of the game at 1 tick, and how far into the replay it was.
+     */
+    static final class Keyframe {
+
+        final int tick;
+        final int level;
+        final int decision;
+        final @NotNull GameSnapshot snapshot;
+
+        Keyframe(int tick, int level, int decision, @NotNull GameSnapshot snapshot) {
+            this.tick = tick;
+            this.level = level;
+            this.decision = decision;
+            this.snapshot = snapshot;
+        }
+    }
+}
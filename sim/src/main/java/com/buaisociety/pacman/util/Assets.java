@@ -0,0 +1,72 @@
+package com.buaisociety.pacman.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Loads files from the <code>./assets</code> directory without using libGDX.
+ *
+ * <p>Paths are resolved the same way libGDX resolves internal files on the
+ * desktop; first relative to the working directory, then on the classpath.
+ * This allows the simulation to run headless (e.g. on a server without a GPU).
+ */
+public final class Assets {
+
+    private Assets() {
+    }
+
+    /**
+     * Opens a stream to the given asset. The caller is responsible for closing
+     * the stream.
+     *
+     * @param path the path of the asset, relative to the assets directory
+     * @return the stream to read the asset from
+     * @throws IOException if the asset does not exist, or cannot be read
+     */
+    public static @NotNull InputStream open(@NotNull String path) throws IOException {
+        Path file = Path.of(path);
+        if (Files.isRegularFile(file))
+            return Files.newInputStream(file);
+
+        InputStream stream = Assets.class.getClassLoader().getResourceAsStream(path);
+        if (stream == null)
+            throw new IOException("Could not find asset: " + path);
+        return stream;
+    }
+
+    /**
+     * Reads the entire asset as a UTF-8 string.
+     *
+     * @param path the path of the asset, relative to the assets directory
+     * @return the contents of the asset
+     * @throws IOException if the asset does not exist, or cannot be read
+     */
+    public static @NotNull String readString(@NotNull String path) throws IOException {
+        try (InputStream stream = open(path)) {
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Decodes the asset as an image.
+     *
+     * @param path the path of the asset, relative to the assets directory
+     * @return the decoded image
+     * @throws IOException if the asset does not exist, or is not an image
+     */
+    public static @NotNull BufferedImage readImage(@NotNull String path) throws IOException {
+        try (InputStream stream = open(path)) {
+            BufferedImage image = ImageIO.read(stream);
+            if (image == null)
+                throw new IOException("Unsupported image format: " + path);
+            return image;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.buaisociety.pacman.util;
+
+/**
+ * Utility methods for fixed point numbers.
+ *
+ * <p>Entity positions and speeds are stored as integers in "sub-pixels," where
+ * {@link #ONE} sub-pixels make up 1 pixel. This keeps movement exact and
+ * deterministic, and lets the simulation run without allocating vectors.
+ */
+public final class FixedPoint {
+
+    /**
+     * The number of bits used for the fractional part.
+     */
+    public static final int SHIFT = 8;
+
+    /**
+     * The number of sub-pixels in 1 pixel.
+     */
+    public static final int ONE = 1 << SHIFT;
+
+    private FixedPoint() {
+    }
+
+    /**
+     * Converts a value in pixels to fixed point, rounding to the nearest
+     * sub-pixel.
+     *
+     * @param pixels the value in pixels
+     * @return the value in sub-pixels
+     */
+    public static int fromPixels(double pixels) {
+        return (int) Math.round(pixels * ONE);
+    }
+
+    /**
+     * Converts a whole number of pixels to fixed point.
+     *
+     * @param pixels the value in pixels
+     * @return the value in sub-pixels
+     */
+    public static int fromPixels(int pixels) {
+        return pixels << SHIFT;
+    }
+
+    /**
+     * Converts a fixed point value to pixels.
+     *
+     * @param fixed the value in sub-pixels
+     * @return the value in pixels
+     */
+    public static double toPixels(int fixed) {
+        return (double) fixed / ONE;
+    }
+
+    /**
+     * Returns the whole pixel that the fixed point value is in.
+     *
+     * @param fixed the value in sub-pixels
+     * @return the pixel, rounded down
+     */
+    public static int toPixel(int fixed) {
+        return fixed >> SHIFT;
+    }
+}
@@ -0,0 +1,61 @@
+package com.buaisociety.pacman.util;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * A small, fast source of randomness (SplitMix64) whose whole state is 1
+ * <code>long</code>.
+ *
+ * <p>Unlike {@link java.util.SplittableRandom}, the state can be read and
+ * written, so a game's random source can be saved in a snapshot and put back
+ * later without allocating. The bounded methods (e.g.
+ * {@link #nextInt(int)}) come from {@link RandomGenerator}.
+ */
+public final class GameRandom implements RandomGenerator {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private long state;
+
+    public GameRandom(long seed) {
+        this.state = seed;
+    }
+
+    /**
+     * Returns the state of this random source, see {@link #setState(long)}.
+     *
+     * @return the state
+     */
+    public long getState() {
+        return state;
+    }
+
+    /**
+     * Sets the state of this random source. After this, it returns the same
+     * values as it did after {@link #getState()} returned <code>state</code>.
+     *
+     * @param state the state to go back to
+     */
+    public void setState(long state) {
+        this.state = state;
+    }
+
+    @Override
+    public long nextLong() {
+        return mix64(state += GOLDEN_GAMMA);
+    }
+
+    /**
+     * Scrambles the bits of a value, so that close inputs give unrelated
+     * outputs. This is the SplitMix64 finalizer, which is also used to turn
+     * seeds into states that are far apart.
+     *
+     * @param z the value to scramble
+     * @return the scrambled value
+     */
+    public static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -24,4 +24,21 @@ public final class NumberUtil {
             return Math.max(current - maxDelta, target);
         }
     }
+
+    /**
+     * Moves a value towards a target value by a maximum delta. The value will
+     * never exceed the target value.
+     *
+     * @param current the current value
+     * @param target the target value
+     * @param maxDelta the maximum delta to move
+     * @return the new value
+     */
+    public static int moveTowards(int current, int target, int maxDelta) {
+        if (current < target) {
+            return Math.min(current + maxDelta, target);
+        } else {
+            return Math.max(current - maxDelta, target);
+        }
+    }
 }
@@ -0,0 +1,73 @@
+package com.buaisociety.pacman;
+
+import com.buaisociety.pacman.util.GameRandom;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the random sources of neighbouring games and episodes do not
+ * overlap. {@link GameRandom} walks through 1 long sequence, so 2 sources
+ * overlap when one starts a few steps after the other.
+ */
+public class GameManagerTest {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    // No game draws anywhere near this many values
+    private static final long STREAM_LENGTH = 1L << 32;
+
+    @Test
+    public void neighbouringIdsDoNotOverlap() {
+        for (long seed = 0; seed < 4; seed++) {
+            for (int id = 0; id < 1000; id++) {
+                assertApart(GameManager.createRandom(seed, id, 0), GameManager.createRandom(seed, id + 1, 0),
+                    "seed " + seed + ", ids " + id + " and " + (id + 1));
+            }
+        }
+    }
+
+    @Test
+    public void neighbouringEpisodesDoNotOverlap() {
+        for (int id = 0; id < 10; id++) {
+            for (int episode = 0; episode < 1000; episode++) {
+                assertApart(GameManager.createRandom(0, id, episode), GameManager.createRandom(0, id, episode + 1),
+                    "id " + id + ", episodes " + episode + " and " + (episode + 1));
+            }
+        }
+    }
+
+    @Test
+    public void neighbouringIdsDrawDifferentValues() {
+        for (int id = 0; id < 10; id++) {
+            Set<Long> values = new HashSet<>();
+            GameRandom first = GameManager.createRandom(0, id, 0);
+            GameRandom second = GameManager.createRandom(0, id + 1, 0);
+            for (int i = 0; i < 10000; i++) {
+                values.add(first.nextLong());
+            }
+            for (int i = 0; i < 10000; i++) {
+                assertTrue(values.add(second.nextLong()), "ids " + id + " and " + (id + 1) + " share value " + i);
+            }
+        }
+    }
+
+    /**
+     * Asserts that neither source reaches the state of the other within
+     * {@link #STREAM_LENGTH} values. Each value adds the golden gamma to the
+     * state, so the number of steps between them is their difference divided
+     * by the gamma (which is odd, so it can be inverted modulo 2^64).
+     */
+    private static void assertApart(GameRandom a, GameRandom b, String message) {
+        long inverse = GOLDEN_GAMMA;
+        for (int i = 0; i < 5; i++) {
+            inverse *= 2 - GOLDEN_GAMMA * inverse;
+        }
+
+        long steps = (b.getState() - a.getState()) * inverse;
+        assertTrue(steps >= STREAM_LENGTH || steps <= -STREAM_LENGTH, message + " are " + steps + " values apart");
+    }
+}
@@ -0,0 +1,202 @@
+package com.buaisociety.pacman.batch;
+
+import com.buaisociety.pacman.GameManager;
+import com.buaisociety.pacman.entity.Direction;
+import com.buaisociety.pacman.entity.Entity;
+import com.buaisociety.pacman.entity.EntityType;
+import com.buaisociety.pacman.entity.GhostEntity;
+import com.buaisociety.pacman.entity.GhostState;
+import com.buaisociety.pacman.entity.PacmanEntity;
+import com.buaisociety.pacman.entity.behavior.Behavior;
+import com.buaisociety.pacman.event.EntityPreSpawnEvent;
+import com.buaisociety.pacman.event.GameEndEvent;
+import com.buaisociety.pacman.maze.Maze;
+import com.buaisociety.pacman.util.EventSystem;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Plays the same seeded games in the {@link GameManager} and in the
+ * {@link BatchSimulator}, with the same fixed pacman behavior, and checks
+ * that both engines agree on every tick.
+ */
+public class BatchSimulatorTest {
+
+    private static final int GAMES = 4;
+    private static final int MAX_TICKS = 20000;
+    private static final String LEVELS = "tournament_levels.json";
+    private static final int ROW_GHOSTS = 9;  // score, level, lives, pellets, pacman x/y/dir, fruit, frightened
+
+    @Test
+    public void matchesGameManagerEveryTick() {
+        boolean levelChanged = false;
+        boolean frightened = false;
+        boolean ghostEaten = false;
+
+        for (int seed = 0; seed < GAMES; seed++) {
+            GameManager.Config config = new GameManager.Config();
+            config.levelsPreset = LEVELS;
+            config.seed = seed;
+
+            List<long[]> expected = playGameManager(config, seed);
+            List<long[]> actual = playBatchSimulator(config, seed, expected.size());
+
+            for (int tick = 0; tick < expected.size(); tick++) {
+                long[] row = expected.get(tick);
+                assertArrayEquals(row, actual.get(tick), "game " + seed + " diverged at tick " + tick);
+
+                levelChanged |= row[1] > 1;
+                frightened |= row[8] > 0;
+                for (int i = ROW_GHOSTS; i < row.length; i += 4) {
+                    ghostEaten |= row[i + 3] == GhostState.EATEN.ordinal();
+                }
+            }
+        }
+
+        // Make sure the games were long enough to cover the interesting rules
+        assertTrue(levelChanged, "no game reached level 2");
+        assertTrue(frightened, "no game frightened the ghosts");
+        assertTrue(ghostEaten, "no game ate a ghost");
+    }
+
+    private static @NotNull List<long[]> playGameManager(@NotNull GameManager.Config config, int seed) {
+        EventSystem events = new EventSystem();
+        events.registerListener(EntityPreSpawnEvent.class, event -> {
+            if (event.getEntityType() != EntityType.PACMAN)
+                return;
+
+            // A new behavior is created for each level, so the call count restarts
+            ((PacmanEntity.Config) event.getConfig()).behavior = new Behavior() {
+                private int calls = seed * 7;
+
+                @Override
+                public @NotNull Direction getDirection(@NotNull Entity entity) {
+                    return policy(++calls, entity.getDirection(), entity::canMove, direction -> entity.getMaze()
+                        .getClosestPelletDistance(entity.getTileX() + direction.getDx(), entity.getTileY() + direction.getDy()));
+                }
+            };
+        });
+
+        boolean[] ended = new boolean[1];
+        events.registerListener(GameEndEvent.class, event -> ended[0] = true);
+
+        GameManager manager = new GameManager(events, config);
+        manager.nextLevel();
+
+        List<long[]> rows = new ArrayList<>();
+        for (int tick = 0; tick < MAX_TICKS && !ended[0]; tick++) {
+            manager.update();
+            manager.postUpdate();
+
+            Maze maze = manager.getCurrentMaze();
+            PacmanEntity pacman = maze.getPacman();
+            long[] row = new long[ROW_GHOSTS + 4 * maze.getGhostCount()];
+            row[0] = manager.getScore();
+            row[1] = manager.getLevel();
+            row[2] = manager.getExtraLives();
+            row[3] = maze.getPelletsRemaining();
+            row[4] = pacman.getFixedX();
+            row[5] = pacman.getFixedY();
+            row[6] = pacman.getDirection().ordinal();
+            row[7] = maze.getFruit() != null ? 1 : 0;
+            row[8] = maze.getFrightenedTimer();
+            for (int i = 0; i < maze.getGhostCount(); i++) {
+                GhostEntity ghost = maze.getGhost(i);
+                row[ROW_GHOSTS + 4 * i] = ghost.getFixedX();
+                row[ROW_GHOSTS + 4 * i + 1] = ghost.getFixedY();
+                row[ROW_GHOSTS + 4 * i + 2] = ghost.getDirection().ordinal();
+                row[ROW_GHOSTS + 4 * i + 3] = ghost.getState().ordinal();
+            }
+            rows.add(row);
+        }
+
+        assertEquals(ended[0], rows.size() < MAX_TICKS);
+        return rows;
+    }
+
+    private static @NotNull List<long[]> playBatchSimulator(@NotNull GameManager.Config config, int seed, int ticks) {
+        BatchSimulator simulator = new BatchSimulator(1, config);
+        int[] calls = { seed * 7 };
+        int[] level = { 1 };
+        BatchBehavior behavior = (sim, games, count, directions) -> {
+            for (int j = 0; j < count; j++) {
+                int game = games[j];
+                if (sim.getLevel(game) != level[0]) {
+                    level[0] = sim.getLevel(game);
+                    calls[0] = seed * 7;
+                }
+
+                Direction current = Direction.values()[directions[game]];
+                directions[game] = (byte) policy(++calls[0], current, direction -> sim.canPacmanMove(game, direction),
+                    direction -> sim.getClosestPelletDistance(game, sim.getPacmanTileX(game) + direction.getDx(),
+                        sim.getPacmanTileY(game) + direction.getDy())).ordinal();
+            }
+        };
+
+        List<long[]> rows = new ArrayList<>();
+        for (int tick = 0; tick < ticks; tick++) {
+            simulator.step(behavior);
+
+            long[] row = new long[ROW_GHOSTS + 4 * simulator.getGhostCount(0)];
+            row[0] = simulator.getScore(0);
+            row[1] = simulator.getLevel(0);
+            row[2] = simulator.getExtraLives(0);
+            row[3] = simulator.getPelletsRemaining(0);
+            row[4] = simulator.getPacmanFixedX(0);
+            row[5] = simulator.getPacmanFixedY(0);
+            row[6] = simulator.getPacmanDirection(0).ordinal();
+            row[7] = simulator.hasFruit(0) ? 1 : 0;
+            row[8] = simulator.getFrightenedTimer(0);
+            for (int i = 0; i < simulator.getGhostCount(0); i++) {
+                row[ROW_GHOSTS + 4 * i] = simulator.getGhostFixedX(0, i);
+                row[ROW_GHOSTS + 4 * i + 1] = simulator.getGhostFixedY(0, i);
+                row[ROW_GHOSTS + 4 * i + 2] = simulator.getGhostDirection(0, i).ordinal();
+                row[ROW_GHOSTS + 4 * i + 3] = simulator.getGhostState(0, i).ordinal();
+            }
+            rows.add(row);
+        }
+
+        assertEquals(ticks < MAX_TICKS, !simulator.isActive(0), "games ended on different ticks");
+        return rows;
+    }
+
+    /**
+     * Heads for the closest pellet, with an occasional fixed turn so that the
+     * games do not only follow the pellets.
+     */
+    private static @NotNull Direction policy(int calls, @NotNull Direction current, @NotNull Predicate<Direction> canMove,
+                                             @NotNull ToIntFunction<Direction> pelletDistance) {
+        if (calls % 53 == 0) {
+            if (calls % 2 == 0 && canMove.test(current.left()))
+                return current.left();
+            if (canMove.test(current.right()))
+                return current.right();
+        }
+
+        Direction best = current;
+        int bestDistance = Integer.MAX_VALUE;
+        for (Direction direction : Direction.values()) {
+            if (!canMove.test(direction))
+                continue;
+
+            int distance = pelletDistance.applyAsInt(direction);
+            if (distance < 0)
+                distance = Integer.MAX_VALUE - 1;
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = direction;
+            }
+        }
+        return best;
+    }
+}
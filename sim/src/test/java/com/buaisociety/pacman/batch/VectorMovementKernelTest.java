@@ -0,0 +1,184 @@
+package com.buaisociety.pacman.batch;
+
+import com.buaisociety.pacman.entity.Direction;
+import com.buaisociety.pacman.maze.Maze;
+import com.buaisociety.pacman.util.FixedPoint;
+import jdk.incubator.vector.IntVector;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the {@link VectorMovementKernel} gives exactly the same results
+ * as the {@link ScalarMovementKernel}. The test task enables the vector
+ * module, so the vector kernel is always the one being tested.
+ */
+public class VectorMovementKernelTest {
+
+    private static final int WIDTH = FixedPoint.fromPixels(28 * Maze.TILE_SIZE);
+    private static final int HEIGHT = FixedPoint.fromPixels(31 * Maze.TILE_SIZE);
+    private static final int LANES = IntVector.SPECIES_PREFERRED.length();
+
+    private final ScalarMovementKernel scalar = new ScalarMovementKernel(WIDTH, HEIGHT);
+    private final VectorMovementKernel vector = new VectorMovementKernel(scalar);
+
+    @Test
+    public void createsVectorKernel() {
+        assertTrue(MovementKernel.create(WIDTH, HEIGHT) instanceof VectorMovementKernel);
+    }
+
+    @Test
+    public void moveMatchesScalar() {
+        Random random = new Random(1);
+
+        // Counts that are not a multiple of the vector length use the scalar tail
+        for (int count = 1; count <= 4 * LANES + 1; count++) {
+            for (int trial = 0; trial < 50; trial++) {
+                int from = random.nextInt(LANES + 1);
+                int to = from + count;
+                int offset = random.nextInt(3) * to;
+                Batch batch = new Batch(random, offset + to, to);
+                compareMove(batch, offset, from, to, "count " + count + ", trial " + trial);
+            }
+        }
+    }
+
+    @Test
+    public void moveWrapsThroughTunnel() {
+        int count = 2 * LANES + 3;
+        Batch batch = new Batch(new Random(2), count, count);
+        int speed = FixedPoint.fromPixels(1);
+        for (int i = 0; i < count; i++) {
+            // Alternate between each edge of the maze, facing out of it
+            Direction direction = Direction.values()[i % 4];
+            batch.x[i] = direction == Direction.LEFT ? speed / 2 : direction == Direction.RIGHT ? WIDTH - speed / 2 : batch.x[i];
+            batch.y[i] = direction == Direction.DOWN ? speed / 2 : direction == Direction.UP ? HEIGHT - speed / 2 : batch.y[i];
+            batch.direction[i] = direction.ordinal();
+            batch.speed[i] = speed;
+            batch.flags[i] = i % 3 == 0 ? MovementKernel.FIX_CENTER : 0;
+        }
+
+        compareMove(batch, 0, 0, count, "tunnel");
+        for (int i = 0; i < count; i++) {
+            assertTrue(batch.x[i] >= 0 && batch.x[i] < WIDTH, "x out of the maze: " + batch.x[i]);
+            assertTrue(batch.y[i] >= 0 && batch.y[i] < HEIGHT, "y out of the maze: " + batch.y[i]);
+        }
+    }
+
+    @Test
+    public void stoppedEntitiesDoNotMove() {
+        int count = 3 * LANES + 1;
+        Batch batch = new Batch(new Random(3), count, count);
+        Arrays.fill(batch.speed, 0);
+        batch.speed[count - 1] = FixedPoint.fromPixels(1);  // in the scalar tail
+        batch.speed[1] = FixedPoint.fromPixels(1);          // in the first vector
+
+        int[] x = batch.x.clone();
+        int[] lastX = batch.lastX.clone();
+        compareMove(batch, 0, 0, count, "stopped");
+        for (int i = 0; i < count; i++) {
+            if (batch.speed[i] == 0) {
+                assertTrue(batch.x[i] == x[i] && batch.lastX[i] == lastX[i], "entity " + i + " moved with speed 0");
+            }
+        }
+    }
+
+    @Test
+    public void collideMatchesScalar() {
+        Random random = new Random(4);
+        for (int count = 1; count <= 4 * LANES + 1; count++) {
+            for (int trial = 0; trial < 50; trial++) {
+                int offset = random.nextInt(4) * count;
+                int[] ghostX = new int[offset + count];
+                int[] ghostY = new int[offset + count];
+                int[] pacmanX = new int[count];
+                int[] pacmanY = new int[count];
+                for (int i = 0; i < count; i++) {
+                    pacmanX[i] = random.nextInt(WIDTH);
+                    pacmanY[i] = random.nextInt(HEIGHT);
+
+                    // Put about half of the ghosts within a tile of pacman
+                    boolean near = random.nextBoolean();
+                    int tile = FixedPoint.fromPixels(Maze.TILE_SIZE);
+                    ghostX[offset + i] = near ? Math.floorMod(pacmanX[i] + random.nextInt(2 * tile) - tile, WIDTH) : random.nextInt(WIDTH);
+                    ghostY[offset + i] = near ? Math.floorMod(pacmanY[i] + random.nextInt(2 * tile) - tile, HEIGHT) : random.nextInt(HEIGHT);
+                }
+
+                boolean[] expected = new boolean[offset + count];
+                boolean[] actual = new boolean[offset + count];
+                scalar.collide(ghostX, ghostY, offset, pacmanX, pacmanY, count, expected);
+                vector.collide(ghostX, ghostY, offset, pacmanX, pacmanY, count, actual);
+                assertTrue(Arrays.equals(expected, actual), "collisions differ for count " + count + ", trial " + trial);
+            }
+        }
+    }
+
+    private void compareMove(Batch batch, int offset, int from, int to, String message) {
+        Batch expected = batch.copy();
+        scalar.move(expected.x, expected.y, expected.lastX, expected.lastY, offset, from, to,
+            expected.direction, expected.speed, expected.flags);
+        vector.move(batch.x, batch.y, batch.lastX, batch.lastY, offset, from, to,
+            batch.direction, batch.speed, batch.flags);
+
+        assertArrayEquals(expected.x, batch.x, message + ": x");
+        assertArrayEquals(expected.y, batch.y, message + ": y");
+        assertArrayEquals(expected.lastX, batch.lastX, message + ": last x");
+        assertArrayEquals(expected.lastY, batch.lastY, message + ": last y");
+    }
+
+    /**
+     * The arrays passed to {@link MovementKernel#move}, filled with random
+     * entities. Some are near the edges of the maze, some are stopped, and
+     * every combination of flags is used.
+     */
+    private static final class Batch {
+        int[] x, y, lastX, lastY;
+        int[] direction, speed, flags;
+
+        Batch(Random random, int positions, int entities) {
+            x = new int[positions];
+            y = new int[positions];
+            lastX = new int[positions];
+            lastY = new int[positions];
+            for (int k = 0; k < positions; k++) {
+                x[k] = random.nextInt(4) == 0 ? nearEdge(random, WIDTH) : random.nextInt(WIDTH);
+                y[k] = random.nextInt(4) == 0 ? nearEdge(random, HEIGHT) : random.nextInt(HEIGHT);
+                lastX[k] = random.nextInt();
+                lastY[k] = random.nextInt();
+            }
+
+            direction = new int[entities];
+            speed = new int[entities];
+            flags = new int[entities];
+            for (int i = 0; i < entities; i++) {
+                direction[i] = random.nextInt(Direction.values().length);
+                speed[i] = random.nextInt(4) == 0 ? 0 : 1 + random.nextInt(FixedPoint.fromPixels(2));
+                flags[i] = random.nextInt(4);  // none, FIX_CENTER, STOP or both
+            }
+        }
+
+        private Batch() {
+        }
+
+        private static int nearEdge(Random random, int size) {
+            int distance = random.nextInt(FixedPoint.fromPixels(2));
+            return random.nextBoolean() ? distance : size - 1 - distance;
+        }
+
+        Batch copy() {
+            Batch copy = new Batch();
+            copy.x = x.clone();
+            copy.y = y.clone();
+            copy.lastX = lastX.clone();
+            copy.lastY = lastY.clone();
+            copy.direction = direction.clone();
+            copy.speed = speed.clone();
+            copy.flags = flags.clone();
+            return copy;
+        }
+    }
+}
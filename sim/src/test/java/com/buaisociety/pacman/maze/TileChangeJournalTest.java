@@ -0,0 +1,80 @@
+package com.buaisociety.pacman.maze;
+
+import com.buaisociety.pacman.GameManager;
+import com.buaisociety.pacman.event.CreateMazeEvent;
+import com.buaisociety.pacman.util.EventSystem;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Checks that tiles changed between 2 calls to {@link Maze#update()} show up
+ * in the journal of the next tick. The game is still showing "READY!" during
+ * these ticks, so pacman does not eat anything.
+ */
+public class TileChangeJournalTest {
+
+    @Test
+    public void keepsChangesMadeBetweenTicks() {
+        GameManager manager = new GameManager(new EventSystem(), new GameManager.Config());
+        manager.nextLevel();
+        Maze maze = manager.getCurrentMaze();
+        TileChangeJournal journal = maze.getTileChanges();
+
+        maze.update();
+        long generation = journal.getGeneration();
+        assertEquals(0, journal.size());
+
+        int[] pellet = findPellet(maze);
+        maze.setTileState(pellet[0], pellet[1], TileState.SPACE);
+        assertEquals(0, journal.size(), "changes between ticks belong to the next tick");
+
+        maze.update();
+        assertEquals(generation + 1, journal.getGeneration());
+        assertFalse(journal.isRescanNeeded());
+        assertEquals(1, journal.size());
+        assertChange(journal, 0, maze, pellet, TileState.PELLET, TileState.SPACE);
+
+        maze.update();
+        assertEquals(0, journal.size(), "changes are only kept for 1 tick");
+    }
+
+    @Test
+    public void keepsChangesMadeWhenTheMazeIsCreated() {
+        EventSystem events = new EventSystem();
+        int[][] changed = new int[1][];
+        events.registerListener(CreateMazeEvent.class, event -> {
+            changed[0] = findPellet(event.getMaze());
+            event.getMaze().setTileState(changed[0][0], changed[0][1], TileState.POWER_PELLET);
+        });
+
+        GameManager manager = new GameManager(events, new GameManager.Config());
+        manager.nextLevel();
+        Maze maze = manager.getCurrentMaze();
+
+        maze.update();
+        assertEquals(1, maze.getTileChanges().size());
+        assertChange(maze.getTileChanges(), 0, maze, changed[0], TileState.PELLET, TileState.POWER_PELLET);
+    }
+
+    private static int[] findPellet(@NotNull Maze maze) {
+        for (int y = 0; y < maze.getHeight(); y++) {
+            for (int x = 0; x < maze.getWidth(); x++) {
+                if (maze.getTileState(x, y) == TileState.PELLET)
+                    return new int[]{ x, y };
+            }
+        }
+        throw new IllegalStateException("No pellets in the maze");
+    }
+
+    private static void assertChange(@NotNull TileChangeJournal journal, int change, @NotNull Maze maze, int[] tile,
+                                     @NotNull TileState oldState, @NotNull TileState newState) {
+        assertEquals(tile[0], journal.getTileX(change));
+        assertEquals(tile[1], journal.getTileY(change));
+        assertEquals(maze.index(tile[0], tile[1]), journal.getTile(change));
+        assertEquals(oldState, journal.getOldState(change));
+        assertEquals(newState, journal.getNewState(change));
+    }
+}
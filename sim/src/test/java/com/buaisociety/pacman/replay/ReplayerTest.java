@@ -0,0 +1,139 @@
+package com.buaisociety.pacman.replay;
+
+import com.buaisociety.pacman.GameManager;
+import com.buaisociety.pacman.entity.Direction;
+import com.buaisociety.pacman.entity.Entity;
+import com.buaisociety.pacman.entity.EntityType;
+import com.buaisociety.pacman.entity.FruitEntity;
+import com.buaisociety.pacman.entity.GhostEntity;
+import com.buaisociety.pacman.entity.PacmanEntity;
+import com.buaisociety.pacman.event.EntityPreSpawnEvent;
+import com.buaisociety.pacman.maze.BonusPoints;
+import com.buaisociety.pacman.maze.Maze;
+import com.buaisociety.pacman.util.EventSystem;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that keyframes written next to a replay let a new replayer, with a
+ * replay read from disk, seek anywhere in the game and land on the same state
+ * as playing the game from the start.
+ */
+public class ReplayerTest {
+
+    private static final int KEYFRAME_INTERVAL = 300;
+
+    @Test
+    public void seeksWithKeyframesReadFromDisk() throws IOException {
+        Replay replay = record(2);
+        List<String> states = new ArrayList<>();
+        Replayer played = new Replayer(replay, new EventSystem(), KEYFRAME_INTERVAL);
+        while (!played.isFinished()) {
+            played.step();
+            states.add(describe(played.getGameManager()));
+        }
+
+        Path file = Files.createTempDirectory("replay").resolve("game.replay");
+        replay.write(file);
+        played.writeKeyframes(Replayer.getKeyframeFile(file));
+        played.dispose();
+
+        Replayer loaded = new Replayer(Replay.read(file), new EventSystem(), KEYFRAME_INTERVAL);
+        loaded.readKeyframes(Replayer.getKeyframeFile(file));
+        assertEquals(played.getKeyframeCount(), loaded.getKeyframeCount());
+
+        Random random = new Random(1);
+        int[] targets = new int[50];
+        targets[0] = states.size() - 1;
+        for (int i = 1; i < targets.length; i++) {
+            targets[i] = 1 + random.nextInt(states.size() - 1);
+        }
+        for (int target : targets) {
+            loaded.seek(target);
+            assertEquals(target, loaded.getTick());
+            assertEquals(states.get(target - 1), describe(loaded.getGameManager()), "state at tick " + target);
+        }
+        loaded.run();
+        loaded.dispose();
+    }
+
+    @Test
+    public void rejectsKeyframesOfAnotherReplay() throws IOException {
+        Replay replay = record(1);
+        Replayer played = new Replayer(replay, new EventSystem(), KEYFRAME_INTERVAL);
+        played.run();
+        Path file = Files.createTempFile("game", ".replay.keys");
+        played.writeKeyframes(file);
+        played.dispose();
+
+        GameManager.Config config = replay.getConfig();
+        config.seed++;
+        Replayer other = new Replayer(new Replay(config), new EventSystem(), KEYFRAME_INTERVAL);
+        assertThrows(IOException.class, () -> other.readKeyframes(file));
+        other.dispose();
+    }
+
+    // Plays a game where every pacman wanders around at random
+    private static @NotNull Replay record(int pacmen) {
+        GameManager.Config config = new GameManager.Config();
+        config.seed = 11;
+        config.startLives = 1;
+        config.pacmen = pacmen;
+        Replay replay = new Replay(config);
+
+        EventSystem events = new EventSystem();
+        events.registerListener(EntityPreSpawnEvent.class, event -> {
+            if (event.getEntityType() != EntityType.PACMAN)
+                return;
+
+            PacmanEntity.Config pacmanConfig = (PacmanEntity.Config) event.getConfig();
+            Random random = new Random(pacmanConfig.player);
+            pacmanConfig.behavior = replay.record(entity -> {
+                Direction direction = Direction.values()[random.nextInt(4)];
+                return random.nextInt(4) == 0 && entity.canMove(direction) ? direction : entity.getDirection();
+            });
+        });
+
+        GameManager manager = new GameManager(events, config);
+        manager.nextLevel();
+        while (!manager.isGameOver()) {
+            manager.update();
+            manager.postUpdate();
+        }
+        replay.finish(manager);
+        return replay;
+    }
+
+    private static @NotNull String describe(@NotNull GameManager manager) {
+        StringBuilder builder = new StringBuilder("level ").append(manager.getLevel());
+        for (int player = 0; player < manager.getPlayerCount(); player++) {
+            builder.append(", player ").append(player).append(' ')
+                .append(manager.getScore(player)).append('/').append(manager.getExtraLives(player));
+        }
+
+        Maze maze = manager.getCurrentMaze();
+        builder.append(", pellets ").append(maze.getPelletsRemaining());
+        for (Entity entity : maze.getEntities()) {
+            builder.append(", ").append(entity.getType()).append(' ')
+                .append(entity.getFixedX()).append(',').append(entity.getFixedY()).append(' ').append(entity.getDirection());
+            if (entity instanceof GhostEntity ghost)
+                builder.append(' ').append(ghost.getState());
+            if (entity instanceof FruitEntity fruit)
+                builder.append(' ').append(fruit.getTicksLeft());
+        }
+        for (BonusPoints bonus : maze.getBonusPoints()) {
+            builder.append(", bonus ").append(bonus.getPoints()).append(' ').append(bonus.getTicksAlive());
+        }
+        return builder.toString();
+    }
+}